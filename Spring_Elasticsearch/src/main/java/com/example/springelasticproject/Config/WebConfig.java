@@ -1,13 +1,33 @@
 package com.example.springelasticproject.Config;
 
+import com.example.springelasticproject.model.User;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.fasterxml.jackson.databind.ser.std.ToStringSerializer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.jackson.Jackson2ObjectMapperBuilderCustomizer;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
 import org.springframework.web.servlet.config.annotation.CorsRegistry;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
 
+import java.time.Duration;
+
 @Configuration
 public class WebConfig implements WebMvcConfigurer {
 
+    // Exports admis par ExportScheduler (en cours et en file) : un thread d'écriture chacun, sans refus de l'exécuteur
+    @Value("${export.users.scheduler.max-running:2}")
+    private int maxRunningExports;
+
+    @Value("${export.users.scheduler.max-queued:20}")
+    private int maxQueuedExports;
+
+    // Durée maximale d'un export (délai des réponses asynchrones)
+    @Value("${export.users.timeout:6h}")
+    private Duration exportTimeout;
+
     @Override
     public void addCorsMappings(CorsRegistry registry) {
         registry.addMapping("/**")
@@ -15,4 +35,44 @@ public class WebConfig implements WebMvcConfigurer {
                 .allowedMethods("GET", "POST", "PUT", "DELETE", "OPTIONS") // Méthodes autorisées
                 .allowedHeaders("*"); // Tous les headers sont autorisés
     }
-}
\ No newline at end of file
+
+    // Les corps StreamingResponseBody sont écrits sur ces threads, pas sur ceux de Tomcat
+    @Override
+    public void configureAsyncSupport(AsyncSupportConfigurer configurer) {
+        configurer.setTaskExecutor(exportTaskExecutor());
+        configurer.setDefaultTimeout(exportTimeout.toMillis());
+    }
+
+    /*
+     * Les identifiants de documents (idS) occupent 64 bits : renvoyés en chaîne dans les réponses REST pour que
+     * le front JavaScript ne les arrondisse pas. Le client Elasticsearch a son propre mapper, les documents
+     * indexés gardent un idS numérique.
+     */
+    @Bean
+    public Jackson2ObjectMapperBuilderCustomizer userIdAsString() {
+        return builder -> builder.mixIn(User.class, UserIdAsString.class);
+    }
+
+    private abstract static class UserIdAsString {
+        @JsonSerialize(using = ToStringSerializer.class)
+        abstract Long getIdS();
+    }
+
+    /*
+     * La concurrence des exports est réglée par ExportScheduler, qui réserve sa place avant que le corps ne
+     * soit soumis ici : l'exécuteur a un thread par export admis et aucune file, il ne refuse donc jamais
+     * un corps admis (les exports en file y attendent leur tour, threads au repos).
+     */
+    @Bean
+    public ThreadPoolTaskExecutor exportTaskExecutor() {
+        int admitted = maxRunningExports + maxQueuedExports;
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(admitted);
+        executor.setMaxPoolSize(admitted);
+        executor.setQueueCapacity(0);
+        executor.setAllowCoreThreadTimeOut(true);
+        executor.setThreadNamePrefix("export-");
+        executor.setWaitForTasksToCompleteOnShutdown(false);
+        return executor;
+    }
+}
@@ -0,0 +1,223 @@
+package com.example.springelasticproject.Services;
+
+import co.elastic.clients.elasticsearch.ElasticsearchClient;
+import co.elastic.clients.elasticsearch._types.Time;
+import co.elastic.clients.elasticsearch.indices.GetIndicesSettingsResponse;
+import co.elastic.clients.elasticsearch.indices.IndexSettings;
+import co.elastic.clients.elasticsearch.indices.IndexState;
+import co.elastic.clients.json.JsonData;
+import jakarta.json.JsonValue;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.elasticsearch.core.ElasticsearchOperations;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Mode chargement massif d'un index : refresh désactivé et aucun réplica pendant l'import,
+ * puis restauration des réglages d'origine (et force merge optionnel).
+ * Plusieurs imports simultanés sur le même index partagent le mode : les réglages d'origine sont lus
+ * par le premier et restaurés par le dernier. Un réglage qui n'était pas défini sur l'index est remis à null
+ * (valeur par défaut du cluster) plutôt que figé à sa valeur du moment.
+ */
+@Service
+public class BulkLoadIndexSettings {
+
+    private static final Logger logger = LoggerFactory.getLogger(BulkLoadIndexSettings.class);
+
+    // Tentatives de restauration des réglages, espacées de 1 s, 2 s...
+    private static final int RESTORE_ATTEMPTS = 3;
+
+    private final ElasticsearchClient elasticsearchClient;
+    private final ElasticsearchOperations elasticsearchOperations;
+
+    // Force merge de l'index après le dernier chargement réussi
+    @Value("${import.bulk-load.force-merge:false}")
+    private boolean forceMerge;
+
+    @Value("${import.bulk-load.max-num-segments:1}")
+    private long maxNumSegments;
+
+    // Index en mode chargement (ou dont la restauration a échoué), avec leurs réglages d'origine
+    private final Map<String, Holder> holders = new HashMap<>();
+
+    @Autowired
+    public BulkLoadIndexSettings(ElasticsearchClient elasticsearchClient,
+                                 ElasticsearchOperations elasticsearchOperations) {
+        this.elasticsearchClient = elasticsearchClient;
+        this.elasticsearchOperations = elasticsearchOperations;
+    }
+
+    /**
+     * Passe l'index de l'entité en mode chargement. Le {@link Lease} retourné doit être fermé
+     * (try-with-resources) pour restaurer les réglages, y compris si l'import échoue.
+     */
+    public Lease acquire(Class<?> entityClass) throws IOException {
+        String indexName = elasticsearchOperations.getIndexCoordinatesFor(entityClass).getIndexName();
+        synchronized (holders) {
+            // Un holder sans utilisateur est celui d'une restauration échouée : ses réglages d'origine restent valables
+            Holder holder = holders.get(indexName);
+            if (holder == null) {
+                holder = readSettings(indexName);
+            }
+            if (holder.users == 0) {
+                elasticsearchClient.indices().putSettings(p -> p
+                        .index(indexName)
+                        .settings(s -> s
+                                .refreshInterval(Time.of(t -> t.time("-1")))
+                                .numberOfReplicas("0")));
+                logger.info("Index {} en mode chargement (refresh_interval={} -> -1, number_of_replicas={} -> 0)",
+                        indexName, describe(holder.refreshInterval), describe(holder.numberOfReplicas));
+                holders.put(indexName, holder);
+            }
+            holder.users++;
+            return new Lease(indexName);
+        }
+    }
+
+    // Lit les réglages définis explicitement sur l'index (null : valeur par défaut du cluster)
+    Holder readSettings(String indexName) throws IOException {
+        GetIndicesSettingsResponse response = elasticsearchClient.indices().getSettings(g -> g.index(indexName));
+        return explicitSettings(response.result().values().iterator().next());
+    }
+
+    static Holder explicitSettings(IndexState state) {
+        IndexSettings settings = state.settings();
+        if (settings == null) {
+            return new Holder(null, null);
+        }
+        IndexSettings index = settings.index() != null ? settings.index() : settings;
+        return new Holder(index.refreshInterval() != null ? toSetting(index.refreshInterval()) : null,
+                index.numberOfReplicas());
+    }
+
+    // Réglages à renvoyer pour restaurer l'index : null efface le réglage posé par le mode chargement
+    static IndexSettings restoredSettings(Holder holder) {
+        return IndexSettings.of(s -> s
+                .otherSettings("index.refresh_interval", settingValue(holder.refreshInterval))
+                .otherSettings("index.number_of_replicas", settingValue(holder.numberOfReplicas)));
+    }
+
+    private static JsonData settingValue(String value) {
+        return JsonData.of(value != null ? value : JsonValue.NULL);
+    }
+
+    private static String describe(String value) {
+        return value != null ? value : "défaut";
+    }
+
+    private static String toSetting(Time time) {
+        return time.isTime() ? time.time() : String.valueOf(time.offset());
+    }
+
+    private void release(String indexName, boolean succeeded) {
+        Holder holder;
+        synchronized (holders) {
+            holder = holders.get(indexName);
+            if (holder == null) {
+                return;
+            }
+            holder.succeeded |= succeeded;
+            if (--holder.users > 0) {
+                return;
+            }
+
+            if (!restore(indexName, holder)) {
+                // Holder conservé : le prochain chargement réutilise les réglages d'origine et retente la restauration
+                logger.error("Impossible de restaurer les réglages de l'index {} (refresh_interval={}, "
+                                + "number_of_replicas={}), nouvel essai à la fin du prochain chargement",
+                        indexName, describe(holder.refreshInterval), describe(holder.numberOfReplicas));
+                return;
+            }
+            holders.remove(indexName);
+        }
+
+        if (forceMerge && holder.succeeded) {
+            try {
+                long start = System.currentTimeMillis();
+                elasticsearchClient.indices().forcemerge(f -> f.index(indexName).maxNumSegments(maxNumSegments));
+                logger.info("Force merge de l'index {} terminé en {} ms", indexName, System.currentTimeMillis() - start);
+            } catch (Exception e) {
+                logger.warn("Force merge de l'index {} échoué : {}", indexName, e.getMessage());
+            }
+        }
+    }
+
+    // Remet les réglages d'origine, en plusieurs tentatives ; le holder n'est retiré qu'en cas de succès
+    private boolean restore(String indexName, Holder holder) {
+        for (int attempt = 1; attempt <= RESTORE_ATTEMPTS; attempt++) {
+            try {
+                elasticsearchClient.indices().putSettings(p -> p
+                        .index(indexName)
+                        .settings(restoredSettings(holder)));
+                logger.info("Réglages de l'index {} restaurés (refresh_interval={}, number_of_replicas={})",
+                        indexName, describe(holder.refreshInterval), describe(holder.numberOfReplicas));
+                break;
+            } catch (Exception e) {
+                logger.warn("Restauration des réglages de l'index {} échouée (tentative {}/{}) : {}",
+                        indexName, attempt, RESTORE_ATTEMPTS, e.getMessage());
+                if (attempt == RESTORE_ATTEMPTS) {
+                    return false;
+                }
+                try {
+                    Thread.sleep(1000L * attempt);
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    return false;
+                }
+            }
+        }
+        try {
+            // Rend visibles tout de suite les documents chargés
+            elasticsearchClient.indices().refresh(r -> r.index(indexName));
+        } catch (Exception e) {
+            logger.warn("Refresh de l'index {} échoué : {}", indexName, e.getMessage());
+        }
+        return true;
+    }
+
+    static class Holder {
+        // null : réglage non défini sur l'index
+        final String refreshInterval;
+        final String numberOfReplicas;
+        private int users;
+        private boolean succeeded;
+
+        Holder(String refreshInterval, String numberOfReplicas) {
+            this.refreshInterval = refreshInterval;
+            this.numberOfReplicas = numberOfReplicas;
+        }
+    }
+
+    /**
+     * Mode chargement en cours sur un index ; {@link #close()} restaure les réglages.
+     */
+    public class Lease implements AutoCloseable {
+        private final String indexName;
+        private boolean succeeded;
+        private boolean closed;
+
+        private Lease(String indexName) {
+            this.indexName = indexName;
+        }
+
+        // Le chargement s'est terminé sans erreur : le force merge éventuel peut être lancé
+        public void markSucceeded() {
+            succeeded = true;
+        }
+
+        @Override
+        public void close() {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            release(indexName, succeeded);
+        }
+    }
+}
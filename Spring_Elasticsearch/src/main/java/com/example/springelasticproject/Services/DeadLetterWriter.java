@@ -0,0 +1,222 @@
+package com.example.springelasticproject.Services;
+
+import com.example.springelasticproject.model.User;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Fichier des lignes rejetées d'un import (NDJSON) : une entrée par ligne avec le numéro de ligne source,
+ * la raison du rejet et l'enregistrement CSV. Le fichier n'est créé qu'au premier rejet ; il peut être
+ * rejoué tel quel via {@link #openReplay(File)}.
+ */
+public class DeadLetterWriter implements AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(DeadLetterWriter.class);
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    // En-tête ajouté au rejeu (l'import ignore la première ligne) ; ordre des colonnes de convertRowToUser
+    private static final String HEADER = "phoneNumber,userId,firstName,lastName,gender,currentCity,currentCountry,"
+            + "hometownCity,hometownCountry,relationshipStatus,workplace,email,currentDepartment,currentRegion";
+
+    private final Path path;
+    private final boolean append;
+    private final AtomicLong count = new AtomicLong();
+    private Writer writer;
+    private FileChannel channel;
+
+    private DeadLetterWriter(Path path, boolean append) {
+        this.path = path;
+        this.append = append;
+    }
+
+    public static Path pathFor(File csvFile) {
+        return csvFile.toPath().resolveSibling(csvFile.getName() + ".rejected.ndjson");
+    }
+
+    /**
+     * Rejets d'un import de fichier, écrits à côté du fichier ; {@code append} conserve ceux d'un
+     * import précédent (reprise).
+     */
+    public static DeadLetterWriter forFile(File csvFile, boolean append) {
+        return new DeadLetterWriter(pathFor(csvFile), append);
+    }
+
+    // Rejets d'un import sans fichier source (flux, rejeu), écrits dans le répertoire configuré
+    public static DeadLetterWriter forJob(File directory, String jobId) {
+        return new DeadLetterWriter(directory.toPath().resolve(jobId + ".rejected.ndjson"), false);
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    public long getCount() {
+        return count.get();
+    }
+
+    // Ligne brute rejetée au parsing ; line = 0 si le numéro n'est pas connu
+    public void reject(long line, String reason, String record) {
+        ObjectNode entry = MAPPER.createObjectNode();
+        if (line > 0) {
+            entry.put("line", line);
+        }
+        entry.put("reason", reason);
+        entry.put("record", record);
+        write(entry);
+    }
+
+    // Document rejeté à l'indexation : l'enregistrement est reconstitué à partir de l'utilisateur converti
+    public void reject(long line, String reason, User user) {
+        reject(line, reason, toCsv(user));
+    }
+
+    private synchronized void write(ObjectNode entry) {
+        try {
+            if (writer == null) {
+                Files.createDirectories(path.toAbsolutePath().getParent());
+                channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                        append ? StandardOpenOption.APPEND : StandardOpenOption.TRUNCATE_EXISTING);
+                writer = new BufferedWriter(new OutputStreamWriter(Channels.newOutputStream(channel), StandardCharsets.UTF_8));
+                logger.info("Lignes rejetées écrites dans {}", path);
+            }
+            writer.write(MAPPER.writeValueAsString(entry));
+            writer.write('\n');
+            count.incrementAndGet();
+        } catch (IOException e) {
+            // Le rejet reste compté dans les échecs de l'import et visible dans les logs
+            logger.error("Écriture impossible dans {} : {} ({})", path, e.getMessage(), entry);
+        }
+    }
+
+    /**
+     * Écrit sur disque (flush puis fsync) les rejets déjà reçus. Appelé avant chaque écriture du point de
+     * reprise : une ligne rejetée compte comme acquittée, sa trace doit être durable avant que la reprise
+     * ne la saute.
+     *
+     * @return false si les rejets n'ont pas pu être écrits (le point de reprise ne doit pas avancer)
+     */
+    public synchronized boolean sync() {
+        if (writer == null) {
+            return true;
+        }
+        try {
+            writer.flush();
+            channel.force(false);
+            return true;
+        } catch (IOException e) {
+            logger.error("Écriture sur disque de {} impossible : {}", path, e.getMessage());
+            return false;
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+        if (writer == null) {
+            return;
+        }
+        try {
+            writer.flush();
+            channel.force(false);
+            writer.close();
+        } catch (IOException e) {
+            logger.error("Fermeture de {} impossible : {}", path, e.getMessage());
+        }
+        writer = null;
+        channel = null;
+    }
+
+    /**
+     * Flux CSV (en-tête compris) reconstitué à partir d'un fichier de rejets, à passer à l'import en streaming.
+     * Le numéro de ligne de chaque rejet du rejeu est celui de l'entrée dans ce fichier, plus un (en-tête).
+     */
+    public static InputStream openReplay(File deadLetterFile) throws IOException {
+        BufferedReader reader = Files.newBufferedReader(deadLetterFile.toPath(), StandardCharsets.UTF_8);
+        return new InputStream() {
+            private byte[] current = (HEADER + "\n").getBytes(StandardCharsets.UTF_8);
+            private int position;
+
+            @Override
+            public int read() throws IOException {
+                byte[] one = new byte[1];
+                int n = read(one, 0, 1);
+                return n < 0 ? -1 : one[0] & 0xFF;
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                while (current != null && position >= current.length) {
+                    current = nextRecord();
+                    position = 0;
+                }
+                if (current == null) {
+                    return -1;
+                }
+                int n = Math.min(len, current.length - position);
+                System.arraycopy(current, position, b, off, n);
+                position += n;
+                return n;
+            }
+
+            private byte[] nextRecord() throws IOException {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    if (line.isBlank()) {
+                        continue;
+                    }
+                    JsonNode entry = MAPPER.readTree(line);
+                    return (entry.path("record").asText() + "\n").getBytes(StandardCharsets.UTF_8);
+                }
+                return null;
+            }
+
+            @Override
+            public void close() throws IOException {
+                reader.close();
+            }
+        };
+    }
+
+    private static String toCsv(User user) {
+        StringBuilder csv = new StringBuilder();
+        Object[] fields = {user.getPhoneNumber(), user.getUserId(), user.getFirstName(), user.getLastName(),
+                user.getGender(), user.getCurrentCity(), user.getCurrentCountry(), user.getHometownCity(),
+                user.getHometownCountry(), user.getRelationshipStatus(), user.getWorkplace(), user.getEmail(),
+                user.getCurrentDepartment(), user.getCurrentRegion()};
+        for (int i = 0; i < fields.length; i++) {
+            if (i > 0) {
+                csv.append(',');
+            }
+            csv.append(quote(fields[i]));
+        }
+        return csv.toString();
+    }
+
+    private static String quote(Object value) {
+        if (value == null) {
+            return "";
+        }
+        String text = value.toString();
+        if (text.indexOf(',') < 0 && text.indexOf('"') < 0 && text.indexOf('\n') < 0 && text.indexOf('\r') < 0) {
+            return text;
+        }
+        return '"' + text.replace("\"", "\"\"") + '"';
+    }
+}
@@ -0,0 +1,139 @@
+package com.example.springelasticproject.Services;
+
+import co.elastic.clients.elasticsearch.ElasticsearchClient;
+import co.elastic.clients.elasticsearch.core.MgetResponse;
+import co.elastic.clients.elasticsearch.core.mget.MultiGetResponseItem;
+import com.example.springelasticproject.util.BloomFilter;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Détection des doublons à l'import (même userId + phoneNumber, donc même identifiant HASH).
+ * Un filtre de Bloom partagé par tous les imports mémorise les clés déjà vues ; une clé qu'il
+ * reconnaît est confirmée par un GET temps réel sur l'index avant d'être écartée ou fusionnée,
+ * si bien qu'un faux positif du filtre ne fait jamais perdre de ligne.
+ */
+@Service
+public class DuplicateFilter {
+
+    private static final Logger logger = LoggerFactory.getLogger(DuplicateFilter.class);
+
+    private final ElasticsearchClient elasticsearchClient;
+
+    @Value("${import.users.dedup.enabled:false}")
+    private boolean enabled;
+
+    // DROP : la ligne en double est ignorée ; MERGE : ses champs non vides complètent le document existant
+    @Value("${import.users.dedup.policy:DROP}")
+    private UserService.DedupPolicy policy;
+
+    // Dimensionnement du filtre : nombre de clés attendues et taux de faux positifs visé
+    @Value("${import.users.dedup.expected-keys:10000000}")
+    private long expectedKeys;
+
+    @Value("${import.users.dedup.false-positive-rate:0.01}")
+    private double falsePositiveRate;
+
+    private volatile BloomFilter bloom;
+
+    private final AtomicLong candidates = new AtomicLong();
+    private final AtomicLong confirmed = new AtomicLong();
+    private final AtomicLong unconfirmed = new AtomicLong();
+
+    @Autowired
+    public DuplicateFilter(ElasticsearchClient elasticsearchClient) {
+        this.elasticsearchClient = elasticsearchClient;
+    }
+
+    @PostConstruct
+    void init() {
+        if (enabled) {
+            reset();
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public UserService.DedupPolicy getPolicy() {
+        return policy;
+    }
+
+    /**
+     * Enregistre la clé ; true si elle a peut-être déjà été vue (à confirmer par {@link #existing}).
+     */
+    public boolean mightBeDuplicate(long key) {
+        BloomFilter filter = bloom;
+        if (filter.put(key)) {
+            candidates.incrementAndGet();
+            if (filter.getInsertions() == expectedKeys) {
+                logger.warn("Filtre de doublons plein ({} clés) : le taux de faux positifs va augmenter", expectedKeys);
+            }
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Identifiants qui existent dans l'index. Le GET est temps réel : les documents indexés mais pas encore
+     * rafraîchis sont trouvés ; ceux encore en attente dans une requête bulk ne le sont pas.
+     */
+    public Set<String> existing(String indexName, List<String> ids) throws IOException {
+        MgetResponse<Object> response = elasticsearchClient.mget(m -> m
+                .index(indexName)
+                .ids(ids)
+                .realtime(true)
+                .source(s -> s.fetch(false)), Object.class);
+
+        Set<String> found = new HashSet<>();
+        for (MultiGetResponseItem<Object> item : response.docs()) {
+            if (item.isResult() && item.result().found()) {
+                found.add(item.result().id());
+            }
+        }
+        confirmed.addAndGet(found.size());
+        unconfirmed.addAndGet(ids.size() - found.size());
+        return found;
+    }
+
+    // Vide le filtre (après un rechargement complet ou une purge de l'index)
+    public synchronized void reset() {
+        bloom = new BloomFilter(expectedKeys, falsePositiveRate);
+        candidates.set(0);
+        confirmed.set(0);
+        unconfirmed.set(0);
+        logger.info("Filtre de doublons initialisé : {} clés, {} % de faux positifs, {} Mo",
+                expectedKeys, falsePositiveRate * 100, bloom.getSizeBytes() / (1024 * 1024));
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        if (!enabled) {
+            return stats;
+        }
+        BloomFilter filter = bloom;
+        stats.put("policy", policy);
+        stats.put("keys", filter.getInsertions());
+        stats.put("expectedKeys", expectedKeys);
+        stats.put("expectedFalsePositiveRate", filter.expectedFalsePositiveRate());
+        stats.put("candidates", candidates.get());
+        stats.put("confirmedDuplicates", confirmed.get());
+        // Clé reconnue par le filtre mais absente de l'index (faux positif, ou doublon encore en cours d'envoi)
+        stats.put("unconfirmed", unconfirmed.get());
+        return stats;
+    }
+}
@@ -0,0 +1,215 @@
+package com.example.springelasticproject.Services;
+
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Export CSV écrit dans un fichier côté serveur, suivi par {@link ExportJobManager} : état, progression,
+ * estimation du temps restant, puis fichier téléchargeable (avec reprise par plages) et son empreinte SHA-256.
+ */
+public class ExportJob {
+
+    public enum Status {
+        QUEUED, RUNNING, CANCELLED, COMPLETED, FAILED
+    }
+
+    private final String id;
+    // Empreinte de la requête : deux exports de même clé produisent le même fichier
+    private final String key;
+    private final int slices;
+    private final boolean gzip;
+    private final long createdAt = System.currentTimeMillis();
+
+    private volatile Status status = Status.QUEUED;
+    private volatile long startTime;
+    private volatile long endTime;
+    private volatile boolean cancelled;
+    private volatile String error;
+
+    // Total attendu (compté au démarrage, -1 tant qu'inconnu) et lignes déjà écrites
+    private volatile long expectedRows = -1;
+    private volatile long rowsWritten;
+
+    // Fichier produit, renseigné en fin d'export
+    private volatile Path file;
+    private volatile long size;
+    private volatile String sha256;
+
+    // Place dans ExportScheduler, attribuée à la soumission
+    private final ExportScheduler.Ticket ticket;
+
+    // Demandes servies par cet export (la première comprise)
+    private final AtomicInteger requests = new AtomicInteger(1);
+
+    public ExportJob(String id, String key, int slices, boolean gzip, ExportScheduler.Ticket ticket) {
+        this.id = id;
+        this.key = key;
+        this.slices = slices;
+        this.gzip = gzip;
+        this.ticket = ticket;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    public int getSlices() {
+        return slices;
+    }
+
+    public boolean isGzip() {
+        return gzip;
+    }
+
+    public long getCreatedAt() {
+        return createdAt;
+    }
+
+    public long getEndTime() {
+        return endTime;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public Path getFile() {
+        return file;
+    }
+
+    public long getSize() {
+        return size;
+    }
+
+    public String getSha256() {
+        return sha256;
+    }
+
+    public ExportScheduler.Ticket getTicket() {
+        return ticket;
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    public boolean isFinished() {
+        return status == Status.CANCELLED || status == Status.COMPLETED || status == Status.FAILED;
+    }
+
+    // Nom proposé au téléchargement
+    public String getFileName() {
+        return "search-results-" + id + (gzip ? ".csv.gz" : ".csv");
+    }
+
+    void started() {
+        startTime = System.currentTimeMillis();
+        status = Status.RUNNING;
+    }
+
+    void expect(long rows) {
+        expectedRows = rows;
+    }
+
+    /**
+     * Progression signalée après chaque page écrite.
+     *
+     * @throws CancellationException si l'export a été annulé
+     */
+    void progress(long rows) {
+        rowsWritten = rows;
+        if (cancelled) {
+            throw new CancellationException("Export " + id + " annulé");
+        }
+    }
+
+    void completed(Path file, long size, String sha256, long rows) {
+        this.file = file;
+        this.size = size;
+        this.sha256 = sha256;
+        rowsWritten = rows;
+        endTime = System.currentTimeMillis();
+        status = Status.COMPLETED;
+    }
+
+    void failed(String error) {
+        this.error = error;
+        endTime = System.currentTimeMillis();
+        status = cancelled ? Status.CANCELLED : Status.FAILED;
+    }
+
+    // Rattache une nouvelle demande à l'export ; false s'il a été annulé entre-temps
+    synchronized boolean reuse() {
+        if (cancelled) {
+            return false;
+        }
+        requests.incrementAndGet();
+        return true;
+    }
+
+    // Export servi à plusieurs demandes : un demandeur ne peut pas l'annuler pour les autres
+    public boolean isShared() {
+        return requests.get() > 1;
+    }
+
+    /**
+     * Annulation demandée par le client. Refusée (false) si l'export est partagé avec d'autres demandes.
+     */
+    public synchronized boolean cancel() {
+        if (isShared()) {
+            return false;
+        }
+        abort();
+        return true;
+    }
+
+    // Arrêt sans condition (arrêt de l'application, thread interrompu)
+    synchronized void abort() {
+        if (!isFinished()) {
+            cancelled = true;
+            // Un export encore en file la quitte aussitôt
+            ticket.cancel();
+        }
+    }
+
+    // État courant, sérialisé tel quel par le contrôleur
+    public Map<String, Object> snapshot() {
+        Map<String, Object> snapshot = new LinkedHashMap<>();
+        snapshot.put("jobId", id);
+        snapshot.put("status", status);
+        snapshot.put("queuePosition", status == Status.QUEUED ? ticket.position() : 0);
+        snapshot.put("slices", slices);
+        snapshot.put("gzip", gzip);
+        snapshot.put("requests", requests.get());
+        snapshot.put("createdAt", createdAt);
+        snapshot.put("startTime", startTime);
+        snapshot.put("endTime", endTime);
+
+        long elapsed = (endTime > 0 ? endTime : System.currentTimeMillis()) - startTime;
+        long written = rowsWritten;
+        long expected = expectedRows;
+        double rate = startTime > 0 && elapsed > 0 ? written * 1000.0 / elapsed : 0;
+        snapshot.put("rowsWritten", written);
+        snapshot.put("expectedRows", expected);
+        snapshot.put("rowsPerSecond", (long) rate);
+        snapshot.put("progress", expected > 0 ? Math.min(1.0, (double) written / expected) : status == Status.COMPLETED ? 1.0 : 0.0);
+        // Temps restant estimé au débit moyen depuis le démarrage (-1 tant qu'il n'est pas estimable)
+        snapshot.put("etaSeconds", status == Status.COMPLETED ? 0
+                : status == Status.RUNNING && expected >= 0 && rate > 0 ? (long) Math.ceil(Math.max(0, expected - written) / rate) : -1);
+        snapshot.put("error", error);
+
+        if (status == Status.COMPLETED) {
+            snapshot.put("fileName", getFileName());
+            snapshot.put("size", size);
+            snapshot.put("sha256", sha256);
+        }
+        return snapshot;
+    }
+}
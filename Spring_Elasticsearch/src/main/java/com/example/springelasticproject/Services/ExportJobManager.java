@@ -0,0 +1,246 @@
+package com.example.springelasticproject.Services;
+
+import co.elastic.clients.elasticsearch.ElasticsearchClient;
+import co.elastic.clients.elasticsearch._types.query_dsl.BoolQuery;
+import co.elastic.clients.json.JsonpUtils;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Registre des exports en fichier : l'export s'exécute sur un pool dédié et écrit le CSV dans
+ * {@code export.users.jobs.dir}, ce qui permet de suivre sa progression puis de télécharger le résultat
+ * en plusieurs fois (requêtes Range). Une demande identique à un export récent réutilise son fichier.
+ */
+@Service
+public class ExportJobManager {
+
+    private static final Logger logger = LoggerFactory.getLogger(ExportJobManager.class);
+
+    private static final int FILE_BUFFER = 64 * 1024;
+
+    private final ExportService exportService;
+    private final ExportScheduler exportScheduler;
+    private final ElasticsearchClient elasticsearchClient;
+    private final ExecutorService executor;
+    private final Map<String, ExportJob> jobs = new ConcurrentHashMap<>();
+
+    // Purge périodique des exports expirés, même sans nouvelle demande
+    private final ScheduledExecutorService purgeScheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "export-purge");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    // Répertoire des fichiers exportés
+    @Value("${export.users.jobs.dir:exports}")
+    private String directory;
+
+    // Âge maximal d'un fichier réutilisé pour une demande identique (données potentiellement périmées au-delà)
+    @Value("${export.users.jobs.reuse-ttl:1h}")
+    private Duration reuseTtl;
+
+    // Durée de conservation des exports terminés (fichier supprimé ensuite)
+    @Value("${export.users.jobs.retention:24h}")
+    private Duration retention;
+
+    // Intervalle de la purge des exports expirés
+    @Value("${export.users.jobs.purge-interval:10m}")
+    private Duration purgeInterval;
+
+    @Autowired
+    public ExportJobManager(ExportService exportService, ExportScheduler exportScheduler,
+                            ElasticsearchClient elasticsearchClient) {
+        this.exportService = exportService;
+        this.exportScheduler = exportScheduler;
+        this.elasticsearchClient = elasticsearchClient;
+        // Un thread par export soumis : la concurrence est bornée par ExportScheduler, où les exports attendent
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = Executors.newCachedThreadPool(r -> {
+            Thread thread = new Thread(r, "export-job-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PostConstruct
+    void schedulePurge() {
+        long interval = purgeInterval.toMillis();
+        purgeScheduler.scheduleWithFixedDelay(() -> {
+            try {
+                purgeExpired();
+            } catch (RuntimeException e) {
+                logger.warn("Purge des exports expirés échouée : {}", e.getMessage());
+            }
+        }, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Soumet l'export des utilisateurs correspondant à la requête. Si un export de même requête (et même
+     * compression) est en cours, ou terminé depuis moins de {@code export.users.jobs.reuse-ttl}, il est
+     * renvoyé à la place d'un nouvel export. Le nouvel export prend place dans la file d'{@link ExportScheduler}.
+     *
+     * @throws ExportScheduler.QueueFullException si la file des exports est pleine
+     */
+    public synchronized ExportJob submit(BoolQuery query, int slices, boolean gzip) {
+        purgeExpired();
+
+        String key = requestKey(query, gzip);
+        ExportJob existing = findReusable(key);
+        if (existing != null && existing.reuse()) {
+            logger.info("Export {} réutilisé pour une demande identique", existing.getId());
+            return existing;
+        }
+
+        ExportJob job = new ExportJob(UUID.randomUUID().toString(), key, slices, gzip, exportScheduler.enqueue());
+        jobs.put(job.getId(), job);
+        executor.submit(() -> run(job, query));
+        logger.info("Export {} soumis ({} tranche(s){})", job.getId(), slices, gzip ? ", gzip" : "");
+        return job;
+    }
+
+    private void run(ExportJob job, BoolQuery query) {
+        ExportScheduler.Ticket ticket = job.getTicket();
+        Path dir = Paths.get(directory);
+        Path part = dir.resolve(job.getId() + ".part");
+        try {
+            ticket.await();
+            job.started();
+            Files.createDirectories(dir);
+            job.expect(exportService.count(query));
+
+            // L'empreinte est calculée pendant l'écriture, sur les octets du fichier (compressés le cas échéant)
+            MessageDigest sha256 = MessageDigest.getInstance("SHA-256");
+            long rows;
+            try (OutputStream file = new DigestOutputStream(
+                    new BufferedOutputStream(Files.newOutputStream(part), FILE_BUFFER), sha256);
+                 OutputStream target = job.isGzip() ? new GZIPOutputStream(file, FILE_BUFFER) : file) {
+                rows = exportService.writeCsv(query, job.getSlices(), target, ticket, job::progress);
+            }
+
+            // Le fichier n'apparaît sous son nom définitif qu'une fois complet
+            Path file = dir.resolve(job.getFileName());
+            Files.move(part, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            job.completed(file, Files.size(file), HexFormat.of().formatHex(sha256.digest()), rows);
+            logger.info("Export {} terminé : {} utilisateurs, {} octets", job.getId(), rows, job.getSize());
+        } catch (CancellationException e) {
+            logger.info("Export {} annulé", job.getId());
+            job.failed(null);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            job.abort();
+            job.failed(null);
+        } catch (IOException | NoSuchAlgorithmException | RuntimeException e) {
+            logger.error("Export {} interrompu", job.getId(), e);
+            job.failed(String.valueOf(e.getMessage()));
+        } finally {
+            ticket.release();
+            deleteQuietly(part);
+        }
+    }
+
+    // Empreinte de la requête telle qu'envoyée à Elasticsearch
+    private String requestKey(BoolQuery query, boolean gzip) {
+        String json = JsonpUtils.toJsonString(query, elasticsearchClient._jsonpMapper()) + "|gzip=" + gzip;
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256")
+                    .digest(json.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private ExportJob findReusable(String key) {
+        long freshSince = System.currentTimeMillis() - reuseTtl.toMillis();
+        for (ExportJob job : jobs.values()) {
+            if (!job.getKey().equals(key) || job.isCancelled()) {
+                continue;
+            }
+            switch (job.getStatus()) {
+                case QUEUED, RUNNING -> {
+                    return job;
+                }
+                case COMPLETED -> {
+                    if (job.getEndTime() >= freshSince && Files.isRegularFile(job.getFile())) {
+                        return job;
+                    }
+                }
+                default -> {
+                }
+            }
+        }
+        return null;
+    }
+
+    public Optional<ExportJob> find(String id) {
+        return Optional.ofNullable(jobs.get(id));
+    }
+
+    // Exports du registre, du plus récent au plus ancien
+    public List<ExportJob> list() {
+        List<ExportJob> list = new ArrayList<>(jobs.values());
+        list.sort(Comparator.comparingLong(ExportJob::getCreatedAt).reversed());
+        return list;
+    }
+
+    // Retire les exports terminés depuis plus de export.users.jobs.retention, avec leur fichier
+    synchronized void purgeExpired() {
+        long expiredBefore = System.currentTimeMillis() - retention.toMillis();
+        jobs.values().removeIf(job -> {
+            if (!job.isFinished() || job.getEndTime() >= expiredBefore) {
+                return false;
+            }
+            if (job.getFile() != null) {
+                deleteQuietly(job.getFile());
+            }
+            return true;
+        });
+    }
+
+    private static void deleteQuietly(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            logger.warn("Suppression de {} impossible : {}", path, e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        purgeScheduler.shutdownNow();
+        jobs.values().forEach(ExportJob::abort);
+        executor.shutdownNow();
+    }
+}
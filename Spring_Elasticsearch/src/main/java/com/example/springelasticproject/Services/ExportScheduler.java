@@ -0,0 +1,177 @@
+package com.example.springelasticproject.Services;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Contrôle d'admission des exports (streaming et fichier) : au plus {@code export.users.scheduler.max-running}
+ * exports lisent Elasticsearch en même temps, les suivants attendent dans une file FIFO dont ils connaissent
+ * leur position, et chaque export est limité à {@code max-docs-per-second} documents par seconde. Les gros
+ * exports ne saturent plus le cluster au détriment des recherches interactives.
+ */
+@Service
+public class ExportScheduler {
+
+    private final int maxRunning;
+    // Exports en attente au-delà desquels une nouvelle demande est refusée
+    private final int maxQueued;
+    // Débit maximal de chaque export (0 : illimité)
+    private final long maxDocsPerSecond;
+
+    // Tickets en attente, dans l'ordre d'arrivée (protégé par le verrou du scheduler)
+    private final Deque<Ticket> waiting = new ArrayDeque<>();
+    private int running;
+
+    public ExportScheduler(@Value("${export.users.scheduler.max-running:2}") int maxRunning,
+                           @Value("${export.users.scheduler.max-queued:20}") int maxQueued,
+                           @Value("${export.users.scheduler.max-docs-per-second:0}") long maxDocsPerSecond) {
+        this.maxRunning = Math.max(1, maxRunning);
+        this.maxQueued = Math.max(0, maxQueued);
+        this.maxDocsPerSecond = maxDocsPerSecond;
+    }
+
+    /**
+     * Place un export dans la file ; le ticket est accordé dès qu'une place se libère, dans l'ordre d'arrivée.
+     *
+     * @throws QueueFullException si {@code max-queued} exports attendent déjà
+     */
+    public synchronized Ticket enqueue() {
+        if (running >= maxRunning && waiting.size() >= maxQueued) {
+            throw new QueueFullException(waiting.size());
+        }
+        Ticket ticket = new Ticket();
+        waiting.addLast(ticket);
+        grant();
+        return ticket;
+    }
+
+    // Accorde les places libres aux premiers tickets de la file (appelé sous le verrou)
+    private void grant() {
+        while (running < maxRunning && !waiting.isEmpty()) {
+            waiting.pollFirst().granted = true;
+            running++;
+        }
+        notifyAll();
+    }
+
+    public synchronized Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("running", running);
+        stats.put("queued", waiting.size());
+        stats.put("maxRunning", maxRunning);
+        stats.put("maxQueued", maxQueued);
+        stats.put("maxDocsPerSecond", maxDocsPerSecond);
+        return stats;
+    }
+
+    /**
+     * Place d'un export dans le scheduler : attendue avec {@link #await()}, rendue avec {@link #release()}
+     * (toujours, dans un finally). L'export appelle {@link #throttle(long)} après chaque page pour respecter
+     * le débit maximal.
+     */
+    public class Ticket {
+        // Protégés par le verrou du scheduler
+        private boolean granted;
+        private boolean cancelled;
+        private boolean released;
+
+        private final long docsPerSecond = maxDocsPerSecond;
+        private volatile long startNanos;
+
+        private Ticket() {
+        }
+
+        /**
+         * Bloque jusqu'à ce que l'export puisse démarrer.
+         *
+         * @throws CancellationException si le ticket a été annulé pendant l'attente
+         */
+        public void await() throws InterruptedException {
+            synchronized (ExportScheduler.this) {
+                try {
+                    while (!granted && !cancelled) {
+                        ExportScheduler.this.wait();
+                    }
+                } catch (InterruptedException e) {
+                    cancel();
+                    throw e;
+                }
+                if (!granted) {
+                    throw new CancellationException("Export annulé avant son démarrage");
+                }
+            }
+            startNanos = System.nanoTime();
+        }
+
+        // Position dans la file (1 : prochain à démarrer), 0 une fois démarré, -1 si annulé
+        public int position() {
+            synchronized (ExportScheduler.this) {
+                if (granted) {
+                    return 0;
+                }
+                if (cancelled) {
+                    return -1;
+                }
+                int position = 1;
+                for (Ticket ticket : waiting) {
+                    if (ticket == this) {
+                        return position;
+                    }
+                    position++;
+                }
+                return -1;
+            }
+        }
+
+        /**
+         * Ralentit l'export pour que {@code docs} documents lus depuis le démarrage ne dépassent pas le débit
+         * maximal : l'attente se fait sur le thread qui écrit, les tranches se bloquent sur leur file de pages.
+         */
+        public void throttle(long docs) throws InterruptedException {
+            if (docsPerSecond <= 0) {
+                return;
+            }
+            long ahead = docs * TimeUnit.SECONDS.toNanos(1) / docsPerSecond - (System.nanoTime() - startNanos);
+            if (ahead > 0) {
+                TimeUnit.NANOSECONDS.sleep(ahead);
+            }
+        }
+
+        // Retire de la file un ticket pas encore accordé (sans effet sur un export démarré)
+        public void cancel() {
+            synchronized (ExportScheduler.this) {
+                if (!granted && !cancelled) {
+                    cancelled = true;
+                    waiting.remove(this);
+                    ExportScheduler.this.notifyAll();
+                }
+            }
+        }
+
+        // Libère la place de l'export (ou son rang dans la file s'il n'a pas démarré)
+        public void release() {
+            synchronized (ExportScheduler.this) {
+                if (!granted) {
+                    cancel();
+                } else if (!released) {
+                    released = true;
+                    running--;
+                    grant();
+                }
+            }
+        }
+    }
+
+    public static class QueueFullException extends RuntimeException {
+        QueueFullException(int queued) {
+            super("File des exports pleine (" + queued + " en attente), réessayez plus tard");
+        }
+    }
+}
@@ -1,42 +1,121 @@
 package com.example.springelasticproject.Services;
 
+import co.elastic.clients.elasticsearch.ElasticsearchClient;
+import co.elastic.clients.elasticsearch._types.FieldValue;
+import co.elastic.clients.elasticsearch._types.SortOrder;
+import co.elastic.clients.elasticsearch._types.Time;
 import co.elastic.clients.elasticsearch._types.query_dsl.BoolQuery;
 import co.elastic.clients.elasticsearch._types.query_dsl.Operator;
+import co.elastic.clients.elasticsearch.core.SearchResponse;
+import co.elastic.clients.elasticsearch.core.search.Hit;
 import com.example.springelasticproject.model.User;
 import com.example.springelasticproject.repository.UserRepository;
+import com.fasterxml.jackson.databind.node.ObjectNode;
 import com.opencsv.CSVWriter;
-import jakarta.servlet.http.HttpServletResponse;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.data.domain.PageRequest;
-import org.springframework.data.domain.Sort;
-import org.springframework.data.elasticsearch.client.elc.NativeQuery;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.elasticsearch.core.ElasticsearchOperations;
-import org.springframework.data.elasticsearch.core.SearchHit;
-import org.springframework.data.elasticsearch.core.SearchHits;
-import org.springframework.scheduling.annotation.Async;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.BufferedWriter;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.BiConsumer;
+import java.util.function.LongConsumer;
+import java.util.zip.GZIPOutputStream;
 
 @Service
 public class ExportService {
+    private static final Logger logger = LoggerFactory.getLogger(ExportService.class);
+
+    private static final String[] HEADER = {
+            "First Name", "Last Name", "Phone Number", "Email", "Workplace",
+            "Gender", "Relationship Status", "Current City", "Current Department",
+            "Current Region", "Current Country", "Hometown City", "Hometown Country"
+    };
+
+    // Champs du document correspondant aux colonnes de l'en-tête
+    private static final List<String> COLUMNS = List.of(
+            "firstName", "lastName", "phoneNumber", "email", "workplace",
+            "gender", "relationshipStatus", "currentCity", "currentDepartment",
+            "currentRegion", "currentCountry", "hometownCity", "hometownCountry");
+
+    // Marque la fin d'une tranche dans la file des pages (comparée par identité)
+    private static final List<String[]> END_OF_SLICE = new ArrayList<>(0);
+
+    private static final int STREAM_BUFFER = 64 * 1024;
+
     private final UserRepository userRepository;
     @Autowired
     private ElasticsearchOperations elasticsearchOperations;
     @Autowired
-    public ExportService(UserRepository userRepository) {
+    private ElasticsearchClient elasticsearchClient;
+    @Autowired
+    private ExportScheduler exportScheduler;
+
+    // Threads de lecture des tranches, partagés par les exports ; plafond du nombre de tranches par export.
+    // Un jeu complet de threads par export admis en parallèle : une tranche ne reste jamais en file derrière
+    // celles d'un autre export pendant que son point-in-time expire.
+    private final ExecutorService slicePool;
+    private final int maxSlices;
+
+    // Taille des pages lues dans le point-in-time, et durée de vie du point-in-time entre deux pages
+    @Value("${export.users.page-size:5000}")
+    private int pageSize;
+
+    @Value("${export.users.pit-keep-alive:2m}")
+    private Duration pitKeepAlive;
+
+    // Vidage de la réponse (et détection d'un client déconnecté) toutes les N pages écrites
+    @Value("${export.users.flush-every-pages:1}")
+    private int flushEveryPages;
+
+    @Autowired
+    public ExportService(UserRepository userRepository,
+                         @Value("${export.users.max-slices:8}") int maxSlices,
+                         @Value("${export.users.scheduler.max-running:2}") int maxRunningExports) {
         this.userRepository = userRepository;
+        this.maxSlices = Math.max(1, maxSlices);
+        AtomicInteger threadCount = new AtomicInteger();
+        this.slicePool = Executors.newFixedThreadPool(slicePoolSize(this.maxSlices, maxRunningExports), r -> {
+            Thread thread = new Thread(r, "export-slice-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    static int slicePoolSize(int maxSlices, int maxRunningExports) {
+        return Math.max(1, maxSlices) * Math.max(1, maxRunningExports);
+    }
+
+    public ResponseEntity<StreamingResponseBody> ExportSeachDataPS(Map<String, String> attributes, int slices, boolean gzip) {
+        return csvResponse(searchQueryPS(attributes), slices, gzip);
     }
 
-    @Async
-    public void ExportSeachDataPS(Map<String, String> attributes, HttpServletResponse response) throws IOException {
+    // Requête de l'export par attributs (aussi utilisée par les exports en fichier, voir ExportJobManager)
+    public BoolQuery searchQueryPS(Map<String, String> attributes) {
         BoolQuery.Builder boolQueryBuilder = new BoolQuery.Builder();
 
         // Liste des champs à traiter automatiquement
@@ -74,77 +153,27 @@ public class ExportService {
             }
         });
 
-        // Configuration HTTP
-        response.setContentType("text/csv");
-        response.setHeader("Content-Disposition", "attachment; filename=\"search-results.csv\"");
-
-        try (CSVWriter csvWriter = new CSVWriter(response.getWriter())) {
-            String[] header = {
-                    "First Name", "Last Name", "Phone Number", "Email", "Workplace",
-                    "Gender", "Relationship Status", "Current City", "Current Department",
-                    "Current Region", "Current Country", "Hometown City", "Hometown Country"
-            };
-            csvWriter.writeNext(header);
-
-            BoolQuery query = boolQueryBuilder.build();
-            final int BATCH_SIZE = 500_000;
-            int from = 0;
-            boolean hasMoreResults = true;
-
-            while (hasMoreResults) {
-                NativeQuery searchQuery = NativeQuery.builder()
-                        .withQuery(q -> q.bool(query))
-                        .withSort(Sort.by(Sort.Direction.DESC, "_score"))
-                        .withPageable(PageRequest.of(from / BATCH_SIZE, BATCH_SIZE))
-                        .withTrackTotalHits(true)
-                        .build();
-
-                List<SearchHit<User>> hits = elasticsearchOperations.search(searchQuery, User.class).getSearchHits();
-
-                if (hits.isEmpty()) {
-                    hasMoreResults = false;
-                    break;
-                }
-
-                for (SearchHit<User> hit : hits) {
-                    User user = hit.getContent();
-                    String[] row = {
-                            nullSafe(user.getFirstName()), nullSafe(user.getLastName()),
-                            nullSafe(user.getPhoneNumber()), nullSafe(user.getEmail()),
-                            nullSafe(user.getWorkplace()), nullSafe(user.getGender()),
-                            nullSafe(user.getRelationshipStatus()), nullSafe(user.getCurrentCity()),
-                            nullSafe(user.getCurrentDepartment()), nullSafe(user.getCurrentRegion()),
-                            nullSafe(user.getCurrentCountry()), nullSafe(user.getHometownCity()),
-                            nullSafe(user.getHometownCountry())
-                    };
-                    csvWriter.writeNext(row);
-                }
-
-                if (hits.size() < BATCH_SIZE) {
-                    hasMoreResults = false;
-                } else {
-                    from += BATCH_SIZE;
-                }
-            }
-
-            System.out.println("Export terminé.");
-
-        } catch (Exception e) {
-            System.err.println("Erreur lors de l'export CSV : " + e.getMessage());
-            e.printStackTrace();
-        }
+        return boolQueryBuilder.build();
     }
 
 
-    @Async
-    public void ExportSeachDataMS(
+    public ResponseEntity<StreamingResponseBody> ExportSeachDataMS(
             String gender,
             List<String> departments,
             List<String> regions,
             List<String> cities,
             Map<String, String> additionalAttributes,
-            HttpServletResponse response) throws IOException {
+            int slices,
+            boolean gzip) {
+        return csvResponse(searchQueryMS(gender, departments, regions, cities, additionalAttributes), slices, gzip);
+    }
 
+    // Requête de l'export multi-critères (aussi utilisée par les exports en fichier, voir ExportJobManager)
+    public BoolQuery searchQueryMS(String gender,
+                                   List<String> departments,
+                                   List<String> regions,
+                                   List<String> cities,
+                                   Map<String, String> additionalAttributes) {
         BoolQuery.Builder boolQuery = new BoolQuery.Builder();
 
         // Filtre simple sur le genre
@@ -208,54 +237,291 @@ public class ExportService {
             }
         }
 
-        // Configuration de la réponse CSV
-        response.setContentType("text/csv");
-        response.setHeader("Content-Disposition", "attachment; filename=\"search-results.csv\"");
-
-        try (CSVWriter csvWriter = new CSVWriter(response.getWriter())) {
-            csvWriter.writeNext(new String[]{
-                    "First Name", "Last Name", "Phone Number", "Email", "Workplace", "Gender",
-                    "Relationship Status", "Current City", "Current Department", "Current Region",
-                    "Current Country", "Hometown City", "Hometown Country"
-            });
-
-            final int BATCH_SIZE = 500_000;
-            int page = 0;
-            BoolQuery finalQuery = boolQuery.build();
-
-            while (true) {
-                NativeQuery searchQuery = NativeQuery.builder()
-                        .withQuery(q -> q.bool(finalQuery))
-                        .withSort(Sort.by(Sort.Direction.DESC, "_score"))
-                        .withPageable(PageRequest.of(page, BATCH_SIZE))
-                        .withTrackTotalHits(true)
-                        .build();
-
-                SearchHits<User> searchHits = elasticsearchOperations.search(searchQuery, User.class);
-                List<SearchHit<User>> hits = searchHits.getSearchHits();
-                if (hits.isEmpty()) break;
-
-                for (SearchHit<User> hit : hits) {
-                    User u = hit.getContent();
-                    csvWriter.writeNext(new String[]{
-                            nullSafe(u.getFirstName()), nullSafe(u.getLastName()), nullSafe(u.getPhoneNumber()),
-                            nullSafe(u.getEmail()), nullSafe(u.getWorkplace()), nullSafe(u.getGender()),
-                            nullSafe(u.getRelationshipStatus()), nullSafe(u.getCurrentCity()),
-                            nullSafe(u.getCurrentDepartment()), nullSafe(u.getCurrentRegion()),
-                            nullSafe(u.getCurrentCountry()), nullSafe(u.getHometownCity()),
-                            nullSafe(u.getHometownCountry())
-                    });
+        return boolQuery.build();
+    }
+
+    /**
+     * Réponse CSV en streaming : le corps est écrit sur l'exécuteur des exports (voir WebConfig), pas sur le
+     * thread Tomcat de la requête. Avec {@code gzip}, le corps est compressé ({@code Content-Encoding: gzip}).
+     * La sortie est vidée toutes les {@code export.users.flush-every-pages} pages ; une écriture refusée
+     * (client déconnecté) arrête aussitôt la lecture dans Elasticsearch et ferme le point-in-time.
+     * <p>
+     * L'export prend sa place dans la file d'{@link ExportScheduler} avant que la réponse ne soit renvoyée
+     * (position dans {@code X-Export-Queue-Position}, 503 quand la file est pleine), puis le corps attend son
+     * tour avant de lire Elasticsearch. L'attente compte dans {@code export.users.timeout} ; un corps
+     * interrompu (délai dépassé) rend sa place.
+     */
+    private ResponseEntity<StreamingResponseBody> csvResponse(BoolQuery query, int slices, boolean gzip) {
+        int sliceCount = sliceCount(slices);
+        ExportScheduler.Ticket ticket;
+        try {
+            ticket = exportScheduler.enqueue();
+        } catch (ExportScheduler.QueueFullException e) {
+            logger.warn("Export refusé : {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .header(HttpHeaders.RETRY_AFTER, "60")
+                    .build();
+        }
+
+        StreamingResponseBody body = out -> {
+            long[] written = {0};
+            try {
+                ticket.await();
+                long start = System.currentTimeMillis();
+                OutputStream target = gzip ? new GZIPOutputStream(out, STREAM_BUFFER, true) : out;
+                long exported = writeCsv(query, sliceCount, target, ticket, rows -> written[0] = rows);
+                if (target instanceof GZIPOutputStream gzipStream) {
+                    gzipStream.finish();
                 }
+                logger.info("Export terminé : {} utilisateurs ({} tranche(s), {} ms)",
+                        exported, sliceCount, System.currentTimeMillis() - start);
+            } catch (ExportWriteException e) {
+                // Rien à renvoyer : la connexion est déjà fermée
+                logger.info("Export interrompu après {} lignes : client déconnecté", written[0]);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Export interrompu", e);
+            } catch (IOException | RuntimeException e) {
+                // La réponse est déjà commencée : elle est interrompue, le client reçoit un fichier tronqué
+                logger.error("Erreur lors de l'export CSV : {}", e.getMessage(), e);
+                throw e;
+            } finally {
+                ticket.release();
+            }
+        };
 
-                if (hits.size() < BATCH_SIZE) break;
-                page++;
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .contentType(new MediaType("text", "csv", StandardCharsets.UTF_8))
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"search-results.csv\"")
+                .header("X-Export-Queue-Position", String.valueOf(ticket.position()));
+        if (gzip) {
+            response.header(HttpHeaders.CONTENT_ENCODING, "gzip");
+        }
+        return response.body(body);
+    }
+
+    /**
+     * Écrit l'en-tête puis toutes les lignes de l'export dans {@code target} (sans le fermer).
+     * {@code progress} reçoit le nombre de lignes écrites après chaque page ; une exception qu'il lève
+     * (annulation) arrête l'export. Le {@code ticket}, déjà accordé, limite le débit de l'export.
+     *
+     * @return nombre d'utilisateurs exportés
+     * @throws ExportWriteException si l'écriture dans {@code target} échoue
+     */
+    public long writeCsv(BoolQuery query, int slices, OutputStream target, ExportScheduler.Ticket ticket,
+                         LongConsumer progress)
+            throws IOException, InterruptedException {
+        CSVWriter csvWriter = new CSVWriter(new BufferedWriter(
+                new OutputStreamWriter(target, StandardCharsets.UTF_8), STREAM_BUFFER));
+        csvWriter.writeNext(HEADER);
+        long[] written = {0};
+        long[] pages = {0};
+        long exported = export(query, sliceCount(slices), rows -> {
+            rows.forEach(csvWriter::writeNext);
+            written[0] += rows.size();
+            if (++pages[0] % flushEveryPages == 0) {
+                flushOrAbort(csvWriter);
             }
+            progress.accept(written[0]);
+            ticket.throttle(written[0]);
+        });
+        flushOrAbort(csvWriter);
+        return exported;
+    }
+
+    // Nombre d'utilisateurs correspondant à la requête (estimation de durée des exports en fichier)
+    public long count(BoolQuery query) throws IOException {
+        String indexName = elasticsearchOperations.getIndexCoordinatesFor(User.class).getIndexName();
+        return elasticsearchClient.count(c -> c.index(indexName)
+                .query(q -> q.constantScore(cs -> cs.filter(f -> f.bool(query))))).count();
+    }
+
+    private int sliceCount(int slices) {
+        return Math.max(1, Math.min(slices, maxSlices));
+    }
+
+    // CSVWriter garde les erreurs d'écriture pour lui : on les vérifie (avec vidage) à chaque point de contrôle
+    private static void flushOrAbort(CSVWriter csvWriter) throws ExportWriteException {
+        if (csvWriter.checkError()) {
+            throw new ExportWriteException(csvWriter.getException());
         }
     }
 
-    private String nullSafe(String value) {
-        return value != null ? value : "";
+    // Écriture de la sortie refusée : client déconnecté, ou disque plein pour un export en fichier
+    public static class ExportWriteException extends IOException {
+        ExportWriteException(IOException cause) {
+            super("Écriture de l'export impossible", cause);
+        }
+    }
+
+    /**
+     * Parcourt tous les utilisateurs correspondant à la requête dans un point-in-time (instantané de l'index,
+     * insensible aux écritures pendant l'export), page par page avec search_after trié sur _shard_doc (ordre
+     * des documents, sans score) : pas de limite max_result_window, et peu de pages en mémoire à la fois.
+     * <p>
+     * Avec plusieurs tranches, le point-in-time est découpé (slice) et chaque tranche est lue sur son propre
+     * thread ; les pages sont remises au {@code handler} sur le thread appelant, entières mais dans leur ordre
+     * d'arrivée (les tranches s'entremêlent). Une tranche attend quand deux pages par tranche sont en attente.
+     *
+     * @return nombre d'utilisateurs parcourus
+     */
+    private long export(BoolQuery query, int slices, PageHandler handler) throws IOException, InterruptedException {
+        String indexName = elasticsearchOperations.getIndexCoordinatesFor(User.class).getIndexName();
+        String pitId = elasticsearchClient.openPointInTime(o -> o.index(indexName).keepAlive(keepAlive())).id();
+        try {
+            if (slices == 1) {
+                return readSlice(query, pitId, 0, 1, handler);
+            }
+
+            return drainSlices(slicePool, slices,
+                    (slice, sink) -> readSlice(query, pitId, slice, slices, sink), handler);
+        } finally {
+            try {
+                elasticsearchClient.closePointInTime(c -> c.id(pitId));
+            } catch (Exception e) {
+                // Expire de toute façon après pitKeepAlive
+                logger.warn("Fermeture du point-in-time impossible : {}", e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Lit les {@code slices} tranches sur {@code pool} et remet leurs pages au {@code handler} sur le thread
+     * appelant. Au premier échec (lecture d'une tranche, ou {@code handler} : client déconnecté, annulation),
+     * l'export s'arrête sans attendre les autres tranches : elles sont interrompues et ne publient plus rien,
+     * leurs threads reviennent aussitôt au pool.
+     */
+    static long drainSlices(ExecutorService pool, int slices, SliceReader reader, PageHandler handler)
+            throws IOException, InterruptedException {
+        BlockingQueue<List<String[]>> pages = new ArrayBlockingQueue<>(slices * 2);
+        AtomicReference<Exception> failure = new AtomicReference<>();
+        AtomicBoolean aborted = new AtomicBoolean();
+        List<Future<?>> workers = new ArrayList<>(slices);
+        for (int i = 0; i < slices; i++) {
+            int slice = i;
+            workers.add(pool.submit(() -> {
+                try {
+                    reader.read(slice, pages::put);
+                } catch (InterruptedException e) {
+                    // Export abandonné par le thread appelant : on garde l'interruption pour le put ci-dessous
+                    Thread.currentThread().interrupt();
+                } catch (Exception e) {
+                    failure.compareAndSet(null, e);
+                } finally {
+                    // Personne ne lit plus la file après un abandon : le marqueur y resterait bloqué
+                    if (!aborted.get() && !Thread.currentThread().isInterrupted()) {
+                        try {
+                            pages.put(END_OF_SLICE);
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                        }
+                    }
+                }
+            }));
+        }
+
+        try {
+            long exported = 0;
+            int remaining = slices;
+            while (remaining > 0) {
+                List<String[]> page = pages.take();
+                if (page == END_OF_SLICE) {
+                    // Une tranche en échec arrête l'export sans attendre la fin des autres
+                    if (failure.get() != null) {
+                        break;
+                    }
+                    remaining--;
+                    continue;
+                }
+                handler.accept(page);
+                exported += page.size();
+            }
+            if (failure.get() != null) {
+                throw new IOException("Lecture d'une tranche de l'export échouée", failure.get());
+            }
+            return exported;
+        } finally {
+            aborted.set(true);
+            workers.forEach(worker -> worker.cancel(true));
+            // Débloque une tranche qui publierait malgré tout entre l'abandon et son interruption
+            pages.clear();
+        }
     }
-}
 
+    @FunctionalInterface
+    interface SliceReader {
+        long read(int slice, PageHandler sink) throws IOException, InterruptedException;
+    }
+
+    // Lit une tranche du point-in-time (toutes les données si max == 1), page par page
+    private long readSlice(BoolQuery query, String pitId, int slice, int max, PageHandler handler)
+            throws IOException, InterruptedException {
+        String currentPit = pitId;
+        List<FieldValue> searchAfter = null;
+        long exported = 0;
+        while (true) {
+            String pit = currentPit;
+            List<FieldValue> after = searchAfter;
+            SearchResponse<ObjectNode> response = elasticsearchClient.search(s -> {
+                // Contexte filtre (aucun score calculé) et _source réduit aux colonnes exportées
+                s.pit(p -> p.id(pit).keepAlive(keepAlive()))
+                        .query(q -> q.constantScore(c -> c.filter(f -> f.bool(query))))
+                        .source(src -> src.filter(f -> f.includes(COLUMNS)))
+                        .sort(so -> so.field(f -> f.field("_shard_doc").order(SortOrder.Asc)))
+                        .size(pageSize)
+                        .trackTotalHits(t -> t.enabled(false));
+                if (max > 1) {
+                    s.slice(sl -> sl.id(String.valueOf(slice)).max(max));
+                }
+                if (after != null) {
+                    s.searchAfter(after);
+                }
+                return s;
+            }, ObjectNode.class);
 
+            // L'identifiant du point-in-time peut changer d'une réponse à l'autre
+            if (response.pitId() != null) {
+                currentPit = response.pitId();
+            }
+            List<Hit<ObjectNode>> hits = response.hits().hits();
+            if (hits.isEmpty()) {
+                break;
+            }
+            List<String[]> rows = new ArrayList<>(hits.size());
+            for (Hit<ObjectNode> hit : hits) {
+                if (hit.source() != null) {
+                    rows.add(toRow(hit.source()));
+                }
+            }
+            handler.accept(rows);
+            exported += rows.size();
+            if (hits.size() < pageSize) {
+                break;
+            }
+            searchAfter = hits.get(hits.size() - 1).sort();
+        }
+        return exported;
+    }
+
+    private Time keepAlive() {
+        return Time.of(t -> t.time(pitKeepAlive.toSeconds() + "s"));
+    }
+
+    @FunctionalInterface
+    interface PageHandler {
+        void accept(List<String[]> rows) throws IOException, InterruptedException;
+    }
+
+    private static String[] toRow(ObjectNode source) {
+        String[] row = new String[COLUMNS.size()];
+        for (int i = 0; i < row.length; i++) {
+            row[i] = source.path(COLUMNS.get(i)).asText("");
+        }
+        return row;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        slicePool.shutdownNow();
+    }
+}
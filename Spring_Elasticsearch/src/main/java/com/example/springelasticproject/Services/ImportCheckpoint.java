@@ -0,0 +1,212 @@
+package com.example.springelasticproject.Services;
+
+import com.example.springelasticproject.util.CsvChunkReader;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Point de reprise d'un import CSV.
+ * Le fichier est découpé en segments (les blocs lus par CsvChunkReader). Un segment est terminé quand
+ * toutes ses lignes ont été acquittées par Elasticsearch ; la position enregistrée n'avance que sur
+ * des segments terminés et contigus, et est écrite dans {@code <fichier>.checkpoint} à chaque avancée.
+ */
+public class ImportCheckpoint {
+
+    private static final Logger logger = LoggerFactory.getLogger(ImportCheckpoint.class);
+
+    private final File csvFile;
+    private final Path checkpointFile;
+
+    // Segments en cours, dans l'ordre du fichier
+    private final Deque<Segment> segments = new ArrayDeque<>();
+
+    // Position validée : toutes les lignes avant elle sont indexées (ou rejetées)
+    private long committedOffset;
+    private long committedLine;
+    private boolean completed;
+
+    // Rejets de l'import, rendus durables avant chaque écriture du point de reprise
+    private DeadLetterWriter deadLetters;
+
+    private ImportCheckpoint(File csvFile, long committedOffset, long committedLine, boolean completed) {
+        this.csvFile = csvFile;
+        this.checkpointFile = pathFor(csvFile);
+        this.committedOffset = committedOffset;
+        this.committedLine = committedLine;
+        this.completed = completed;
+    }
+
+    public static Path pathFor(File csvFile) {
+        return csvFile.toPath().resolveSibling(csvFile.getName() + ".checkpoint");
+    }
+
+    // Nouveau point de reprise, au début du fichier (offset 0, ligne 1 = en-tête)
+    public static ImportCheckpoint start(File csvFile) {
+        return new ImportCheckpoint(csvFile, 0, 1, false);
+    }
+
+    /**
+     * Charge le point de reprise enregistré pour ce fichier.
+     *
+     * @throws IllegalStateException si aucun point de reprise n'existe ou si le fichier a changé depuis
+     */
+    public static ImportCheckpoint load(File csvFile) throws IOException {
+        Path path = pathFor(csvFile);
+        if (!Files.exists(path)) {
+            throw new IllegalStateException("Aucun point de reprise pour " + csvFile);
+        }
+
+        Properties properties = new Properties();
+        try (Reader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            properties.load(reader);
+        }
+
+        long fileSize = Long.parseLong(properties.getProperty("fileSize"));
+        if (fileSize != csvFile.length()) {
+            throw new IllegalStateException("Le fichier " + csvFile + " a changé depuis le dernier point de reprise");
+        }
+
+        return new ImportCheckpoint(csvFile,
+                Long.parseLong(properties.getProperty("offset")),
+                Long.parseLong(properties.getProperty("line")),
+                Boolean.parseBoolean(properties.getProperty("completed")));
+    }
+
+    public synchronized long getCommittedOffset() {
+        return committedOffset;
+    }
+
+    public synchronized long getCommittedLine() {
+        return committedLine;
+    }
+
+    public synchronized boolean isCompleted() {
+        return completed;
+    }
+
+    /**
+     * Associe le fichier des rejets : les lignes rejetées sont acquittées comme les autres, le point de
+     * reprise n'est donc écrit qu'une fois leurs rejets écrits sur disque.
+     */
+    public synchronized void syncWith(DeadLetterWriter deadLetters) {
+        this.deadLetters = deadLetters;
+    }
+
+    /**
+     * Enregistre un bloc lu ; à appeler dans l'ordre du fichier, avant de distribuer le bloc.
+     */
+    public synchronized Segment register(CsvChunkReader.Chunk chunk) {
+        Segment segment = new Segment(chunk.getEndOffset(), chunk.getEndLine());
+        segments.addLast(segment);
+        return segment;
+    }
+
+    // Marque l'import comme terminé : une reprise n'aura plus rien à faire
+    public synchronized void markCompleted() {
+        completed = true;
+        write();
+    }
+
+    // Fait avancer la position validée sur les segments terminés en tête de file
+    private synchronized void advance() {
+        boolean advanced = false;
+        while (!segments.isEmpty() && segments.peekFirst().isDone()) {
+            Segment segment = segments.pollFirst();
+            committedOffset = segment.endOffset;
+            committedLine = segment.endLine;
+            advanced = true;
+        }
+        if (advanced) {
+            write();
+        }
+    }
+
+    // Écriture atomique (fichier temporaire puis renommage), après celle des rejets
+    private void write() {
+        if (deadLetters != null && !deadLetters.sync()) {
+            // Position gardée en mémoire : elle sera écrite à la prochaine avancée si les rejets passent
+            return;
+        }
+        Properties properties = new Properties();
+        properties.setProperty("file", csvFile.getAbsolutePath());
+        properties.setProperty("fileSize", String.valueOf(csvFile.length()));
+        properties.setProperty("offset", String.valueOf(committedOffset));
+        properties.setProperty("line", String.valueOf(committedLine));
+        properties.setProperty("completed", String.valueOf(completed));
+        properties.setProperty("updatedAt", String.valueOf(System.currentTimeMillis()));
+
+        Path tmp = checkpointFile.resolveSibling(checkpointFile.getFileName() + ".tmp");
+        try (Writer writer = Files.newBufferedWriter(tmp, StandardCharsets.UTF_8)) {
+            properties.store(writer, "Point de reprise import CSV");
+        } catch (IOException e) {
+            logger.error("Impossible d'écrire le point de reprise {} : {}", checkpointFile, e.getMessage());
+            return;
+        }
+        try {
+            Files.move(tmp, checkpointFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            logger.error("Impossible de remplacer le point de reprise {} : {}", checkpointFile, e.getMessage());
+        }
+    }
+
+    /**
+     * Lignes d'un bloc en attente d'acquittement.
+     * Le segment est terminé une fois scellé (toutes ses lignes soumises) et toutes ses lignes acquittées.
+     */
+    public class Segment {
+        private final long endOffset;
+        private final long endLine;
+        private final AtomicInteger pending = new AtomicInteger();
+        private final AtomicBoolean done = new AtomicBoolean();
+        private volatile boolean sealed;
+
+        private Segment(long endOffset, long endLine) {
+            this.endOffset = endOffset;
+            this.endLine = endLine;
+        }
+
+        // Une ligne du segment vient d'être envoyée à Elasticsearch
+        public void submitted() {
+            pending.incrementAndGet();
+        }
+
+        // Réponse reçue pour une ligne (succès ou échec définitif)
+        public void acknowledged() {
+            if (pending.decrementAndGet() == 0 && sealed) {
+                complete();
+            }
+        }
+
+        // Toutes les lignes du segment ont été soumises
+        public void seal() {
+            sealed = true;
+            if (pending.get() == 0) {
+                complete();
+            }
+        }
+
+        private boolean isDone() {
+            return done.get();
+        }
+
+        private void complete() {
+            if (done.compareAndSet(false, true)) {
+                advance();
+            }
+        }
+    }
+}
@@ -0,0 +1,266 @@
+package com.example.springelasticproject.Services;
+
+import java.io.File;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Import suivi par {@link ImportJobManager} : état, progression et commandes (pause, annulation).
+ * Le pipeline d'import y rattache ses files et sa session bulk pour que l'état soit lisible pendant l'exécution.
+ */
+public class ImportJob {
+
+    public enum Status {
+        QUEUED, RUNNING, PAUSED, CANCELLED, COMPLETED, FAILED
+    }
+
+    private final String id;
+    private final File file;
+    // Fichier importé, ou description du flux pour un import en streaming
+    private final String source;
+    private final boolean resume;
+    // Rechargement complet dans un nouvel index, puis bascule de l'alias (voir IndexRebuilder)
+    private final boolean rebuild;
+    private final long createdAt = System.currentTimeMillis();
+
+    private volatile Status status = Status.QUEUED;
+    private volatile long startTime;
+    private volatile long endTime;
+    private volatile boolean paused;
+    private volatile boolean cancelled;
+    private volatile UserService.ImportResult result;
+
+    // Lignes lues (converties ou rejetées)
+    private final AtomicLong rowsRead = new AtomicLong();
+    // Lignes écartées ou fusionnées comme doublons
+    private final AtomicLong duplicates = new AtomicLong();
+    // Enregistrements lus mais non réécrits car identiques au document indexé (import delta des boutiques)
+    private final AtomicLong unchanged = new AtomicLong();
+
+    // Éléments du pipeline, rattachés au démarrage de l'import
+    private volatile BlockingQueue<?> lineQueue;
+    private volatile BlockingQueue<?> batchQueue;
+    private volatile UserBulkIndexer.Session bulkSession;
+    private volatile AtomicInteger failedRecords;
+    private volatile AtomicInteger totalProcessed;
+
+    public ImportJob(String id, File file, boolean resume, boolean rebuild) {
+        this.id = id;
+        this.file = file;
+        this.source = file.getAbsolutePath();
+        this.resume = resume;
+        this.rebuild = rebuild;
+    }
+
+    // Import lu depuis un flux (pas de fichier, donc pas de reprise possible)
+    public ImportJob(String id, String source) {
+        this.id = id;
+        this.file = null;
+        this.source = source;
+        this.resume = false;
+        this.rebuild = false;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    public boolean isResume() {
+        return resume;
+    }
+
+    public boolean isRebuild() {
+        return rebuild;
+    }
+
+    public long getCreatedAt() {
+        return createdAt;
+    }
+
+    public long getEndTime() {
+        return endTime;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public UserService.ImportResult getResult() {
+        return result;
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    public boolean isFinished() {
+        return status == Status.CANCELLED || status == Status.COMPLETED || status == Status.FAILED;
+    }
+
+    // Appelé par le pipeline au démarrage
+    void attach(BlockingQueue<?> lineQueue, BlockingQueue<?> batchQueue, UserBulkIndexer.Session bulkSession,
+                AtomicInteger failedRecords, AtomicInteger totalProcessed) {
+        this.lineQueue = lineQueue;
+        this.batchQueue = batchQueue;
+        this.bulkSession = bulkSession;
+        this.failedRecords = failedRecords;
+        this.totalProcessed = totalProcessed;
+    }
+
+    void started() {
+        startTime = System.currentTimeMillis();
+        status = paused ? Status.PAUSED : Status.RUNNING;
+    }
+
+    void finished(UserService.ImportResult result) {
+        this.result = result;
+        endTime = System.currentTimeMillis();
+        status = cancelled ? Status.CANCELLED : result.getError() != null ? Status.FAILED : Status.COMPLETED;
+        // Les files ne servent plus : on les libère (la session est gardée pour ses latences)
+        lineQueue = null;
+        batchQueue = null;
+    }
+
+    public void rowRead() {
+        rowsRead.incrementAndGet();
+    }
+
+    // Progression d'un import hors pipeline CSV (boutiques, voir ImportJobManager#submit(String, ImportJobManager.ImportTask))
+    public void recordsIndexed(int count) {
+        AtomicInteger processed = totalProcessed;
+        if (processed != null) {
+            processed.addAndGet(count);
+        }
+    }
+
+    public void recordsUnchanged(int count) {
+        unchanged.addAndGet(count);
+    }
+
+    public void recordFailed() {
+        AtomicInteger failed = failedRecords;
+        if (failed != null) {
+            failed.incrementAndGet();
+        }
+    }
+
+    void duplicateSuppressed() {
+        duplicates.incrementAndGet();
+    }
+
+    public long getDuplicates() {
+        return duplicates.get();
+    }
+
+    /**
+     * Point d'arrêt du pipeline : bloque tant que l'import est en pause.
+     *
+     * @throws CancellationException si l'import a été annulé
+     */
+    public void awaitRunnable() throws InterruptedException {
+        if (cancelled) {
+            throw new CancellationException("Import " + id + " annulé");
+        }
+        if (!paused) {
+            return;
+        }
+        synchronized (this) {
+            while (paused && !cancelled) {
+                wait(500);
+            }
+        }
+        if (cancelled) {
+            throw new CancellationException("Import " + id + " annulé");
+        }
+    }
+
+    public synchronized void pause() {
+        if (!isFinished()) {
+            paused = true;
+            if (status == Status.RUNNING) {
+                status = Status.PAUSED;
+            }
+        }
+    }
+
+    public synchronized void resume() {
+        paused = false;
+        if (status == Status.PAUSED) {
+            status = Status.RUNNING;
+        }
+        notifyAll();
+    }
+
+    public synchronized void cancel() {
+        if (!isFinished()) {
+            cancelled = true;
+            notifyAll();
+        }
+    }
+
+    // État courant, sérialisé tel quel par le contrôleur
+    public Map<String, Object> snapshot() {
+        Map<String, Object> snapshot = new LinkedHashMap<>();
+        snapshot.put("jobId", id);
+        snapshot.put("source", source);
+        snapshot.put("resume", resume);
+        snapshot.put("rebuild", rebuild);
+        snapshot.put("status", status);
+        snapshot.put("createdAt", createdAt);
+        snapshot.put("startTime", startTime);
+        snapshot.put("endTime", endTime);
+
+        long elapsed = (endTime > 0 ? endTime : System.currentTimeMillis()) - startTime;
+        long read = rowsRead.get();
+        snapshot.put("rowsRead", read);
+        snapshot.put("duplicatesSuppressed", duplicates.get());
+        snapshot.put("unchangedCount", unchanged.get());
+        snapshot.put("rowsPerSecond", startTime > 0 && elapsed > 0 ? (long) (read * 1000.0 / elapsed) : 0);
+
+        UserService.ImportResult finalResult = result;
+        UserBulkIndexer.Session session = bulkSession;
+        if (finalResult != null) {
+            snapshot.put("successCount", finalResult.getSuccessCount());
+            snapshot.put("failedCount", finalResult.getFailedCount());
+            snapshot.put("error", finalResult.getError());
+            snapshot.put("deadLetterFile", finalResult.getDeadLetterFile());
+        } else {
+            long success = session != null ? session.getSuccessCount()
+                    : totalProcessed != null ? totalProcessed.get() : 0;
+            long failed = (failedRecords != null ? failedRecords.get() : 0)
+                    + (session != null ? session.getFailedCount() : 0);
+            snapshot.put("successCount", success);
+            snapshot.put("failedCount", failed);
+        }
+
+        BlockingQueue<?> lines = lineQueue;
+        BlockingQueue<?> batches = batchQueue;
+        snapshot.put("lineQueueDepth", lines != null ? lines.size() : 0);
+        snapshot.put("batchQueueDepth", batches != null ? batches.size() : 0);
+
+        if (session != null) {
+            long[] p = session.getLatencies().percentiles(50, 95, 99, 100);
+            Map<String, Object> bulk = new LinkedHashMap<>();
+            bulk.put("requests", session.getLatencies().count());
+            bulk.put("pendingRequests", session.getPendingRequests());
+            bulk.put("pendingOperations", session.getPendingOperations());
+            bulk.put("retriedDocuments", session.getRetriedCount());
+            bulk.put("batchLimitBytes", session.getController().getBatchLimit());
+            bulk.put("concurrency", session.getController().getConcurrency());
+            bulk.put("latencyP50Ms", p[0]);
+            bulk.put("latencyP95Ms", p[1]);
+            bulk.put("latencyP99Ms", p[2]);
+            bulk.put("latencyMaxMs", p[3]);
+            snapshot.put("bulk", bulk);
+        }
+        return snapshot;
+    }
+}
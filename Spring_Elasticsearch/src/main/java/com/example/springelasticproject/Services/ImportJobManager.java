@@ -0,0 +1,245 @@
+package com.example.springelasticproject.Services;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * Registre des imports : chaque import reçoit un identifiant et s'exécute sur un pool dédié,
+ * ce qui permet de suivre sa progression, de le mettre en pause ou de l'annuler.
+ */
+@Service
+public class ImportJobManager {
+
+    private static final Logger logger = LoggerFactory.getLogger(ImportJobManager.class);
+
+    private final UserService userService;
+    private final ExecutorService executor;
+    // Places d'import (import.users.jobs.max-concurrent), partagées par le pool et les imports en streaming
+    private final Semaphore slots;
+    private final Map<String, ImportJob> jobs = new ConcurrentHashMap<>();
+
+    // Nombre d'imports terminés conservés dans le registre
+    @Value("${import.users.jobs.history:50}")
+    private int history;
+
+    @Autowired
+    public ImportJobManager(UserService userService,
+                            @Value("${import.users.jobs.max-concurrent:2}") int maxConcurrent) {
+        this.userService = userService;
+        this.slots = new Semaphore(maxConcurrent, true);
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(maxConcurrent, r -> {
+            Thread thread = new Thread(r, "import-job-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Soumet l'import d'un fichier ; {@code resume} reprend à partir du point de reprise du fichier.
+     */
+    public ImportJob submit(File file, boolean resume) {
+        return submit(file, resume, false);
+    }
+
+    /**
+     * Soumet l'import d'un fichier ; {@code rebuild} charge un nouvel index et bascule l'alias en fin d'import.
+     */
+    public ImportJob submit(File file, boolean resume, boolean rebuild) {
+        purgeFinished();
+
+        ImportJob job = new ImportJob(UUID.randomUUID().toString(), file, resume, rebuild);
+        jobs.put(job.getId(), job);
+        executeInSlot(() -> {
+            try {
+                userService.importCsv(file, resume, job);
+            } catch (Exception e) {
+                logger.error("Import {} interrompu", job.getId(), e);
+            }
+        });
+        logger.info("Import {} soumis pour {}", job.getId(), file);
+        return job;
+    }
+
+    // Rejoue en arrière-plan un fichier de lignes rejetées (.rejected.ndjson)
+    public ImportJob submitReplay(File deadLetterFile) {
+        purgeFinished();
+
+        ImportJob job = new ImportJob(UUID.randomUUID().toString(), "replay:" + deadLetterFile.getAbsolutePath());
+        jobs.put(job.getId(), job);
+        executeInSlot(() -> {
+            try {
+                userService.replayDeadLetters(deadLetterFile, job);
+            } catch (Exception e) {
+                logger.error("Rejeu {} interrompu", job.getId(), e);
+            }
+        });
+        logger.info("Rejeu {} soumis pour {}", job.getId(), deadLetterFile);
+        return job;
+    }
+
+    /**
+     * Soumet l'import de tous les fichiers du répertoire qui correspondent au motif glob (par nom,
+     * dans l'ordre alphabétique) : chaque fichier devient un import du registre, exécuté sur le pool
+     * partagé ({@code import.users.jobs.max-concurrent} fichiers à la fois).
+     */
+    public List<ImportJob> submitDirectory(Path directory, String glob) throws IOException {
+        List<Path> files = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, glob)) {
+            for (Path path : stream) {
+                if (Files.isRegularFile(path)) {
+                    files.add(path);
+                }
+            }
+        }
+        files.sort(Comparator.naturalOrder());
+
+        List<ImportJob> submitted = new ArrayList<>();
+        for (Path path : files) {
+            submitted.add(submit(path.toFile(), false));
+        }
+        logger.info("{} fichiers de {} ({}) soumis à l'import", submitted.size(), directory, glob);
+        return submitted;
+    }
+
+    /**
+     * Import autre que le CSV des utilisateurs (boutiques NDJSON), exécuté par le registre. La tâche
+     * signale sa progression sur le job ({@link ImportJob#rowRead()}, {@link ImportJob#recordsIndexed(int)},
+     * {@link ImportJob#recordsUnchanged(int)}, {@link ImportJob#recordFailed()}) et s'arrête sur
+     * {@link ImportJob#awaitRunnable()}.
+     */
+    @FunctionalInterface
+    public interface ImportTask {
+        void run(ImportJob job) throws Exception;
+    }
+
+    /**
+     * Soumet une tâche d'import sur le pool des imports ; elle est suivie et pilotable comme un import CSV.
+     */
+    public ImportJob submit(String source, ImportTask task) {
+        purgeFinished();
+
+        ImportJob job = new ImportJob(UUID.randomUUID().toString(), source);
+        AtomicInteger indexed = new AtomicInteger();
+        AtomicInteger failed = new AtomicInteger();
+        job.attach(null, null, null, failed, indexed);
+        jobs.put(job.getId(), job);
+        executeInSlot(() -> {
+            UserService.ImportResult result = new UserService.ImportResult();
+            result.setStartTime(System.currentTimeMillis());
+            job.started();
+            try {
+                task.run(job);
+            } catch (CancellationException e) {
+                logger.info("Import {} annulé", job.getId());
+            } catch (Exception e) {
+                logger.error("Import {} interrompu", job.getId(), e);
+                result.setError(String.valueOf(e.getMessage()));
+            }
+            result.setSuccessCount(indexed.get());
+            result.setFailedCount(failed.get());
+            result.setEndTime(System.currentTimeMillis());
+            job.finished(result);
+        });
+        logger.info("Import {} soumis pour {}", job.getId(), source);
+        return job;
+    }
+
+    /**
+     * Exécute sur le thread appelant un import lu en streaming (corps d'une requête), suivi et pilotable
+     * comme les autres. Il occupe une place d'import pendant toute sa durée : sans place libre, il est
+     * refusé immédiatement plutôt que de bloquer le thread de la requête.
+     *
+     * @return le job terminé, ou empty si les {@code import.users.jobs.max-concurrent} places sont prises
+     */
+    public Optional<ImportJob> runInline(String source, Function<ImportJob, UserService.ImportResult> importer) {
+        if (!slots.tryAcquire()) {
+            logger.warn("Import {} refusé : aucune place d'import libre", source);
+            return Optional.empty();
+        }
+        try {
+            purgeFinished();
+
+            ImportJob job = new ImportJob(UUID.randomUUID().toString(), source);
+            jobs.put(job.getId(), job);
+            importer.apply(job);
+            return Optional.of(job);
+        } finally {
+            slots.release();
+        }
+    }
+
+    public Optional<ImportJob> find(String id) {
+        return Optional.ofNullable(jobs.get(id));
+    }
+
+    // Imports du registre, du plus récent au plus ancien
+    public List<ImportJob> list() {
+        List<ImportJob> list = new ArrayList<>(jobs.values());
+        list.sort(Comparator.comparingLong(ImportJob::getCreatedAt).reversed());
+        return list;
+    }
+
+    // Tâche du pool : elle attend une place si un import en streaming en occupe une
+    private void executeInSlot(Runnable task) {
+        executor.submit(() -> {
+            try {
+                slots.acquire();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            try {
+                task.run();
+            } finally {
+                slots.release();
+            }
+        });
+    }
+
+    // Retire les imports terminés les plus anciens au-delà de la limite d'historique
+    private void purgeFinished() {
+        List<ImportJob> finished = new ArrayList<>();
+        for (ImportJob job : jobs.values()) {
+            if (job.isFinished()) {
+                finished.add(job);
+            }
+        }
+        if (finished.size() <= history) {
+            return;
+        }
+        finished.sort(Comparator.comparingLong(ImportJob::getEndTime));
+        for (int i = 0; i < finished.size() - history; i++) {
+            jobs.remove(finished.get(i).getId());
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        jobs.values().forEach(ImportJob::cancel);
+        executor.shutdownNow();
+    }
+}
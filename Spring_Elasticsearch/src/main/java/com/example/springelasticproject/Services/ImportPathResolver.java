@@ -0,0 +1,85 @@
+package com.example.springelasticproject.Services;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Chemins reçus par l'API d'import ({@code ?path=}) : ils sont résolus dans {@code import.root} (les chemins
+ * relatifs à partir de lui) et refusés s'ils en sortent, liens symboliques compris. Le serveur ne lit ainsi
+ * que les fichiers déposés pour l'import, et n'écrit ses points de reprise et rejets qu'à côté d'eux.
+ */
+@Service
+public class ImportPathResolver {
+
+    private static final String UPLOADS = "uploads";
+
+    private final Path root;
+    private final Path deadLetterDir;
+
+    public ImportPathResolver(@Value("${import.root:imports}") String root,
+                              @Value("${import.users.dead-letter.dir:#{systemProperties['java.io.tmpdir']}}") String deadLetterDir) {
+        this.root = Path.of(root).toAbsolutePath().normalize();
+        this.deadLetterDir = Path.of(deadLetterDir).toAbsolutePath().normalize();
+    }
+
+    public Path getRoot() {
+        return root;
+    }
+
+    // Fichier ou répertoire à importer, dans import.root
+    public File resolve(String path) throws IOException {
+        return resolveWithin(path, root).toFile();
+    }
+
+    /**
+     * Fichier de rejets à rejouer : à côté d'un fichier importé (import.root) ou dans
+     * {@code import.users.dead-letter.dir} ; seuls les fichiers {@code .rejected.ndjson} sont acceptés.
+     */
+    public File resolveDeadLetters(String path) throws IOException {
+        if (!path.endsWith(".rejected.ndjson")) {
+            throw new ForbiddenPathException("Fichier de rejets attendu (.rejected.ndjson) : " + path);
+        }
+        try {
+            return resolveWithin(path, root).toFile();
+        } catch (ForbiddenPathException e) {
+            return resolveWithin(path, deadLetterDir).toFile();
+        }
+    }
+
+    // Fichier où déposer un CSV reçu en multipart (dans import.root, pour pouvoir le reprendre)
+    public File newUploadFile() throws IOException {
+        Path uploads = Files.createDirectories(root.resolve(UPLOADS));
+        return Files.createTempFile(uploads, "upload", ".csv").toFile();
+    }
+
+    /**
+     * @throws ForbiddenPathException si le chemin sort de {@code base}
+     */
+    private static Path resolveWithin(String path, Path base) throws IOException {
+        Path candidate = base.resolve(path).normalize();
+        if (!candidate.startsWith(base)) {
+            throw new ForbiddenPathException("Chemin hors du répertoire autorisé : " + path);
+        }
+        // Un lien symbolique ne doit pas mener hors du répertoire
+        if (Files.exists(candidate)) {
+            Path realBase = Files.exists(base) ? base.toRealPath() : base;
+            Path real = candidate.toRealPath();
+            if (!real.startsWith(realBase)) {
+                throw new ForbiddenPathException("Chemin hors du répertoire autorisé : " + path);
+            }
+            return real;
+        }
+        return candidate;
+    }
+
+    public static class ForbiddenPathException extends RuntimeException {
+        ForbiddenPathException(String message) {
+            super(message);
+        }
+    }
+}
@@ -0,0 +1,191 @@
+package com.example.springelasticproject.Services;
+
+import co.elastic.clients.elasticsearch.ElasticsearchClient;
+import co.elastic.clients.elasticsearch._types.Time;
+import co.elastic.clients.elasticsearch.indices.update_aliases.Action;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.elasticsearch.core.ElasticsearchOperations;
+import org.springframework.data.elasticsearch.core.IndexOperations;
+import org.springframework.data.elasticsearch.core.mapping.IndexCoordinates;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Rechargement complet d'un index sans interruption (blue/green) : les documents sont écrits dans un
+ * nouvel index versionné ({@code users-v20261017153000}) en mode chargement, puis, si le nombre de
+ * documents est cohérent, l'alias de lecture (nom de l'index de l'entité) bascule atomiquement dessus
+ * et l'ancien index est supprimé dans la même opération.
+ * Les recherches continuent sur l'ancien index pendant le chargement ; les écritures unitaires faites
+ * pendant ce temps ne sont pas reportées dans le nouvel index.
+ */
+@Service
+public class IndexRebuilder {
+
+    private static final Logger logger = LoggerFactory.getLogger(IndexRebuilder.class);
+    private static final DateTimeFormatter VERSION = DateTimeFormatter.ofPattern("yyyyMMddHHmmss");
+
+    private final ElasticsearchClient elasticsearchClient;
+    private final ElasticsearchOperations elasticsearchOperations;
+    private final BulkLoadIndexSettings bulkLoadIndexSettings;
+
+    // Le nouvel index doit contenir au moins cette part des documents de l'index servi
+    @Value("${import.rebuild.min-count-ratio:0.9}")
+    private double minCountRatio;
+
+    // Alias en cours de reconstruction (une seule reconstruction à la fois par alias)
+    private final Set<String> rebuilding = new HashSet<>();
+
+    @Autowired
+    public IndexRebuilder(ElasticsearchClient elasticsearchClient, ElasticsearchOperations elasticsearchOperations,
+                          BulkLoadIndexSettings bulkLoadIndexSettings) {
+        this.elasticsearchClient = elasticsearchClient;
+        this.elasticsearchOperations = elasticsearchOperations;
+        this.bulkLoadIndexSettings = bulkLoadIndexSettings;
+    }
+
+    /**
+     * Crée le nouvel index de l'entité (même mapping, réglages de l'index servi) en mode chargement.
+     * Le {@link Rebuild} retourné doit être fermé : sans {@link Rebuild#commit(long)} réussi, l'index
+     * en construction est supprimé et l'alias n'est pas touché.
+     *
+     * @throws IllegalStateException si une reconstruction du même index est déjà en cours
+     */
+    public Rebuild begin(Class<?> entityClass) throws IOException {
+        String alias = elasticsearchOperations.getIndexCoordinatesFor(entityClass).getIndexName();
+        synchronized (rebuilding) {
+            if (!rebuilding.add(alias)) {
+                throw new IllegalStateException("Reconstruction de l'index " + alias + " déjà en cours");
+            }
+        }
+
+        String target = alias + "-v" + LocalDateTime.now().format(VERSION);
+        try {
+            IndexOperations entityOps = elasticsearchOperations.indexOps(entityClass);
+            elasticsearchOperations.indexOps(IndexCoordinates.of(target))
+                    .create(entityOps.createSettings(), entityOps.createMapping());
+
+            // Réglages définitifs : ceux de l'index servi actuellement, sinon ceux du nouvel index
+            boolean live = elasticsearchClient.indices().exists(e -> e.index(alias)).value();
+            BulkLoadIndexSettings.Holder settings = bulkLoadIndexSettings.readSettings(live ? alias : target);
+            elasticsearchClient.indices().putSettings(p -> p
+                    .index(target)
+                    .settings(s -> s
+                            .refreshInterval(Time.of(t -> t.time("-1")))
+                            .numberOfReplicas("0")));
+            logger.info("Reconstruction de {} dans {} (refresh_interval=-1, number_of_replicas=0)", alias, target);
+            return new Rebuild(alias, target, settings);
+        } catch (IOException | RuntimeException e) {
+            deleteQuietly(target);
+            release(alias);
+            throw e;
+        }
+    }
+
+    // Index réels derrière l'alias (ou l'index qui porte encore ce nom avant la première reconstruction)
+    private List<String> liveIndices(String alias) throws IOException {
+        if (elasticsearchClient.indices().existsAlias(e -> e.name(alias)).value()) {
+            return new ArrayList<>(elasticsearchClient.indices().getAlias(g -> g.name(alias)).result().keySet());
+        }
+        if (elasticsearchClient.indices().exists(e -> e.index(alias)).value()) {
+            return List.of(alias);
+        }
+        return List.of();
+    }
+
+    private void deleteQuietly(String index) {
+        try {
+            elasticsearchClient.indices().delete(d -> d.index(index).ignoreUnavailable(true));
+        } catch (Exception e) {
+            logger.error("Suppression de l'index {} impossible : {}", index, e.getMessage());
+        }
+    }
+
+    private void release(String alias) {
+        synchronized (rebuilding) {
+            rebuilding.remove(alias);
+        }
+    }
+
+    /**
+     * Reconstruction en cours : les documents doivent être écrits dans {@link #getIndexName()}.
+     */
+    public class Rebuild implements AutoCloseable {
+        private final String alias;
+        private final String indexName;
+        // Réglages définitifs (null : valeur par défaut du cluster)
+        private final BulkLoadIndexSettings.Holder settings;
+        private boolean committed;
+        private boolean closed;
+
+        private Rebuild(String alias, String indexName, BulkLoadIndexSettings.Holder settings) {
+            this.alias = alias;
+            this.indexName = indexName;
+            this.settings = settings;
+        }
+
+        public String getIndexName() {
+            return indexName;
+        }
+
+        /**
+         * Restaure les réglages du nouvel index, vérifie son nombre de documents puis bascule l'alias
+         * et supprime l'ancien index (une seule requête _aliases, donc atomique pour les recherches).
+         *
+         * @param expectedCount nombre exact de documents attendus, ou -1 pour ne vérifier que le ratio
+         *                      par rapport à l'index servi
+         * @throws IllegalStateException si le nombre de documents est incohérent (l'alias n'est pas modifié)
+         */
+        public void commit(long expectedCount) throws IOException {
+            elasticsearchClient.indices().putSettings(p -> p
+                    .index(indexName)
+                    .settings(BulkLoadIndexSettings.restoredSettings(settings)));
+            elasticsearchClient.indices().refresh(r -> r.index(indexName));
+
+            long count = elasticsearchClient.count(c -> c.index(indexName)).count();
+            if (expectedCount >= 0 && count != expectedCount) {
+                throw new IllegalStateException("Index " + indexName + " : " + count + " documents, "
+                        + expectedCount + " attendus");
+            }
+            List<String> previous = liveIndices(alias);
+            long liveCount = previous.isEmpty() ? 0 : elasticsearchClient.count(c -> c.index(alias)).count();
+            if (count == 0 || count < liveCount * minCountRatio) {
+                throw new IllegalStateException("Index " + indexName + " : " + count + " documents contre "
+                        + liveCount + " dans " + alias + ", bascule annulée");
+            }
+
+            List<Action> actions = new ArrayList<>();
+            actions.add(Action.of(a -> a.add(add -> add.index(indexName).alias(alias))));
+            for (String old : previous) {
+                actions.add(Action.of(a -> a.removeIndex(r -> r.index(old))));
+            }
+            elasticsearchClient.indices().updateAliases(u -> u.actions(actions));
+            committed = true;
+            logger.info("Alias {} basculé sur {} ({} documents), ancien(s) index supprimé(s) : {}",
+                    alias, indexName, count, previous);
+        }
+
+        // Sans bascule réussie, l'index en construction est supprimé
+        @Override
+        public void close() {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            if (!committed) {
+                logger.warn("Reconstruction de {} abandonnée, suppression de {}", alias, indexName);
+                deleteQuietly(indexName);
+            }
+            release(alias);
+        }
+    }
+}
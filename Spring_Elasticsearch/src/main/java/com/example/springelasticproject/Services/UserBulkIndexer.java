@@ -0,0 +1,455 @@
+package com.example.springelasticproject.Services;
+
+import co.elastic.clients.elasticsearch.ElasticsearchClient;
+import co.elastic.clients.elasticsearch._helpers.bulk.BulkIngester;
+import co.elastic.clients.elasticsearch._helpers.bulk.BulkListener;
+import co.elastic.clients.elasticsearch.core.BulkRequest;
+import co.elastic.clients.elasticsearch.core.BulkResponse;
+import co.elastic.clients.elasticsearch.core.bulk.BulkOperation;
+import co.elastic.clients.elasticsearch.core.bulk.BulkResponseItem;
+import com.example.springelasticproject.model.User;
+import com.example.springelasticproject.util.AdaptiveBatchController;
+import com.example.springelasticproject.util.LatencyWindow;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.elasticsearch.core.ElasticsearchOperations;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Indexation des utilisateurs via l'API Bulk d'Elasticsearch (BulkIngester du client Java).
+ * Les documents sont envoyés directement au cluster, sans passer par la conversion Spring Data.
+ * La taille des requêtes et le nombre de requêtes en vol suivent un {@link AdaptiveBatchController} ;
+ * les documents rejetés pour saturation (429) sont renvoyés seuls, après un délai exponentiel.
+ */
+@Service
+public class UserBulkIndexer {
+
+    private static final Logger logger = LoggerFactory.getLogger(UserBulkIndexer.class);
+
+    private final ElasticsearchClient elasticsearchClient;
+    private final ElasticsearchOperations elasticsearchOperations;
+
+    // Relances différées des documents rejetés
+    private final ScheduledExecutorService retryScheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "bulk-retry");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    // Nombre maximal de requêtes bulk envoyées en parallèle
+    @Value("${import.users.bulk.max-concurrent-requests:4}")
+    private int maxConcurrentRequests;
+
+    // Flush dès que ce nombre d'opérations est atteint
+    @Value("${import.users.bulk.max-operations:10000}")
+    private int maxOperations;
+
+    // Taille initiale des requêtes (en Mo), ajustée ensuite entre min-size-mb et adaptive.max-size-mb
+    @Value("${import.users.bulk.max-size-mb:10}")
+    private long maxSizeMb;
+
+    // Flush périodique pour ne pas laisser de documents en attente
+    @Value("${import.users.bulk.flush-interval-seconds:5}")
+    private long flushIntervalSeconds;
+
+    // Adaptation de la taille et de la concurrence à la latence observée et aux rejets du cluster
+    @Value("${import.users.bulk.adaptive.enabled:true}")
+    private boolean adaptive;
+
+    @Value("${import.users.bulk.adaptive.target-latency-ms:1000}")
+    private long targetLatencyMs;
+
+    @Value("${import.users.bulk.adaptive.min-size-mb:1}")
+    private long minSizeMb;
+
+    @Value("${import.users.bulk.adaptive.max-size-mb:40}")
+    private long adaptiveMaxSizeMb;
+
+    // Relances d'un document rejeté (429) avant de le compter en échec
+    @Value("${import.users.bulk.max-retries:5}")
+    private int maxRetries;
+
+    @Value("${import.users.bulk.backoff-initial-ms:200}")
+    private long backoffInitialMs;
+
+    @Value("${import.users.bulk.backoff-max-ms:30000}")
+    private long backoffMaxMs;
+
+    @Autowired
+    public UserBulkIndexer(ElasticsearchClient elasticsearchClient, ElasticsearchOperations elasticsearchOperations) {
+        this.elasticsearchClient = elasticsearchClient;
+        this.elasticsearchOperations = elasticsearchOperations;
+    }
+
+    /**
+     * Ouvre une session d'indexation sur l'index des utilisateurs.
+     * La session doit être fermée pour envoyer les derniers documents et attendre les réponses.
+     */
+    public Session open() {
+        return open(null);
+    }
+
+    // Session dont les documents en échec définitif sont écrits dans le fichier de rejets (si non null)
+    public Session open(DeadLetterWriter deadLetters) {
+        return open(deadLetters, elasticsearchOperations.getIndexCoordinatesFor(User.class).getIndexName());
+    }
+
+    // Session écrivant dans un index donné (index en construction d'un rechargement complet)
+    public Session open(DeadLetterWriter deadLetters, String indexName) {
+        return new Session(indexName, deadLetters);
+    }
+
+    /**
+     * Contrôleur de lots avec la configuration d'adaptation et de backoff des imports.
+     * L'unité des tailles est celle de l'appelant (octets pour une session, documents pour saveAll).
+     */
+    public AdaptiveBatchController newController(long initialBatch, long minBatch, long maxBatch,
+                                                 int maxConcurrency) {
+        if (!adaptive) {
+            return AdaptiveBatchController.fixed(initialBatch, maxConcurrency, backoffInitialMs, backoffMaxMs);
+        }
+        return new AdaptiveBatchController(initialBatch, minBatch, maxBatch, Math.max(1, maxConcurrency / 2),
+                maxConcurrency, targetLatencyMs, backoffInitialMs, backoffMaxMs);
+    }
+
+    public int getMaxRetries() {
+        return maxRetries;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        retryScheduler.shutdownNow();
+    }
+
+    // Contexte d'une opération : ligne source (0 si inconnue), segment de point de reprise (ou null),
+    // numéro de tentative et type d'opération (remplacement ou fusion)
+    private static final class Tracked {
+        private final long line;
+        private final ImportCheckpoint.Segment segment;
+        private final int attempt;
+        private final boolean merge;
+
+        Tracked(long line, ImportCheckpoint.Segment segment, int attempt, boolean merge) {
+            this.line = line;
+            this.segment = segment;
+            this.attempt = attempt;
+            this.merge = merge;
+        }
+    }
+
+    /**
+     * Session d'indexation : un BulkIngester et ses compteurs.
+     * Le contexte associé à chaque opération porte le segment de point de reprise de la ligne (ou null),
+     * acquitté dès que la réponse définitive du cluster pour ce document est connue (après ses relances).
+     */
+    public class Session implements AutoCloseable {
+        private final String indexName;
+        private final DeadLetterWriter deadLetters;
+        private final BulkIngester<Tracked> ingester;
+        private final AdaptiveBatchController controller;
+        private final AtomicLong successCount = new AtomicLong();
+        private final AtomicLong failedCount = new AtomicLong();
+        private final AtomicLong createdCount = new AtomicLong();
+        private final AtomicLong updatedCount = new AtomicLong();
+        private final AtomicLong retriedCount = new AtomicLong();
+        // Relances programmées et pas encore renvoyées
+        private final AtomicInteger pendingRetries = new AtomicInteger();
+        // Latence des dernières requêtes bulk (envoi -> réponse)
+        private final LatencyWindow latencies = new LatencyWindow(1024);
+        private final Map<Long, Long> requestStarts = new ConcurrentHashMap<>();
+        private volatile boolean closed;
+
+        private Session(String indexName, DeadLetterWriter deadLetters) {
+            this.indexName = indexName;
+            this.deadLetters = deadLetters;
+            this.controller = newController(maxSizeMb * 1024 * 1024, minSizeMb * 1024 * 1024,
+                    adaptiveMaxSizeMb * 1024 * 1024, maxConcurrentRequests);
+            // Les limites du BulkIngester sont figées à la construction : le flush par taille est fait
+            // par add() selon la cible courante du contrôleur
+            this.ingester = BulkIngester.of(b -> b
+                    .client(elasticsearchClient)
+                    .maxConcurrentRequests(maxConcurrentRequests)
+                    .maxOperations(maxOperations)
+                    .maxSize(-1)
+                    .flushInterval(flushIntervalSeconds, TimeUnit.SECONDS)
+                    .listener(new FailureAwareListener()));
+        }
+
+        // Ajoute un utilisateur ; bloque tant que le contrôleur n'autorise pas de requête supplémentaire
+        public void add(User user) throws InterruptedException {
+            add(user, 0, null);
+        }
+
+        // line : ligne source du document, reportée dans le fichier de rejets
+        public void add(User user, long line, ImportCheckpoint.Segment segment) throws InterruptedException {
+            if (segment != null) {
+                segment.submitted();
+            }
+            submit(user, new Tracked(line, segment, 0, false));
+        }
+
+        /**
+         * Fusionne l'utilisateur dans le document existant (mise à jour partielle, créé s'il n'existe pas) :
+         * seuls les champs non nuls remplacent ceux du document.
+         */
+        public void merge(User user, long line, ImportCheckpoint.Segment segment) throws InterruptedException {
+            if (segment != null) {
+                segment.submitted();
+            }
+            submit(user, new Tracked(line, segment, 0, true));
+        }
+
+        private void submit(User user, Tracked tracked) throws InterruptedException {
+            controller.awaitCapacity();
+            String id = String.valueOf(user.getIdS());
+            if (tracked.merge) {
+                // Le mapper JSON du client n'écrit pas les champs nuls : ils ne sont pas effacés
+                ingester.add(op -> op.update(upd -> upd
+                        .index(indexName)
+                        .id(id)
+                        .action(a -> a.doc(user).docAsUpsert(true))), tracked);
+            } else {
+                ingester.add(op -> op.index(idx -> idx
+                        .index(indexName)
+                        .id(id)
+                        .document(user)), tracked);
+            }
+            if (ingester.pendingOperationsSize() >= controller.getBatchLimit()) {
+                ingester.flush();
+            }
+        }
+
+        public String getIndexName() {
+            return indexName;
+        }
+
+        public long getSuccessCount() {
+            return successCount.get();
+        }
+
+        public long getFailedCount() {
+            return failedCount.get();
+        }
+
+        // Documents nouvellement créés dans l'index
+        public long getCreatedCount() {
+            return createdCount.get();
+        }
+
+        // Documents existants remplacés (même identifiant)
+        public long getUpdatedCount() {
+            return updatedCount.get();
+        }
+
+        // Documents renvoyés après un rejet du cluster
+        public long getRetriedCount() {
+            return retriedCount.get();
+        }
+
+        public AdaptiveBatchController getController() {
+            return controller;
+        }
+
+        public LatencyWindow getLatencies() {
+            return latencies;
+        }
+
+        // Opérations en attente d'envoi dans le BulkIngester
+        public int getPendingOperations() {
+            return ingester.pendingOperations();
+        }
+
+        // Requêtes bulk envoyées et sans réponse
+        public int getPendingRequests() {
+            return ingester.pendingRequests();
+        }
+
+        /*
+         * Envoie les opérations restantes et attend la fin des requêtes en vol et des relances programmées
+         * (une réponse peut programmer des relances tant qu'une requête est en vol).
+         */
+        @Override
+        public void close() {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            try {
+                while (pendingRetries.get() > 0 || controller.getInFlight() > 0
+                        || ingester.pendingOperations() > 0) {
+                    ingester.flush();
+                    Thread.sleep(50);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            ingester.close();
+        }
+
+        // Échec définitif d'un document : écrit dans le fichier de rejets, puis acquitté
+        private void rejected(Tracked tracked, User user, String reason) {
+            if (deadLetters != null) {
+                deadLetters.reject(tracked.line, reason, user);
+            }
+            acknowledge(tracked);
+        }
+
+        private void acknowledge(Tracked tracked) {
+            if (tracked.segment != null) {
+                tracked.segment.acknowledged();
+            }
+        }
+
+        // Renvoie des documents rejetés après le délai de backoff, sans le reste de leur requête
+        private void scheduleRetry(List<User> users, List<Tracked> contexts, int attempt) {
+            long delay = controller.backoffMillis(attempt);
+            pendingRetries.incrementAndGet();
+            retriedCount.addAndGet(users.size());
+            logger.warn("{} documents rejetés par le cluster, tentative {} dans {} ms", users.size(), attempt, delay);
+            retryScheduler.schedule(() -> {
+                int sent = 0;
+                try {
+                    for (; sent < users.size(); sent++) {
+                        Tracked tracked = contexts.get(sent);
+                        submit(users.get(sent), new Tracked(tracked.line, tracked.segment, attempt, tracked.merge));
+                    }
+                } catch (Exception e) {
+                    if (e instanceof InterruptedException) {
+                        Thread.currentThread().interrupt();
+                    }
+                    // Documents non renvoyés : comptés en échec pour ne pas bloquer le point de reprise
+                    failedCount.addAndGet(users.size() - sent);
+                    logger.error("Échec du renvoi de {} documents : {}", users.size() - sent, e.getMessage());
+                    for (int i = sent; i < contexts.size(); i++) {
+                        rejected(contexts.get(i), users.get(i), "Renvoi impossible : " + e.getMessage());
+                    }
+                } finally {
+                    pendingRetries.decrementAndGet();
+                }
+            }, delay, TimeUnit.MILLISECONDS);
+        }
+
+        // Comptabilise le résultat de chaque document : seuls les documents rejetés pour saturation sont renvoyés
+        private class FailureAwareListener implements BulkListener<Tracked> {
+
+            @Override
+            public void beforeBulk(long executionId, BulkRequest request, List<Tracked> contexts) {
+                controller.started();
+                requestStarts.put(executionId, System.nanoTime());
+            }
+
+            @Override
+            public void afterBulk(long executionId, BulkRequest request, List<Tracked> contexts,
+                                  BulkResponse response) {
+                long latency = recordLatency(executionId);
+                List<BulkResponseItem> items = response.items();
+                int failed = 0;
+                int created = 0;
+                List<User> retryUsers = new ArrayList<>();
+                List<Tracked> retryContexts = new ArrayList<>();
+                int nextAttempt = 1;
+                for (int i = 0; i < items.size(); i++) {
+                    BulkResponseItem item = items.get(i);
+                    Tracked tracked = contexts.get(i);
+                    if (item.error() != null) {
+                        if (AdaptiveBatchController.isRejection(item.status(), item.error().type())
+                                && tracked.attempt < maxRetries) {
+                            // Rejet pour saturation : le document sera renvoyé, son segment reste en attente
+                            retryUsers.add(userAt(request, i));
+                            retryContexts.add(tracked);
+                            nextAttempt = Math.max(nextAttempt, tracked.attempt + 1);
+                            continue;
+                        }
+                        failed++;
+                        User user = userAt(request, i);
+                        logger.warn("Échec indexation userId={} : {} - {}",
+                                user.getUserId(), item.error().type(), item.error().reason());
+                        rejected(tracked, user, item.error().type() + " : " + item.error().reason());
+                        continue;
+                    } else if ("created".equals(item.result())) {
+                        created++;
+                    }
+                    acknowledge(tracked);
+                }
+                int rejected = retryUsers.size();
+                int indexed = items.size() - rejected - failed;
+                failedCount.addAndGet(failed);
+                createdCount.addAndGet(created);
+                updatedCount.addAndGet(indexed - created);
+                long total = successCount.addAndGet(indexed);
+
+                if (rejected > 0) {
+                    controller.onRejected();
+                    scheduleRetry(retryUsers, retryContexts, nextAttempt);
+                } else {
+                    controller.onSuccess(latency);
+                }
+                // Après la programmation des relances, pour que close() ne conclue pas entre les deux
+                controller.finished();
+
+                logger.info("Bulk #{} : {} documents indexés, {} échecs, {} rejetés, {} ms (total: {}, "
+                                + "lot cible: {} Ko, concurrence: {})",
+                        executionId, indexed, failed, rejected, response.took(), total,
+                        controller.getBatchLimit() / 1024, controller.getConcurrency());
+            }
+
+            @Override
+            public void afterBulk(long executionId, BulkRequest request, List<Tracked> contexts,
+                                  Throwable failure) {
+                recordLatency(executionId);
+                int attempt = 0;
+                for (Tracked tracked : contexts) {
+                    attempt = Math.max(attempt, tracked.attempt);
+                }
+                if (AdaptiveBatchController.isRejection(failure) && attempt < maxRetries) {
+                    // Requête entière rejetée (429) : tous ses documents sont renvoyés
+                    controller.onRejected();
+                    List<User> users = new ArrayList<>(contexts.size());
+                    for (int i = 0; i < contexts.size(); i++) {
+                        users.add(userAt(request, i));
+                    }
+                    scheduleRetry(users, contexts, attempt + 1);
+                    controller.finished();
+                    return;
+                }
+
+                failedCount.addAndGet(contexts.size());
+                logger.error("Échec de la requête bulk #{} ({} documents) : {}",
+                        executionId, contexts.size(), failure.getMessage());
+                for (int i = 0; i < contexts.size(); i++) {
+                    rejected(contexts.get(i), userAt(request, i), "Requête bulk en échec : " + failure.getMessage());
+                }
+                controller.finished();
+            }
+
+            private long recordLatency(long executionId) {
+                Long start = requestStarts.remove(executionId);
+                if (start == null) {
+                    return 0;
+                }
+                long latency = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+                latencies.record(latency);
+                return latency;
+            }
+
+
+            private User userAt(BulkRequest request, int index) {
+                BulkOperation operation = request.operations().get(index);
+                return (User) (operation.isIndex() ? operation.index().document() : operation.update().action().doc());
+            }
+        }
+    }
+}
@@ -3,8 +3,17 @@ package com.example.springelasticproject.Services;
 import co.elastic.clients.elasticsearch._types.query_dsl.*;
 import com.example.springelasticproject.model.User;
 import com.example.springelasticproject.repository.UserRepository;
-import com.opencsv.CSVReader;
+import com.example.springelasticproject.util.AdaptiveBatchController;
+import com.example.springelasticproject.util.CompressedInput;
+import com.example.springelasticproject.util.CsvChunkReader;
+import com.example.springelasticproject.util.CsvRangeSplitter;
+import com.example.springelasticproject.util.ThroughputLimiter;
+import com.example.springelasticproject.util.UserCsvTokenizer;
+import com.example.springelasticproject.util.UserIdHasher;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.*;
 import org.springframework.data.elasticsearch.client.elc.NativeQuery;
 import org.springframework.data.elasticsearch.core.ElasticsearchOperations;
@@ -12,15 +21,19 @@ import org.springframework.data.elasticsearch.core.SearchHit;
 import org.springframework.data.elasticsearch.core.SearchHits;
 import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Service;
-import java.io.BufferedReader;
 import java.io.File;
-import java.io.FileReader;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
 import java.util.*;
 import java.util.concurrent.CompletableFuture;
 import java.util.stream.Collectors;
 import java.util.concurrent.*;
 import java.util.concurrent.atomic.*;
-import org.apache.commons.lang3.StringUtils;
+import java.util.function.Supplier;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -33,11 +46,89 @@ public class UserService {
     @Autowired
     private ElasticsearchOperations elasticsearchOperations;
 
+    @Autowired
+    private UserBulkIndexer userBulkIndexer;
+
+    @Autowired
+    private BulkLoadIndexSettings bulkLoadIndexSettings;
+
+    @Autowired
+    private IndexRebuilder indexRebuilder;
+
+    @Autowired
+    private DuplicateFilter duplicateFilter;
+
+    // Threads de conversion par import en mode SEQUENTIAL (parse-workers en mode PARALLEL_RANGES)
+    private static final int SEQUENTIAL_CONVERSION_THREADS = 4;
+    // Threads de persistance par import en mode REPOSITORY (aucun en mode BULK_INGESTER)
+    private static final int PERSISTENCE_THREADS = 3;
+
+    // Threads de conversion et de persistance partagés par tous les imports, de taille fixe :
+    // les workers d'un import au plus, pour chacun des imports simultanés du registre (voir initPools)
+    private ExecutorService conversionPool;
+    private ExecutorService persistencePool;
+
+    // Mode de persistance des imports CSV : BULK_INGESTER (API Bulk) ou REPOSITORY (saveAll Spring Data)
+    @Value("${import.users.persistence-mode:BULK_INGESTER}")
+    private PersistenceMode persistenceMode;
+
+    // Mode de lecture du fichier : SEQUENTIAL ou PARALLEL_RANGES (voir CsvRangeSplitter)
+    @Value("${import.users.parse-mode:SEQUENTIAL}")
+    private ParseMode parseMode;
+
+    // Stratégie d'identifiant des utilisateurs importés : HASH (stable, ré-import idempotent) ou RANDOM
+    @Value("${import.users.id-strategy:HASH}")
+    private IdStrategy idStrategy;
+
+    // Nombre de threads de parsing en mode PARALLEL_RANGES
+    @Value("${import.users.parse-workers:#{T(java.lang.Runtime).getRuntime().availableProcessors()}}")
+    private int parseWorkers;
+
+    // Nombre d'imports simultanés (voir ImportJobManager), pour dimensionner les pools partagés
+    @Value("${import.users.jobs.max-concurrent:2}")
+    private int maxConcurrentImports;
+
+    // Mode chargement massif : refresh et réplicas désactivés pendant l'import (voir BulkLoadIndexSettings)
+    @Value("${import.users.bulk-load:false}")
+    private boolean bulkLoad;
+
+    // Point de reprise <fichier>.checkpoint (mode SEQUENTIAL + BULK_INGESTER uniquement)
+    @Value("${import.users.checkpoint.enabled:true}")
+    private boolean checkpointEnabled;
+
+    // Lignes rejetées écrites dans <fichier>.rejected.ndjson (ou <dir>/<jobId>.rejected.ndjson sans fichier source)
+    @Value("${import.users.dead-letter.enabled:true}")
+    private boolean deadLetterEnabled;
+
+    @Value("${import.users.dead-letter.dir:#{systemProperties['java.io.tmpdir']}}")
+    private File deadLetterDir;
+
+    // Débit global de tous les imports d'utilisateurs (0 : illimité), pour préserver les recherches
+    @Value("${import.throughput.docs-per-second:0}")
+    private double docsPerSecond;
+
+    @Value("${import.throughput.bytes-per-second:0}")
+    private double bytesPerSecond;
+
+    private ThroughputLimiter throughputLimiter;
+
     @Autowired
     public UserService(UserRepository userRepository) {
         this.userRepository = userRepository;
     }
 
+    @PostConstruct
+    void initThroughputLimiter() {
+        throughputLimiter = new ThroughputLimiter(docsPerSecond, bytesPerSecond);
+    }
+
+    @PostConstruct
+    void initPools() {
+        int conversionThreads = Math.max(parseWorkers, SEQUENTIAL_CONVERSION_THREADS);
+        conversionPool = Executors.newFixedThreadPool(maxConcurrentImports * conversionThreads, namedThreads("import-convert"));
+        persistencePool = Executors.newFixedThreadPool(maxConcurrentImports * PERSISTENCE_THREADS, namedThreads("import-persist"));
+    }
+
     // CRUD operations
 
     // Créer ou mettre à jour un utilisateur
@@ -1624,92 +1715,263 @@ public class UserService {
         }
     }
 
-    // Méthode pour convertir une ligne CSV en objet User
-    @Async
-    public CompletableFuture<ImportResult> importCsv(File file) {
+    /**
+     * Import suivi par un {@link ImportJob} (progression, pause, annulation).
+     * Avec {@code resume}, l'import reprend à partir du point de reprise enregistré à côté du fichier :
+     * les lignes déjà acquittées par Elasticsearch ne sont ni relues ni parsées.
+     */
+    public ImportResult importCsv(File file, boolean resume, ImportJob job) {
+        return track(job, () -> runImport(file, null, resume, job));
+    }
+
+    /**
+     * Import lu directement depuis un flux (corps d'une requête HTTP) : le parsing avance au rythme
+     * de la réception, sans copie dans un fichier temporaire. Mode SEQUENTIAL, sans point de reprise.
+     */
+    public ImportResult importCsvStream(InputStream in, ImportJob job) {
+        return track(job, () -> runImport(null, in, false, job));
+    }
+
+    /**
+     * Rejoue un fichier de lignes rejetées ({@code .rejected.ndjson}) : seules ces lignes sont réimportées.
+     * Les rejets du rejeu sont écrits dans un nouveau fichier, l'original n'est pas modifié.
+     */
+    public ImportResult replayDeadLetters(File deadLetterFile, ImportJob job) {
+        return track(job, () -> {
+            try (InputStream in = DeadLetterWriter.openReplay(deadLetterFile)) {
+                return runImport(null, in, false, job);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
+    private ImportResult track(ImportJob job, Supplier<ImportResult> importer) {
+        job.started();
+        ImportResult result = null;
+        try {
+            result = importer.get();
+        } finally {
+            if (result == null) {
+                result = new ImportResult();
+                result.setError("Import interrompu");
+            }
+            job.finished(result);
+        }
+        return result;
+    }
+
+    private ImportResult runImport(File file, InputStream upload, boolean resume, ImportJob job) {
         // Définition du logger
         Logger logger = LoggerFactory.getLogger(getClass());
 
         ImportResult result = new ImportResult();
         result.setStartTime(System.currentTimeMillis());
 
-        // Création de pools d'exécution séparés pour les différentes tâches
-        ExecutorService conversionExecutor = Executors.newFixedThreadPool(4); // Pour la conversion des lignes
-        ExecutorService persistenceExecutor = Executors.newFixedThreadPool(3); // Pour la persistance des données
+        // Fichier gzip / zstd : décompressé en flux, sur son propre thread (voir CompressedInput)
+        CompressedInput.Format compression = CompressedInput.Format.NONE;
+        if (file != null) {
+            try {
+                compression = CompressedInput.detect(file);
+            } catch (IOException e) {
+                logger.error("Lecture impossible de {} : {}", file, e.getMessage());
+                result.setError(e.getMessage());
+                result.setEndTime(System.currentTimeMillis());
+                return result;
+            }
+        }
+        boolean compressed = compression != CompressedInput.Format.NONE;
 
-        try (BufferedReader br = new BufferedReader(new FileReader(file), 16384); // Buffer plus large
-             CSVReader reader = new CSVReader(br)) {
+        // En mode PARALLEL_RANGES, chaque thread de conversion parse sa propre plage du fichier
+        // (impossible sur un fichier compressé, qui ne se découpe pas en plages d'octets : lecture séquentielle)
+        boolean parallelRanges = upload == null && !compressed && parseMode == ParseMode.PARALLEL_RANGES;
+        if (compressed) {
+            logger.info("Fichier {} compressé ({}), décompression en flux", file, compression);
+        }
+        int conversionThreads = parallelRanges ? parseWorkers : SEQUENTIAL_CONVERSION_THREADS;
 
-            String[] headers = reader.readNext(); // Lire l'en-tête
+        // La position validée suppose une lecture dans l'ordre du fichier et des acquittements par document
+        // (pas en rechargement complet : l'index en construction est supprimé si l'import s'interrompt)
+        boolean checkpointed = upload == null && !parallelRanges && persistenceMode == PersistenceMode.BULK_INGESTER
+                && !job.isRebuild() && (checkpointEnabled || resume);
+        ImportCheckpoint checkpoint;
+        try {
+            checkpoint = !checkpointed ? null : resume ? ImportCheckpoint.load(file) : ImportCheckpoint.start(file);
+        } catch (IOException | IllegalStateException e) {
+            logger.error("Reprise impossible pour {} : {}", file, e.getMessage());
+            result.setError(e.getMessage());
+            result.setEndTime(System.currentTimeMillis());
+            return result;
+        }
+        if (resume && checkpoint == null) {
+            result.setError("La reprise nécessite les modes SEQUENTIAL et BULK_INGESTER");
+            result.setEndTime(System.currentTimeMillis());
+            return result;
+        }
+        if (checkpoint != null && checkpoint.isCompleted()) {
+            logger.info("Import de {} déjà terminé, rien à reprendre", file);
+            result.setEndTime(System.currentTimeMillis());
+            return result;
+        }
+        if (resume) {
+            logger.info("Reprise de l'import de {} à la ligne {} (octet {})",
+                    file, checkpoint.getCommittedLine(), checkpoint.getCommittedOffset());
+        }
+
+        // Rechargement complet : chargement dans un nouvel index, déjà en mode chargement (voir IndexRebuilder)
+        IndexRebuilder.Rebuild rebuild = null;
+        if (job.isRebuild()) {
+            if (persistenceMode != PersistenceMode.BULK_INGESTER) {
+                result.setError("Le rechargement complet nécessite le mode BULK_INGESTER");
+                result.setEndTime(System.currentTimeMillis());
+                return result;
+            }
+            try {
+                rebuild = indexRebuilder.begin(User.class);
+            } catch (Exception e) {
+                logger.error("Rechargement complet impossible : {}", e.getMessage());
+                result.setError(e.getMessage());
+                result.setEndTime(System.currentTimeMillis());
+                return result;
+            }
+        }
+
+        // Réglages de l'index restaurés dans le finally, même si l'import échoue
+        BulkLoadIndexSettings.Lease bulkLoadLease = null;
+        if (bulkLoad && rebuild == null) {
+            try {
+                bulkLoadLease = bulkLoadIndexSettings.acquire(User.class);
+            } catch (Exception e) {
+                logger.warn("Mode chargement indisponible, import avec les réglages courants : {}", e.getMessage());
+            }
+        }
+
+        // Dédoublonnage : la confirmation par identifiant suppose des identifiants HASH et l'API Bulk
+        boolean dedupSupported = idStrategy == IdStrategy.HASH && persistenceMode == PersistenceMode.BULK_INGESTER;
+        if (duplicateFilter.isEnabled() && !dedupSupported) {
+            logger.warn("Dédoublonnage ignoré : il nécessite id-strategy=HASH et persistence-mode=BULK_INGESTER");
+        }
+        DuplicateFilter dedup = duplicateFilter.isEnabled() && dedupSupported ? duplicateFilter : null;
+
+        // Rejets conservés à côté du fichier (complétés lors d'une reprise), sinon dans le répertoire configuré
+        DeadLetterWriter deadLetters = !deadLetterEnabled ? null
+                : file != null ? DeadLetterWriter.forFile(file, resume)
+                : DeadLetterWriter.forJob(deadLetterDir, job.getId());
+        if (checkpoint != null && deadLetters != null) {
+            checkpoint.syncWith(deadLetters);
+        }
+
+        // Session bulk (null en mode REPOSITORY), sur l'index en construction lors d'un rechargement complet
+        UserBulkIndexer.Session bulkSession = persistenceMode != PersistenceMode.BULK_INGESTER ? null
+                : rebuild != null ? userBulkIndexer.open(deadLetters, rebuild.getIndexName())
+                : userBulkIndexer.open(deadLetters);
+
+        // Files d'attente pour le pipeline de traitement
+        BlockingQueue<PendingChunk> lineQueue = new LinkedBlockingQueue<>(16); // File pour les blocs de lignes brutes (1 Mo)
+        BlockingQueue<List<QueuedUser>> batchQueue = new LinkedBlockingQueue<>(20); // File pour les lots d'utilisateurs
+
+        // Flag pour indiquer la fin du fichier (levé aussi en cas d'échec pour arrêter les workers)
+        AtomicBoolean endOfFile = new AtomicBoolean(false);
+
+        // Workers de cet import, exécutés sur les pools partagés par tous les imports
+        List<CompletableFuture<Void>> conversionFutures = new ArrayList<>();
+        List<CompletableFuture<Integer>> persistenceFutures = new ArrayList<>();
+
+        try {
             AtomicInteger totalProcessed = new AtomicInteger(0);
             AtomicInteger failedRecords = new AtomicInteger(0);
 
-            // Configuration optimale des batches
-            int batchSize = 10000; // Taille optimisée pour Elasticsearch
+            // Taille des lots et concurrence de saveAll ajustées à la latence et aux rejets (mode REPOSITORY)
+            AdaptiveBatchController batchController = bulkSession == null
+                    ? userBulkIndexer.newController(10000, 500, 20000, 3) : null;
+            // Tentatives de chaque lot rejeté par le cluster
+            Map<List<QueuedUser>, Integer> retryAttempts = Collections.synchronizedMap(new IdentityHashMap<>());
 
-            // Files d'attente pour le pipeline de traitement
-            BlockingQueue<String[]> lineQueue = new LinkedBlockingQueue<>(5000); // File pour les lignes brutes
-            BlockingQueue<List<User>> batchQueue = new LinkedBlockingQueue<>(20); // File pour les lots d'utilisateurs
+            // Rend les files et les compteurs visibles depuis le registre des imports
+            job.attach(lineQueue, batchQueue, bulkSession, failedRecords, totalProcessed);
 
-            // Flag pour indiquer la fin du fichier
-            AtomicBoolean endOfFile = new AtomicBoolean(false);
+            if (parallelRanges) {
+                // Découpage du fichier en plages alignées sur les lignes : pas de file de lignes intermédiaire
+                List<CsvRangeSplitter.Range> ranges = CsvRangeSplitter.split(file.toPath(), conversionThreads);
+                logger.info("Import parallèle: {} plages pour {} octets", ranges.size(), file.length());
 
-            // Threads pour la conversion des lignes en objets User
-            List<CompletableFuture<Void>> conversionFutures = new ArrayList<>();
-            for (int i = 0; i < 4; i++) {
-                CompletableFuture<Void> future = CompletableFuture.runAsync(() -> {
-                    List<User> currentBatch = new ArrayList<>(batchSize);
-                    try {
-                        while (!Thread.currentThread().isInterrupted()) {
-                            String[] line = lineQueue.poll(100, TimeUnit.MILLISECONDS);
-
-                            // Si aucune ligne n'est disponible et que la lecture du fichier est terminée
-                            if (line == null) {
-                                if (endOfFile.get() && lineQueue.isEmpty()) {
-                                    // Envoyer le dernier lot s'il n'est pas vide
-                                    if (!currentBatch.isEmpty()) {
-                                        batchQueue.put(new ArrayList<>(currentBatch));
-                                        currentBatch.clear();
+                for (CsvRangeSplitter.Range range : ranges) {
+                    CompletableFuture<Void> future = CompletableFuture.runAsync(() -> {
+                        UserSink sink = new UserSink(bulkSession, batchQueue, batchController, deadLetters, throughputLimiter, dedup, job);
+                        try {
+                            parseRange(file, range, sink, failedRecords, logger);
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                        } catch (CancellationException e) {
+                            throw e;
+                        } catch (Exception e) {
+                            throw new CompletionException("Erreur lors du parsing de la plage " + range, e);
+                        }
+                    }, conversionPool);
+
+                    conversionFutures.add(future);
+                }
+                endOfFile.set(true);
+            } else {
+                // Threads pour la conversion des lignes en objets User
+                for (int i = 0; i < conversionThreads; i++) {
+                    CompletableFuture<Void> future = CompletableFuture.runAsync(() -> {
+                        UserSink sink = new UserSink(bulkSession, batchQueue, batchController, deadLetters, throughputLimiter, dedup, job);
+                        try {
+                            while (!Thread.currentThread().isInterrupted()) {
+                                job.awaitRunnable();
+                                PendingChunk pending = lineQueue.poll(100, TimeUnit.MILLISECONDS);
+
+                                // Si aucun bloc n'est disponible et que la lecture du fichier est terminée
+                                if (pending == null) {
+                                    if (endOfFile.get() && lineQueue.isEmpty()) {
+                                        // Envoyer le dernier lot s'il n'est pas vide
+                                        sink.flush();
+                                        break;
                                     }
-                                    break;
+                                    continue;
                                 }
-                                continue;
-                            }
 
-                            try {
-                                // Convertir la ligne en objet User
-                                User user = convertLineToUser(line);
-                                currentBatch.add(user);
-
-                                // Si la taille du lot atteint le seuil, on l'ajoute à la file d'attente
-                                if (currentBatch.size() >= batchSize) {
-                                    batchQueue.put(new ArrayList<>(currentBatch));
-                                    currentBatch.clear();
+                                // Convertir les lignes du bloc en objets User
+                                sink.segment = pending.segment;
+                                UserCsvTokenizer row = pending.chunk.tokenizer();
+                                while (row.next()) {
+                                    processRow(row, sink, failedRecords, logger);
+                                }
+                                // Doublons du bloc confirmés avant que son segment soit scellé
+                                sink.resolveDuplicates();
+                                sink.segment = null;
+
+                                // Toutes les lignes du bloc sont soumises : le segment pourra être validé
+                                if (pending.segment != null) {
+                                    pending.segment.seal();
                                 }
-                            } catch (Exception e) {
-                                failedRecords.incrementAndGet();
-                                logger.warn("Erreur lors de la conversion de la ligne: {}", Arrays.toString(line), e);
                             }
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                        } catch (IOException e) {
+                            throw new UncheckedIOException(e);
                         }
-                    } catch (InterruptedException e) {
-                        Thread.currentThread().interrupt();
-                    }
-                }, conversionExecutor);
+                    }, conversionPool);
 
-                conversionFutures.add(future);
+                    conversionFutures.add(future);
+                }
             }
 
-            // Threads pour la persistance des données
-            List<CompletableFuture<Integer>> persistenceFutures = new ArrayList<>();
-            for (int i = 0; i < 3; i++) {
+            // Threads pour la persistance des données (inutiles en mode bulk)
+            int persistenceThreads = bulkSession != null ? 0 : PERSISTENCE_THREADS;
+            for (int i = 0; i < persistenceThreads; i++) {
                 CompletableFuture<Integer> future = CompletableFuture.supplyAsync(() -> {
                     int processed = 0;
                     try {
                         while (!Thread.currentThread().isInterrupted()) {
-                            List<User> batch = batchQueue.poll(200, TimeUnit.MILLISECONDS);
+                            List<QueuedUser> batch = batchQueue.poll(200, TimeUnit.MILLISECONDS);
 
                             // Si aucun lot n'est disponible et que toutes les conversions sont terminées
                             if (batch == null) {
+                                if (job.isCancelled()) {
+                                    break;
+                                }
                                 boolean allConversionsDone = conversionFutures.stream()
                                         .allMatch(CompletableFuture::isDone);
                                 if (endOfFile.get() && allConversionsDone && batchQueue.isEmpty()) {
@@ -1720,9 +1982,17 @@ public class UserService {
 
                             try {
                                 // Utiliser ElasticsearchRepository ou BulkRequestBuilder selon votre implémentation
-                                long startSave = System.currentTimeMillis();
-                                userRepository.saveAll(batch);
-                                long saveTime = System.currentTimeMillis() - startSave;
+                                long saveTime;
+                                batchController.acquire();
+                                try {
+                                    long startSave = System.currentTimeMillis();
+                                    userRepository.saveAll(QueuedUser.users(batch));
+                                    saveTime = System.currentTimeMillis() - startSave;
+                                } finally {
+                                    batchController.finished();
+                                }
+                                batchController.onSuccess(saveTime);
+                                retryAttempts.remove(batch);
 
                                 processed += batch.size();
                                 int currentTotal = totalProcessed.addAndGet(batch.size());
@@ -1732,10 +2002,36 @@ public class UserService {
                                     logger.info("Progrès: {} enregistrements traités - dernier lot: {} records en {} ms",
                                             currentTotal, batch.size(), saveTime);
                                 }
+                            } catch (InterruptedException e) {
+                                throw e;
                             } catch (Exception e) {
+                                if (AdaptiveBatchController.isRejection(e)) {
+                                    // Cluster saturé : lot réduit, puis renvoi du même lot après un délai croissant
+                                    batchController.onRejected();
+                                    int attempt = retryAttempts.merge(batch, 1, Integer::sum);
+                                    if (attempt <= userBulkIndexer.getMaxRetries()) {
+                                        long delay = batchController.backoffMillis(attempt);
+                                        logger.warn("Lot de {} records rejeté par le cluster, tentative {} dans {} ms",
+                                                batch.size(), attempt, delay);
+                                        Thread.sleep(delay);
+                                        batchQueue.put(batch);
+                                    } else {
+                                        retryAttempts.remove(batch);
+                                        failedRecords.addAndGet(batch.size());
+                                        logger.error("Lot de {} records abandonné après {} rejets",
+                                                batch.size(), attempt - 1);
+                                        if (deadLetters != null) {
+                                            for (QueuedUser queued : batch) {
+                                                deadLetters.reject(queued.line, "Rejeté par le cluster après "
+                                                        + (attempt - 1) + " tentatives", queued.user);
+                                            }
+                                        }
+                                    }
+                                    continue;
+                                }
                                 logger.error("Erreur lors de l'enregistrement du lot: {}", e.getMessage());
-                                failedRecords.addAndGet(batch.size());
 
+                                // Les sous-lots sont comptés lors de leur propre traitement
                                 // Stratégie avancée de retry avec subdivision des lots
                                 if (batch.size() > 30) {
                                     // Diviser en 3 parties pour une meilleure granularité
@@ -1752,14 +2048,18 @@ public class UserService {
                                     logger.info("Lot divisé en 2 parties pour retry");
                                 } else {
                                     // Traiter individuellement pour les très petits lots
-                                    for (User user : batch) {
+                                    for (QueuedUser queued : batch) {
                                         try {
-                                            userRepository.save(user);
+                                            userRepository.save(queued.user);
                                             totalProcessed.incrementAndGet();
                                             processed++;
                                         } catch (Exception ex) {
                                             failedRecords.incrementAndGet();
-                                            logger.error("Échec persistance individuelle: {}", user.getUserId(), ex);
+                                            logger.error("Échec persistance individuelle: {} (ligne {})",
+                                                    queued.user.getUserId(), queued.line, ex);
+                                            if (deadLetters != null) {
+                                                deadLetters.reject(queued.line, ex.getMessage(), queued.user);
+                                            }
                                         }
                                     }
                                 }
@@ -1769,25 +2069,22 @@ public class UserService {
                         Thread.currentThread().interrupt();
                     }
                     return processed;
-                }, persistenceExecutor);
+                }, persistencePool);
 
                 persistenceFutures.add(future);
             }
 
             // Thread de lecture du fichier CSV (producteur)
-            String[] line;
-            while ((line = reader.readNext()) != null) {
-                // Vérifier si la ligne contient suffisamment de colonnes
-                if (line.length >= 12) {
-                    lineQueue.put(line);
+            if (!parallelRanges) {
+                if (upload != null) {
+                    readCsvStream(CompressedInput.wrap(upload, "upload-" + job.getId()), lineQueue, job);
                 } else {
-                    failedRecords.incrementAndGet();
-                    logger.warn("Ligne ignorée, nombre de colonnes insuffisant: {}", Arrays.toString(line));
+                    readCsvLines(file, compressed, lineQueue, checkpoint, job);
                 }
-            }
 
-            // Signaler la fin du fichier
-            endOfFile.set(true);
+                // Signaler la fin du fichier
+                endOfFile.set(true);
+            }
 
             // Attendre que toutes les conversions soient terminées
             CompletableFuture.allOf(conversionFutures.toArray(new CompletableFuture[0])).join();
@@ -1809,77 +2106,429 @@ public class UserService {
                     })
                     .sum();
 
+            // En mode bulk : envoyer les derniers documents et attendre les réponses du cluster
+            if (bulkSession != null) {
+                bulkSession.close();
+                totalSuccess = (int) bulkSession.getSuccessCount();
+                failedRecords.addAndGet((int) bulkSession.getFailedCount());
+                result.setCreatedCount(bulkSession.getCreatedCount());
+                result.setUpdatedCount(bulkSession.getUpdatedCount());
+            }
+
+            // Toutes les lignes ont été acquittées : une reprise ultérieure n'aura rien à faire
+            if (checkpoint != null) {
+                checkpoint.markCompleted();
+            }
+            if (bulkLoadLease != null) {
+                bulkLoadLease.markSucceeded();
+            }
+            // Nouvel index complet : un document créé par identifiant distinct, puis bascule de l'alias
+            if (rebuild != null) {
+                rebuild.commit(bulkSession.getCreatedCount());
+            }
+
             result.setSuccessCount(totalSuccess);
             result.setFailedCount(failedRecords.get());
             result.setEndTime(System.currentTimeMillis());
+            if (deadLetters != null && deadLetters.getCount() > 0) {
+                result.setDeadLetterFile(deadLetters.getPath().toString());
+            }
 
-            logger.info("Import terminé: {} succès, {} échecs, durée: {} ms (moyenne: {} records/sec)",
+            result.setDuplicateCount(job.getDuplicates());
+
+            logger.info("Import terminé: {} succès ({} créés, {} mis à jour), {} échecs, {} doublons, durée: {} ms (moyenne: {} records/sec)",
                     result.getSuccessCount(),
+                    result.getCreatedCount(),
+                    result.getUpdatedCount(),
                     result.getFailedCount(),
+                    result.getDuplicateCount(),
                     (result.getEndTime() - result.getStartTime()),
                     (int)(result.getSuccessCount() * 1000.0 / (result.getEndTime() - result.getStartTime())));
 
         } catch (Exception e) {
-            logger.error("Erreur critique pendant l'importation du fichier", e);
-            result.setError(e.getMessage());
+            if (job.isCancelled()) {
+                logger.info("Import {} annulé", job.getId());
+                result.setError("Import annulé");
+            } else {
+                logger.error("Erreur critique pendant l'importation du fichier", e);
+                result.setError(e.getMessage());
+            }
+            result.setEndTime(System.currentTimeMillis());
         } finally {
-            // Arrêt propre des pools d'exécution
-            shutdownExecutor(conversionExecutor);
-            shutdownExecutor(persistenceExecutor);
+            // Arrêt des workers de cet import (après un échec, les blocs en attente sont abandonnés)
+            endOfFile.set(true);
+            if (result.getError() != null) {
+                lineQueue.clear();
+                batchQueue.clear();
+            }
+            awaitWorkers(conversionFutures, persistenceFutures);
+            if (bulkSession != null) {
+                bulkSession.close();
+            }
+            if (deadLetters != null) {
+                deadLetters.close();
+            }
+            // Après le dernier document envoyé : restauration du refresh et des réplicas
+            if (bulkLoadLease != null) {
+                bulkLoadLease.close();
+            }
+            // Sans bascule (échec, annulation), l'index en construction est supprimé
+            if (rebuild != null) {
+                rebuild.close();
+            }
+        }
+
+        return result;
+    }
+
+    /*
+     * Lecture séquentielle du fichier CSV : alimente la file avec des blocs de lignes complètes.
+     * Avec un point de reprise, la lecture commence à la position validée et chaque bloc est enregistré
+     * comme segment avant d'être distribué.
+     */
+    private void readCsvLines(File file, boolean compressed, BlockingQueue<PendingChunk> lineQueue,
+                              ImportCheckpoint checkpoint, ImportJob job) throws Exception {
+        long offset = checkpoint != null ? checkpoint.getCommittedOffset() : 0;
+        long line = checkpoint != null ? checkpoint.getCommittedLine() : 1;
+
+        InputStream in;
+        if (compressed) {
+            // Les positions validées sont celles du flux décompressé : on le décompresse jusqu'à l'octet
+            // validé sans parser les lignes précédentes
+            in = CompressedInput.open(file);
+            try {
+                in.skipNBytes(offset);
+            } catch (IOException e) {
+                in.close();
+                throw e;
+            }
+        } else {
+            FileInputStream fileIn = new FileInputStream(file);
+            // Positionnement direct sur l'octet validé : les lignes précédentes ne sont pas relues
+            fileIn.getChannel().position(offset);
+            in = fileIn;
+        }
+        try (CsvChunkReader reader = new CsvChunkReader(in, 1 << 20, offset == 0, offset, line)) {
+            enqueueChunks(reader, lineQueue, checkpoint, job);
+        }
+    }
+
+    // Lecture d'un flux reçu en continu : les blocs sont distribués au fur et à mesure de la réception
+    private void readCsvStream(InputStream in, BlockingQueue<PendingChunk> lineQueue, ImportJob job) throws Exception {
+        enqueueChunks(new CsvChunkReader(in, 1 << 20, true), lineQueue, null, job);
+    }
+
+    private void enqueueChunks(CsvChunkReader reader, BlockingQueue<PendingChunk> lineQueue,
+                               ImportCheckpoint checkpoint, ImportJob job) throws Exception {
+        CsvChunkReader.Chunk chunk;
+        while ((chunk = reader.next()) != null) {
+            job.awaitRunnable();
+            ImportCheckpoint.Segment segment = checkpoint != null ? checkpoint.register(chunk) : null;
+            PendingChunk pending = new PendingChunk(chunk, segment);
+            // Attente bornée pour réagir à une annulation si les workers sont arrêtés
+            while (!lineQueue.offer(pending, 100, TimeUnit.MILLISECONDS)) {
+                job.awaitRunnable();
+            }
         }
+    }
+
+    // Bloc de lignes en attente de conversion, avec son segment de point de reprise (ou null)
+    private static class PendingChunk {
+        private final CsvChunkReader.Chunk chunk;
+        private final ImportCheckpoint.Segment segment;
 
-        return CompletableFuture.completedFuture(result);
+        PendingChunk(CsvChunkReader.Chunk chunk, ImportCheckpoint.Segment segment) {
+            this.chunk = chunk;
+            this.segment = segment;
+        }
+    }
+
+    // Parse une plage d'octets du fichier (mappée en mémoire) et convertit directement ses lignes
+    private void parseRange(File file, CsvRangeSplitter.Range range, UserSink sink, AtomicInteger failedRecords,
+                            Logger logger) throws Exception {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            UserCsvTokenizer row = new UserCsvTokenizer(CsvRangeSplitter.openRange(channel, range), 1 << 16,
+                    range.getStart(), range.getFirstLine());
+            while (row.next()) {
+                processRow(row, sink, failedRecords, logger);
+            }
+            sink.flush();
+        }
     }
 
-    // Méthode pour arrêter les exécuteurs
-    private void shutdownExecutor(ExecutorService executor) {
+    // Convertit la ligne courante du tokenizer et l'envoie vers la persistance
+    private void processRow(UserCsvTokenizer row, UserSink sink, AtomicInteger failedRecords,
+                            Logger logger) throws InterruptedException {
+        // Pause / annulation demandées depuis le registre des imports
+        sink.job.awaitRunnable();
+        sink.job.rowRead();
+        sink.throttle(row.recordEndOffset() - row.recordStartOffset());
+
+        // Vérifier si la ligne contient suffisamment de colonnes
+        if (row.fieldCount() < 12) {
+            failedRecords.incrementAndGet();
+            logger.warn("Ligne {} ignorée, nombre de colonnes insuffisant: {}", row.recordLine(), row);
+            sink.reject(row, "Nombre de colonnes insuffisant : " + row.fieldCount());
+            return;
+        }
         try {
-            executor.shutdown();
-            if (!executor.awaitTermination(30, TimeUnit.SECONDS)) {
-                executor.shutdownNow();
+            sink.add(convertRowToUser(row), row.recordLine());
+        } catch (InterruptedException e) {
+            throw e;
+        } catch (Exception e) {
+            failedRecords.incrementAndGet();
+            logger.warn("Erreur lors de la conversion de la ligne {}: {}", row.recordLine(), row, e);
+            sink.reject(row, e.getMessage());
+        }
+    }
+
+    // Utilisateur en attente de persistance (mode REPOSITORY) et sa ligne dans le fichier, pour les rejets
+    private static final class QueuedUser {
+        private final User user;
+        private final long line;
+
+        QueuedUser(User user, long line) {
+            this.user = user;
+            this.line = line;
+        }
+
+        static List<User> users(List<QueuedUser> batch) {
+            List<User> users = new ArrayList<>(batch.size());
+            for (QueuedUser queued : batch) {
+                users.add(queued.user);
             }
+            return users;
+        }
+    }
+
+    // Destination des utilisateurs convertis : session bulk, ou lots déposés dans la file de persistance
+    private static class UserSink {
+        private final UserBulkIndexer.Session bulkSession;
+        private final BlockingQueue<List<QueuedUser>> batchQueue;
+        // Taille des lots en documents (null en mode bulk)
+        private final AdaptiveBatchController batchController;
+        // Fichier des lignes rejetées (null si désactivé)
+        private final DeadLetterWriter deadLetters;
+        // Limite de débit partagée par tous les imports, réservée par paquets de lignes
+        private final ThroughputLimiter limiter;
+        private long pendingDocs;
+        private long pendingBytes;
+        // Filtre de doublons (null si désactivé) et lignes reconnues par le filtre, en attente de confirmation
+        private final DuplicateFilter dedup;
+        private final List<User> candidates = new ArrayList<>();
+        private final List<Long> candidateLines = new ArrayList<>();
+        private final ImportJob job;
+        private List<QueuedUser> currentBatch;
+        // Segment du bloc en cours de conversion (point de reprise), null sinon
+        private ImportCheckpoint.Segment segment;
+
+        UserSink(UserBulkIndexer.Session bulkSession, BlockingQueue<List<QueuedUser>> batchQueue,
+                 AdaptiveBatchController batchController, DeadLetterWriter deadLetters,
+                 ThroughputLimiter limiter, DuplicateFilter dedup, ImportJob job) {
+            this.bulkSession = bulkSession;
+            this.batchQueue = batchQueue;
+            this.batchController = batchController;
+            this.deadLetters = deadLetters;
+            this.limiter = limiter;
+            this.dedup = dedup;
+            this.job = job;
+            this.currentBatch = new ArrayList<>();
+        }
+
+        void add(User user, long line) throws InterruptedException {
+            // Clé peut-être déjà vue : confirmée par lot avant envoi
+            if (dedup != null && dedup.mightBeDuplicate(user.getIdS())) {
+                candidates.add(user);
+                candidateLines.add(line);
+                if (candidates.size() >= 500) {
+                    resolveDuplicates();
+                }
+                return;
+            }
+            // En mode bulk, le BulkIngester gère lui-même les lots
+            if (bulkSession != null) {
+                bulkSession.add(user, line, segment);
+                return;
+            }
+            currentBatch.add(new QueuedUser(user, line));
+
+            // Si la taille du lot atteint le seuil, on l'ajoute à la file d'attente
+            if (currentBatch.size() >= batchController.getBatchLimit()) {
+                flush();
+            }
+        }
+
+        // Compte une ligne lue ; la réservation se fait toutes les 256 lignes ou 1 Mo pour limiter la contention
+        void throttle(long bytes) throws InterruptedException {
+            if (!limiter.isEnabled()) {
+                return;
+            }
+            pendingDocs++;
+            pendingBytes += bytes;
+            if (pendingDocs >= 256 || pendingBytes >= 1 << 20) {
+                limiter.acquire(pendingDocs, pendingBytes);
+                pendingDocs = 0;
+                pendingBytes = 0;
+            }
+        }
+
+        void reject(UserCsvTokenizer row, String reason) {
+            if (deadLetters != null) {
+                deadLetters.reject(row.recordLine(), reason, row.rawRecord());
+            }
+        }
+
+        /*
+         * Confirme les doublons en attente par un seul mget sur l'index de la session : un doublon confirmé
+         * est écarté (DROP) ou fusionné (MERGE) ; les autres (faux positifs) sont indexés normalement.
+         */
+        void resolveDuplicates() throws InterruptedException {
+            if (candidates.isEmpty()) {
+                return;
+            }
+            List<String> ids = new ArrayList<>(candidates.size());
+            for (User user : candidates) {
+                ids.add(String.valueOf(user.getIdS()));
+            }
+            Set<String> existing;
+            try {
+                existing = dedup.existing(bulkSession.getIndexName(), ids);
+            } catch (IOException e) {
+                // Sans confirmation, rien n'est écarté : le document existant est remplacé comme sans filtre
+                LoggerFactory.getLogger(UserService.class)
+                        .warn("Confirmation des doublons impossible : {}", e.getMessage());
+                existing = Collections.emptySet();
+            }
+            for (int i = 0; i < candidates.size(); i++) {
+                User user = candidates.get(i);
+                long line = candidateLines.get(i);
+                if (!existing.contains(ids.get(i))) {
+                    bulkSession.add(user, line, segment);
+                } else {
+                    job.duplicateSuppressed();
+                    if (dedup.getPolicy() == DedupPolicy.MERGE) {
+                        bulkSession.merge(user, line, segment);
+                    }
+                }
+            }
+            candidates.clear();
+            candidateLines.clear();
+        }
+
+        void flush() throws InterruptedException {
+            resolveDuplicates();
+            if (!currentBatch.isEmpty()) {
+                batchQueue.put(currentBatch);
+                currentBatch = new ArrayList<>(currentBatch.size());
+            }
+        }
+    }
+
+    private static ThreadFactory namedThreads(String prefix) {
+        AtomicInteger count = new AtomicInteger();
+        return r -> {
+            Thread thread = new Thread(r, prefix + "-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    // Attend la fin des workers d'un import (30 s au plus) : les pools partagés ne sont pas arrêtés
+    private void awaitWorkers(List<? extends CompletableFuture<?>> conversions,
+                              List<? extends CompletableFuture<?>> persistences) {
+        List<CompletableFuture<?>> workers = new ArrayList<>(conversions);
+        workers.addAll(persistences);
+        try {
+            CompletableFuture.allOf(workers.toArray(new CompletableFuture[0])).get(30, TimeUnit.SECONDS);
         } catch (InterruptedException e) {
-            executor.shutdownNow();
             Thread.currentThread().interrupt();
+        } catch (TimeoutException e) {
+            LoggerFactory.getLogger(getClass()).warn("Workers d'import toujours actifs après 30 s");
+        } catch (ExecutionException e) {
+            // déjà traité par l'import
         }
     }
 
-    // Version modifiée utilisant des setters
-    private User convertLineToUser(String[] line) {
+    @PreDestroy
+    public void shutdownPools() {
+        conversionPool.shutdownNow();
+        persistencePool.shutdownNow();
+    }
+
+    // Version modifiée utilisant des setters : les champs sont lus directement dans le tampon du tokenizer
+    private User convertRowToUser(UserCsvTokenizer row) {
         User user = new User();
         try {
-            String uuid = UUID.randomUUID().toString().replaceAll("-", "").substring(0, 10);
-            // Convertir en nombre si nécessaire
-            long id = Long.parseLong(uuid, 16);
             // Utilisation de setters au lieu du constructeur
-            user.setIdS(id);
-            user.setUserId( Long.parseLong(line[1].trim()));
-            user.setPhoneNumber(StringUtils.trimToNull(line[0]));
-            user.setFirstName(StringUtils.trimToNull(line[2]));
-            user.setLastName(StringUtils.trimToNull(line[3]));
-            user.setGender(StringUtils.trimToNull(line[4]));
-            user.setCurrentCity(StringUtils.trimToNull(line[5]));
-            user.setCurrentCountry(StringUtils.trimToNull(line[6]));
-            user.setHometownCity(StringUtils.trimToNull(line[7]));
-            user.setHometownCountry(StringUtils.trimToNull(line[8]));
-            user.setRelationshipStatus(StringUtils.trimToNull(line[9]));
-            user.setWorkplace(StringUtils.trimToNull(line[10]));
-            user.setEmail(StringUtils.trimToNull(line[11]));
-            user.setCurrentDepartment(StringUtils.trimToNull(line[12]));
-            user.setCurrentRegion(StringUtils.trimToNull(line[13]));
+            user.setUserId(row.longField(1));
+            user.setPhoneNumber(row.field(0));
+            user.setFirstName(row.field(2));
+            user.setLastName(row.field(3));
+            user.setGender(row.field(4));
+            user.setCurrentCity(row.field(5));
+            user.setCurrentCountry(row.field(6));
+            user.setHometownCity(row.field(7));
+            user.setHometownCountry(row.field(8));
+            user.setRelationshipStatus(row.field(9));
+            user.setWorkplace(row.field(10));
+            user.setEmail(row.field(11));
+            user.setCurrentDepartment(row.field(12));
+            user.setCurrentRegion(row.field(13));
+            user.setIdS(generateIdS(user));
 
             return user;
         } catch (NumberFormatException e) {
-            throw new IllegalArgumentException("Erreur de conversion pour l'ID utilisateur: " + line[1], e);
+            throw new IllegalArgumentException("Erreur de conversion pour l'ID utilisateur: " + row.field(1), e);
         }
     }
 
+    // Identifiant du document : hash stable de userId + phoneNumber, ou aléatoire (ancien comportement)
+    private long generateIdS(User user) {
+        if (idStrategy == IdStrategy.HASH) {
+            return UserIdHasher.hash(user.getUserId(), user.getPhoneNumber());
+        }
+        String uuid = UUID.randomUUID().toString().replaceAll("-", "").substring(0, 10);
+        // Convertir en nombre si nécessaire
+        return Long.parseLong(uuid, 16);
+    }
+
+    // Traitement des doublons confirmés à l'import (voir DuplicateFilter)
+    public enum DedupPolicy {
+        DROP,   // la ligne est ignorée
+        MERGE   // mise à jour partielle : les champs non vides de la ligne complètent le document
+    }
+
+    // Stratégies d'identifiant pour les utilisateurs importés
+    public enum IdStrategy {
+        RANDOM,   // UUID tronqué : chaque import crée de nouveaux documents
+        HASH      // hash 64 bits de userId + phoneNumber : un ré-import met à jour les documents existants
+    }
+
+    // Modes de lecture disponibles pour l'import CSV
+    public enum ParseMode {
+        SEQUENTIAL,       // un lecteur unique alimente une file de lignes
+        PARALLEL_RANGES   // fichier mappé en mémoire et découpé en plages parsées en parallèle
+    }
+
+    // Modes de persistance disponibles pour l'import CSV
+    public enum PersistenceMode {
+        REPOSITORY,     // userRepository.saveAll par lots de 10 000
+        BULK_INGESTER   // BulkIngester du client Elasticsearch (voir UserBulkIndexer)
+    }
+
     // Classe pour contenir les résultats de l'importation
-    public class ImportResult {
+    public static class ImportResult {
         private long startTime;
         private long endTime;
         private int successCount;
         private int failedCount;
+        // Documents créés / remplacés (mode BULK_INGESTER uniquement)
+        private long createdCount;
+        private long updatedCount;
+        // Lignes écartées ou fusionnées comme doublons (voir DuplicateFilter)
+        private long duplicateCount;
+        // Fichier des lignes rejetées, s'il y en a eu
+        private String deadLetterFile;
         private String error;
 
         // Getters et setters
@@ -1915,6 +2564,38 @@ public class UserService {
             this.failedCount = failedCount;
         }
 
+        public long getCreatedCount() {
+            return createdCount;
+        }
+
+        public void setCreatedCount(long createdCount) {
+            this.createdCount = createdCount;
+        }
+
+        public long getUpdatedCount() {
+            return updatedCount;
+        }
+
+        public void setUpdatedCount(long updatedCount) {
+            this.updatedCount = updatedCount;
+        }
+
+        public long getDuplicateCount() {
+            return duplicateCount;
+        }
+
+        public void setDuplicateCount(long duplicateCount) {
+            this.duplicateCount = duplicateCount;
+        }
+
+        public String getDeadLetterFile() {
+            return deadLetterFile;
+        }
+
+        public void setDeadLetterFile(String deadLetterFile) {
+            this.deadLetterFile = deadLetterFile;
+        }
+
         public String getError() {
             return error;
         }
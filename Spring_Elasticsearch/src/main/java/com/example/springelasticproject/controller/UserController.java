@@ -1,22 +1,38 @@
 package com.example.springelasticproject.controller;
 
 
+import co.elastic.clients.elasticsearch._types.query_dsl.BoolQuery;
+import com.example.springelasticproject.Services.DuplicateFilter;
+import com.example.springelasticproject.Services.ExportJob;
+import com.example.springelasticproject.Services.ExportJobManager;
+import com.example.springelasticproject.Services.ExportScheduler;
 import com.example.springelasticproject.Services.ExportService;
+import com.example.springelasticproject.Services.ImportJob;
+import com.example.springelasticproject.Services.ImportJobManager;
+import com.example.springelasticproject.Services.ImportPathResolver;
 import com.example.springelasticproject.model.User;
 import com.example.springelasticproject.Services.UserService;
-import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpServletRequest;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
 
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
 import java.util.*;
 
 @RequestMapping("/users")
@@ -29,12 +45,24 @@ public class UserController {
 
     private final UserService userService;
     private final ExportService exportService;
+    private final ImportJobManager importJobManager;
+    private final DuplicateFilter duplicateFilter;
+    private final ExportJobManager exportJobManager;
+    private final ExportScheduler exportScheduler;
+    private final ImportPathResolver importPaths;
 
 
     @Autowired
-    public UserController(UserService userService, ExportService exportService) {
+    public UserController(UserService userService, ExportService exportService, ImportJobManager importJobManager,
+                          DuplicateFilter duplicateFilter, ExportJobManager exportJobManager,
+                          ExportScheduler exportScheduler, ImportPathResolver importPaths) {
         this.userService = userService;
         this.exportService = exportService;
+        this.importJobManager = importJobManager;
+        this.duplicateFilter = duplicateFilter;
+        this.exportJobManager = exportJobManager;
+        this.exportScheduler = exportScheduler;
+        this.importPaths = importPaths;
     }
 
     // Récupérer tous les utilisateurs
@@ -79,18 +107,153 @@ public class UserController {
         return user.map(ResponseEntity::ok).orElseGet(() -> ResponseEntity.notFound().build());
     }
 
+    // rebuild=true : rechargement complet dans un nouvel index, l'alias bascule en fin d'import
     @PostMapping("/import")
-    public ResponseEntity<String> importCsv(@RequestParam("file") MultipartFile file) {
+    public ResponseEntity<Map<String, Object>> importCsv(@RequestParam("file") MultipartFile file,
+                                                         @RequestParam(value = "rebuild", defaultValue = "false")
+                                                         boolean rebuild) {
         try {
-            File tempFile = File.createTempFile("upload", ".csv");
+            // Déposé dans import.root : le fichier reste accessible à /import/resume
+            File tempFile = importPaths.newUploadFile();
             file.transferTo(tempFile);
-            userService.importCsv(tempFile);
-            return ResponseEntity.ok("Import terminé");
+            // L'import s'exécute en arrière-plan ; le chemin du fichier permet de le reprendre s'il est interrompu
+            ImportJob job = importJobManager.submit(tempFile, false, rebuild);
+            return ResponseEntity.status(HttpStatus.ACCEPTED).body(job.snapshot());
         } catch (IOException e) {
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body("Erreur lors de l'import : " + e.getMessage());
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(Map.of("error", "Erreur lors de l'import : " + e.getMessage()));
         }
     }
 
+    /*
+     * Import en streaming : le CSV est envoyé brut dans le corps de la requête (pas de multipart)
+     * et parsé pendant la réception, sans fichier temporaire. La réponse est renvoyée en fin d'import ;
+     * l'avancement reste consultable via /import/jobs. Un corps gzip ou zstd est décompressé à la volée.
+     * L'import occupe une place du pool des imports (503 si toutes sont prises).
+     */
+    @PostMapping(value = "/import/stream", consumes = {"text/csv", MediaType.APPLICATION_OCTET_STREAM_VALUE,
+            "application/gzip", "application/zstd"})
+    public ResponseEntity<Map<String, Object>> importCsvStream(HttpServletRequest request) throws IOException {
+        InputStream body = request.getInputStream();
+        Optional<ImportJob> job = importJobManager.runInline("upload:" + request.getRemoteAddr(),
+                started -> userService.importCsvStream(body, started));
+        if (job.isEmpty()) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .header(HttpHeaders.RETRY_AFTER, "60")
+                    .body(Map.of("error", "Trop d'imports en cours, réessayez plus tard"));
+        }
+        HttpStatus status = job.get().getResult().getError() == null ? HttpStatus.OK : HttpStatus.INTERNAL_SERVER_ERROR;
+        return ResponseEntity.status(status).body(job.get().snapshot());
+    }
+
+    // Reprise d'un import interrompu à partir de son point de reprise (<fichier>.checkpoint) ; chemin dans import.root
+    @PostMapping("/import/resume")
+    public ResponseEntity<Map<String, Object>> resumeImport(@RequestParam("path") String path) throws IOException {
+        File file = importPaths.resolve(path);
+        if (!file.isFile()) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(Map.of("error", "Fichier introuvable : " + path));
+        }
+        ImportJob job = importJobManager.submit(file, true);
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(job.snapshot());
+    }
+
+    // Import de tous les fichiers d'un répertoire de import.root (motif glob), planifiés sur le pool partagé des imports
+    @PostMapping("/import/directory")
+    public ResponseEntity<List<Map<String, Object>>> importDirectory(
+            @RequestParam("path") String path,
+            @RequestParam(value = "glob", defaultValue = "*.{csv,csv.gz,csv.zst}") String glob) throws IOException {
+        File directory = importPaths.resolve(path);
+        if (!directory.isDirectory()) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
+        }
+        List<Map<String, Object>> jobs = new ArrayList<>();
+        for (ImportJob job : importJobManager.submitDirectory(directory.toPath(), glob)) {
+            jobs.add(job.snapshot());
+        }
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(jobs);
+    }
+
+    // Réimport des seules lignes rejetées d'un import (fichier .rejected.ndjson indiqué dans son résultat)
+    @PostMapping("/import/dead-letters/replay")
+    public ResponseEntity<Map<String, Object>> replayDeadLetters(@RequestParam("path") String path) throws IOException {
+        File file = importPaths.resolveDeadLetters(path);
+        if (!file.isFile()) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(Map.of("error", "Fichier introuvable : " + path));
+        }
+        ImportJob job = importJobManager.submitReplay(file);
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(job.snapshot());
+    }
+
+    // Statistiques du filtre de doublons (clés vues, doublons confirmés, faux positifs)
+    @GetMapping("/import/dedup")
+    public Map<String, Object> dedupStats() {
+        return duplicateFilter.stats();
+    }
+
+    // Vide le filtre de doublons (par exemple après une purge de l'index)
+    @PostMapping("/import/dedup/reset")
+    public ResponseEntity<Map<String, Object>> resetDedup() {
+        if (!duplicateFilter.isEnabled()) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(duplicateFilter.stats());
+        }
+        duplicateFilter.reset();
+        return ResponseEntity.ok(duplicateFilter.stats());
+    }
+
+    // Chemin refusé par ImportPathResolver (hors de import.root)
+    @ExceptionHandler(ImportPathResolver.ForbiddenPathException.class)
+    public ResponseEntity<Map<String, Object>> rejectedPath(ImportPathResolver.ForbiddenPathException e) {
+        return ResponseEntity.status(HttpStatus.FORBIDDEN).body(Map.of("error", e.getMessage()));
+    }
+
+    // Suivi des imports : progression, débit, profondeur des files, latences bulk, échecs
+    @GetMapping("/import/jobs")
+    public List<Map<String, Object>> listImportJobs() {
+        List<Map<String, Object>> jobs = new ArrayList<>();
+        for (ImportJob job : importJobManager.list()) {
+            jobs.add(job.snapshot());
+        }
+        return jobs;
+    }
+
+    @GetMapping("/import/jobs/{id}")
+    public ResponseEntity<Map<String, Object>> getImportJob(@PathVariable("id") String id) {
+        return importJobManager.find(id)
+                .map(job -> ResponseEntity.ok(job.snapshot()))
+                .orElseGet(() -> ResponseEntity.notFound().build());
+    }
+
+    @PostMapping("/import/jobs/{id}/cancel")
+    public ResponseEntity<Map<String, Object>> cancelImportJob(@PathVariable("id") String id) {
+        return importJobManager.find(id)
+                .map(job -> {
+                    job.cancel();
+                    return ResponseEntity.ok(job.snapshot());
+                })
+                .orElseGet(() -> ResponseEntity.notFound().build());
+    }
+
+    @PostMapping("/import/jobs/{id}/pause")
+    public ResponseEntity<Map<String, Object>> pauseImportJob(@PathVariable("id") String id) {
+        return importJobManager.find(id)
+                .map(job -> {
+                    job.pause();
+                    return ResponseEntity.ok(job.snapshot());
+                })
+                .orElseGet(() -> ResponseEntity.notFound().build());
+    }
+
+    // Relance un import mis en pause (à ne pas confondre avec /import/resume, reprise sur point de reprise)
+    @PostMapping("/import/jobs/{id}/resume")
+    public ResponseEntity<Map<String, Object>> resumeImportJob(@PathVariable("id") String id) {
+        return importJobManager.find(id)
+                .map(job -> {
+                    job.resume();
+                    return ResponseEntity.ok(job.snapshot());
+                })
+                .orElseGet(() -> ResponseEntity.notFound().build());
+    }
+
     @GetMapping("/countUsers")
     public ResponseEntity<Long> countUsers() {
         long count = userService.countUsers();
@@ -276,23 +439,131 @@ public class UserController {
         }
     }
 
+    // slices > 1 : export lu en parallèle par tranches du point-in-time (lignes non ordonnées) ;
+    // gzip=true : réponse compressée (Content-Encoding: gzip)
     @PostMapping("/export-csvPS")
-    public void exportUsersToCsv(@RequestBody Map<String, String> attributes, HttpServletResponse response) throws IOException {
-        exportService.ExportSeachDataPS(attributes ,response); // méthode modifiée pour retourner une liste
+    public ResponseEntity<StreamingResponseBody> exportUsersToCsv(@RequestBody Map<String, String> attributes,
+                                                                  @RequestParam(defaultValue = "1") int slices,
+                                                                  @RequestParam(defaultValue = "false") boolean gzip) {
+        return exportService.ExportSeachDataPS(attributes, slices, gzip);
     }
 
     @PostMapping("/export-csvMS")
-    public void searchAndExportUsersToCsv(@RequestBody AdvancedSearchRequest request, HttpServletResponse response) throws IOException {
-        exportService.ExportSeachDataMS(
+    public ResponseEntity<StreamingResponseBody> searchAndExportUsersToCsv(@RequestBody AdvancedSearchRequest request,
+                                                                           @RequestParam(defaultValue = "1") int slices,
+                                                                           @RequestParam(defaultValue = "false") boolean gzip) {
+        return exportService.ExportSeachDataMS(
                 request.getGender(),
                 request.getDepartments(),
                 request.getRegions(),
                 request.getCities(),
                 request.getAdditionalAttributes(),
-                response
+                slices,
+                gzip
         );
     }
 
+    // Export en fichier côté serveur : réponse immédiate avec l'identifiant de l'export, à suivre sur /export/jobs/{id}
+    @PostMapping("/export/jobs/PS")
+    public ResponseEntity<Map<String, Object>> submitExportJobPS(@RequestBody Map<String, String> attributes,
+                                                                 @RequestParam(defaultValue = "1") int slices,
+                                                                 @RequestParam(defaultValue = "false") boolean gzip) {
+        // Attributs triés : l'ordre du corps JSON ne doit pas empêcher la réutilisation d'un export identique
+        BoolQuery query = exportService.searchQueryPS(new TreeMap<>(attributes));
+        return submitExportJob(query, slices, gzip);
+    }
+
+    @PostMapping("/export/jobs/MS")
+    public ResponseEntity<Map<String, Object>> submitExportJobMS(@RequestBody AdvancedSearchRequest request,
+                                                                 @RequestParam(defaultValue = "1") int slices,
+                                                                 @RequestParam(defaultValue = "false") boolean gzip) {
+        Map<String, String> additionalAttributes = request.getAdditionalAttributes() != null
+                ? new TreeMap<>(request.getAdditionalAttributes()) : null;
+        BoolQuery query = exportService.searchQueryMS(
+                request.getGender(),
+                request.getDepartments(),
+                request.getRegions(),
+                request.getCities(),
+                additionalAttributes);
+        return submitExportJob(query, slices, gzip);
+    }
+
+    // File des exports pleine : 503 avec Retry-After, le client réessaie plus tard
+    private ResponseEntity<Map<String, Object>> submitExportJob(BoolQuery query, int slices, boolean gzip) {
+        try {
+            ExportJob job = exportJobManager.submit(query, slices, gzip);
+            return ResponseEntity.status(HttpStatus.ACCEPTED).body(job.snapshot());
+        } catch (ExportScheduler.QueueFullException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .header(HttpHeaders.RETRY_AFTER, "60")
+                    .body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    // Exports en cours et en attente (streaming et fichier), limites de concurrence et de débit
+    @GetMapping("/export/scheduler")
+    public Map<String, Object> exportSchedulerStats() {
+        return exportScheduler.stats();
+    }
+
+    // Suivi des exports en fichier : progression, débit, temps restant estimé, empreinte SHA-256 une fois terminé
+    @GetMapping("/export/jobs")
+    public List<Map<String, Object>> listExportJobs() {
+        List<Map<String, Object>> jobs = new ArrayList<>();
+        for (ExportJob job : exportJobManager.list()) {
+            jobs.add(job.snapshot());
+        }
+        return jobs;
+    }
+
+    @GetMapping("/export/jobs/{id}")
+    public ResponseEntity<Map<String, Object>> getExportJob(@PathVariable("id") String id) {
+        return exportJobManager.find(id)
+                .map(job -> ResponseEntity.ok(job.snapshot()))
+                .orElseGet(() -> ResponseEntity.notFound().build());
+    }
+
+    @PostMapping("/export/jobs/{id}/cancel")
+    public ResponseEntity<Map<String, Object>> cancelExportJob(@PathVariable("id") String id) {
+        return exportJobManager.find(id)
+                .map(job -> job.cancel() ? ResponseEntity.ok(job.snapshot())
+                        : ResponseEntity.status(HttpStatus.CONFLICT).body(Map.<String, Object>of(
+                                "error", "Export partagé avec d'autres demandes, il ne peut pas être annulé")))
+                .orElseGet(() -> ResponseEntity.notFound().build());
+    }
+
+    /**
+     * Téléchargement du fichier d'un export terminé. Les requêtes Range sont servies en 206 (reprise d'un
+     * téléchargement interrompu) ; le fichier d'un export ne change jamais, son ETag est son empreinte SHA-256,
+     * également renvoyée dans Digest (base64) et X-Checksum-SHA256 (hexadécimal) pour vérification.
+     */
+    @GetMapping("/export/jobs/{id}/file")
+    public ResponseEntity<Resource> downloadExportJob(@PathVariable("id") String id) {
+        Optional<ExportJob> found = exportJobManager.find(id);
+        if (found.isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+        ExportJob job = found.get();
+        if (job.getStatus() != ExportJob.Status.COMPLETED) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
+        }
+        FileSystemResource file = new FileSystemResource(job.getFile());
+        if (!file.exists()) {
+            return ResponseEntity.status(HttpStatus.GONE).build();
+        }
+
+        return ResponseEntity.ok()
+                .contentType(job.isGzip() ? new MediaType("application", "gzip")
+                        : new MediaType("text", "csv", StandardCharsets.UTF_8))
+                .eTag(job.getSha256())
+                .lastModified(job.getEndTime())
+                .header(HttpHeaders.CONTENT_DISPOSITION,
+                        ContentDisposition.attachment().filename(job.getFileName()).build().toString())
+                .header("Digest", "sha-256=" + Base64.getEncoder().encodeToString(HexFormat.of().parseHex(job.getSha256())))
+                .header("X-Checksum-SHA256", job.getSha256())
+                .body(file);
+    }
+
 
 
 
@@ -169,6 +169,10 @@ public class RepairShop {
     @Field(type = FieldType.Text)
     private String query;
 
+    // Empreinte du contenu importé (voir ContentHasher) : une boutique inchangée n'est pas réindexée
+    @Field(type = FieldType.Keyword, index = false)
+    private String contentHash;
+
     // Getters et setters
     public String getPlaceId() {
         return placeId;
@@ -561,4 +565,12 @@ public class RepairShop {
     public void setQuery(String query) {
         this.query = query;
     }
+
+    public String getContentHash() {
+        return contentHash;
+    }
+
+    public void setContentHash(String contentHash) {
+        this.contentHash = contentHash;
+    }
 }
\ No newline at end of file
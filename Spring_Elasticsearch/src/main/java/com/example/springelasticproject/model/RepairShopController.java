@@ -1,6 +1,9 @@
 package com.example.springelasticproject.model;
 
+import com.example.springelasticproject.Services.ImportJob;
+import com.example.springelasticproject.Services.ImportPathResolver;
 import com.example.springelasticproject.Services.RepairShopService;
+import com.example.springelasticproject.util.DataImporter;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
@@ -10,6 +13,8 @@ import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.io.File;
+import java.io.IOException;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
@@ -19,10 +24,15 @@ import java.util.Optional;
 public class RepairShopController {
 
     private final RepairShopService repairShopService;
+    private final DataImporter dataImporter;
+    private final ImportPathResolver importPaths;
 
     @Autowired
-    public RepairShopController(RepairShopService repairShopService) {
+    public RepairShopController(RepairShopService repairShopService, DataImporter dataImporter,
+                                ImportPathResolver importPaths) {
         this.repairShopService = repairShopService;
+        this.dataImporter = dataImporter;
+        this.importPaths = importPaths;
     }
 
     // Créer une nouvelle boutique de réparation
@@ -179,6 +189,37 @@ public class RepairShopController {
         return new ResponseEntity<>(HttpStatus.OK);
     }
 
+    /*
+     * Rechargement depuis un fichier NDJSON de import.root ; rebuild=true : nouvel index puis bascule atomique
+     * de l'alias. L'import tourne en arrière-plan : son résultat (et ses erreurs) se suit via /users/import/jobs/{id}.
+     */
+    @PostMapping("/reload")
+    public ResponseEntity<Map<String, Object>> reload(@RequestParam("path") String path,
+                                                      @RequestParam(defaultValue = "false") boolean rebuild) throws IOException {
+        File file = importPaths.resolve(path);
+        if (!file.isFile()) {
+            return new ResponseEntity<>(Map.of("error", "Fichier introuvable : " + path), HttpStatus.NOT_FOUND);
+        }
+        ImportJob job = dataImporter.submitReload(file, rebuild);
+        return new ResponseEntity<>(job.snapshot(), HttpStatus.ACCEPTED);
+    }
+
+    // Chemin ?path= hors de import.root
+    @ExceptionHandler(ImportPathResolver.ForbiddenPathException.class)
+    public ResponseEntity<Map<String, Object>> rejectedPath(ImportPathResolver.ForbiddenPathException e) {
+        return new ResponseEntity<>(Map.of("error", e.getMessage()), HttpStatus.FORBIDDEN);
+    }
+
+    // Progression de l'import de démarrage (exécuté en arrière-plan)
+    @GetMapping("/import/startup")
+    public ResponseEntity<Map<String, Object>> startupImport() {
+        ImportJob job = dataImporter.getStartupJob();
+        if (job == null) {
+            return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+        }
+        return new ResponseEntity<>(job.snapshot(), HttpStatus.OK);
+    }
+
     @DeleteMapping("/index")
     public ResponseEntity<Void> deleteIndex() {
         repairShopService.deleteIndex();
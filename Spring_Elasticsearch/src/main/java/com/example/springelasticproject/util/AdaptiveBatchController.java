@@ -0,0 +1,149 @@
+package com.example.springelasticproject.util;
+
+import co.elastic.clients.elasticsearch._types.ElasticsearchException;
+import org.elasticsearch.client.ResponseException;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Ajuste la taille des lots et le nombre de requêtes simultanées selon la réponse du cluster (AIMD) :
+ * croissance progressive tant que la latence reste sous la cible, réduction multiplicative quand elle
+ * la dépasse ou que le cluster rejette des requêtes (HTTP 429 / es_rejected_execution_exception).
+ * L'unité de la taille de lot est libre (octets pour l'API Bulk, documents pour saveAll).
+ */
+public final class AdaptiveBatchController {
+
+    // Nombre de réponses rapides consécutives avant d'autoriser une requête simultanée de plus
+    private static final int SUCCESSES_PER_CONCURRENCY_STEP = 5;
+
+    private final long minBatch;
+    private final long maxBatch;
+    private final long batchStep;
+    private final int maxConcurrency;
+    private final long targetLatencyMs;
+    private final long backoffInitialMs;
+    private final long backoffMaxMs;
+
+    private long batch;
+    private int concurrency;
+    private int inFlight;
+    private int fastResponses;
+
+    public AdaptiveBatchController(long initialBatch, long minBatch, long maxBatch, int initialConcurrency,
+                                   int maxConcurrency, long targetLatencyMs, long backoffInitialMs,
+                                   long backoffMaxMs) {
+        this.minBatch = Math.max(1, Math.min(minBatch, initialBatch));
+        this.maxBatch = Math.max(maxBatch, initialBatch);
+        this.batchStep = Math.max(1, initialBatch / 10);
+        this.maxConcurrency = Math.max(1, maxConcurrency);
+        this.targetLatencyMs = targetLatencyMs;
+        this.backoffInitialMs = backoffInitialMs;
+        this.backoffMaxMs = backoffMaxMs;
+        this.batch = initialBatch;
+        this.concurrency = Math.max(1, Math.min(initialConcurrency, this.maxConcurrency));
+    }
+
+    /**
+     * Contrôleur à taille et concurrence fixes (adaptation désactivée) ; le backoff reste actif.
+     */
+    public static AdaptiveBatchController fixed(long batch, int concurrency, long backoffInitialMs,
+                                                long backoffMaxMs) {
+        return new AdaptiveBatchController(batch, batch, batch, concurrency, concurrency, Long.MAX_VALUE,
+                backoffInitialMs, backoffMaxMs);
+    }
+
+    public synchronized long getBatchLimit() {
+        return batch;
+    }
+
+    public synchronized int getConcurrency() {
+        return concurrency;
+    }
+
+    public synchronized int getInFlight() {
+        return inFlight;
+    }
+
+    // Attend qu'une requête de plus soit autorisée, sans la réserver
+    public synchronized void awaitCapacity() throws InterruptedException {
+        while (inFlight >= concurrency) {
+            wait();
+        }
+    }
+
+    // Attend puis réserve une place pour une requête
+    public synchronized void acquire() throws InterruptedException {
+        awaitCapacity();
+        inFlight++;
+    }
+
+    // Requête partie sans réservation préalable (flush périodique, fermeture)
+    public synchronized void started() {
+        inFlight++;
+    }
+
+    public synchronized void finished() {
+        inFlight = Math.max(0, inFlight - 1);
+        notifyAll();
+    }
+
+    // Réponse reçue sans rejet : croissance additive si la latence est sous la cible, réduction sinon
+    public synchronized void onSuccess(long latencyMs) {
+        if (latencyMs > targetLatencyMs) {
+            fastResponses = 0;
+            batch = Math.max(minBatch, batch * 4 / 5);
+            return;
+        }
+        batch = Math.min(maxBatch, batch + batchStep);
+        if (++fastResponses >= SUCCESSES_PER_CONCURRENCY_STEP && concurrency < maxConcurrency) {
+            fastResponses = 0;
+            concurrency++;
+            notifyAll();
+        }
+    }
+
+    // Le cluster sature : division par deux de la taille des lots et de la concurrence
+    public synchronized void onRejected() {
+        fastResponses = 0;
+        batch = Math.max(minBatch, batch / 2);
+        concurrency = Math.max(1, concurrency / 2);
+    }
+
+    /**
+     * Délai avant la tentative {@code attempt} (1 pour la première relance) : exponentiel, plafonné,
+     * tiré au hasard dans la moitié haute de l'intervalle pour désynchroniser les relances.
+     */
+    public long backoffMillis(int attempt) {
+        long ceiling = backoffInitialMs << Math.min(Math.max(0, attempt - 1), 20);
+        ceiling = Math.min(backoffMaxMs, ceiling);
+        return ceiling / 2 + ThreadLocalRandom.current().nextLong(ceiling / 2 + 1);
+    }
+
+    // Rejet dû à la saturation du cluster (file d'indexation pleine, disjoncteur mémoire)
+    public static boolean isRejection(int status, String errorType) {
+        return status == 429 || "es_rejected_execution_exception".equals(errorType)
+                || "circuit_breaking_exception".equals(errorType);
+    }
+
+    // Même test sur une exception levée par le client (requête entière rejetée)
+    public static boolean isRejection(Throwable failure) {
+        for (Throwable t = failure; t != null; t = t.getCause()) {
+            if (t instanceof ElasticsearchException) {
+                ElasticsearchException e = (ElasticsearchException) t;
+                if (isRejection(e.status(), e.error() != null ? e.error().type() : null)) {
+                    return true;
+                }
+            } else if (t instanceof ResponseException) {
+                if (((ResponseException) t).getResponse().getStatusLine().getStatusCode() == 429) {
+                    return true;
+                }
+            } else if (t.getMessage() != null && t.getMessage().contains("es_rejected_execution_exception")) {
+                return true;
+            }
+            if (t.getCause() == t) {
+                break;
+            }
+        }
+        return false;
+    }
+}
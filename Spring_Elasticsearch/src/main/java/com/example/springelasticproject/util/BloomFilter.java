@@ -0,0 +1,92 @@
+package com.example.springelasticproject.util;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Filtre de Bloom sur des clés 64 bits, dimensionné pour un nombre de clés et un taux de faux positifs
+ * donnés. Sans verrou : les bits sont posés par CAS, plusieurs threads peuvent l'alimenter en parallèle.
+ * Une réponse négative est certaine ; une réponse positive doit être confirmée. Deux ajouts simultanés
+ * de la même clé peuvent tous deux la voir comme nouvelle (chacun a posé une partie de ses bits).
+ */
+public final class BloomFilter {
+
+    private final AtomicLongArray bits;
+    private final long bitCount;
+    private final int hashCount;
+    private final AtomicLong insertions = new AtomicLong();
+
+    public BloomFilter(long expectedInsertions, double falsePositiveRate) {
+        long n = Math.max(1, expectedInsertions);
+        // m = -n ln(p) / (ln 2)^2 ; k = m/n ln 2
+        long m = (long) Math.ceil(-n * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+        long words = Math.max(1, (m + 63) / 64);
+        if (words > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Filtre de Bloom trop grand : " + m + " bits");
+        }
+        this.bits = new AtomicLongArray((int) words);
+        this.bitCount = words * 64;
+        this.hashCount = Math.max(1, (int) Math.round((double) bitCount / n * Math.log(2)));
+    }
+
+    /**
+     * Ajoute la clé au filtre.
+     *
+     * @return true si la clé était peut-être déjà présente (tous ses bits étaient posés)
+     */
+    public boolean put(long key) {
+        long hash = mix(key);
+        long h1 = hash;
+        long h2 = mix(hash ^ 0x9E3779B97F4A7C15L) | 1;
+        boolean present = true;
+        for (int i = 0; i < hashCount; i++) {
+            long bit = Math.floorMod(h1 + i * h2, bitCount);
+            if (set(bit)) {
+                present = false;
+            }
+        }
+        if (!present) {
+            insertions.incrementAndGet();
+        }
+        return present;
+    }
+
+    // Pose le bit ; true s'il ne l'était pas
+    private boolean set(long bit) {
+        int word = (int) (bit >>> 6);
+        long mask = 1L << (bit & 63);
+        while (true) {
+            long current = bits.get(word);
+            if ((current & mask) != 0) {
+                return false;
+            }
+            if (bits.compareAndSet(word, current, current | mask)) {
+                return true;
+            }
+        }
+    }
+
+    // Finaliseur de MurmurHash3 : répartit les bits des clés proches (identifiants séquentiels)
+    private static long mix(long key) {
+        key ^= key >>> 33;
+        key *= 0xFF51AFD7ED558CCDL;
+        key ^= key >>> 33;
+        key *= 0xC4CEB9FE1A85EC53L;
+        key ^= key >>> 33;
+        return key;
+    }
+
+    // Clés distinctes ajoutées (approximatif : un faux positif n'est pas compté)
+    public long getInsertions() {
+        return insertions.get();
+    }
+
+    // Taux de faux positifs attendu au remplissage actuel
+    public double expectedFalsePositiveRate() {
+        return Math.pow(1 - Math.exp(-(double) hashCount * insertions.get() / bitCount), hashCount);
+    }
+
+    public long getSizeBytes() {
+        return bitCount / 8;
+    }
+}
@@ -0,0 +1,80 @@
+package com.example.springelasticproject.util;
+
+import com.github.luben.zstd.ZstdInputStream;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Ouverture des fichiers d'import éventuellement compressés (gzip, zstd), détectés par leur signature
+ * et non par leur extension. La décompression tourne sur son propre thread ({@link ReadAheadInputStream})
+ * et se recouvre avec le parsing : aucun fichier décompressé n'est écrit sur disque.
+ */
+public final class CompressedInput {
+
+    // Blocs décompressés d'avance : 8 x 1 Mo
+    private static final int BLOCK_SIZE = 1 << 20;
+    private static final int MAX_BLOCKS = 8;
+
+    public enum Format {
+        NONE, GZIP, ZSTD
+    }
+
+    private CompressedInput() {
+    }
+
+    public static Format detect(File file) throws IOException {
+        try (InputStream in = new FileInputStream(file)) {
+            byte[] magic = new byte[4];
+            return detect(magic, in.readNBytes(magic, 0, magic.length));
+        }
+    }
+
+    // gzip : 1F 8B ; zstd : 28 B5 2F FD
+    private static Format detect(byte[] magic, int length) {
+        if (length >= 2 && (magic[0] & 0xFF) == 0x1F && (magic[1] & 0xFF) == 0x8B) {
+            return Format.GZIP;
+        }
+        if (length >= 4 && (magic[0] & 0xFF) == 0x28 && (magic[1] & 0xFF) == 0xB5
+                && (magic[2] & 0xFF) == 0x2F && (magic[3] & 0xFF) == 0xFD) {
+            return Format.ZSTD;
+        }
+        return Format.NONE;
+    }
+
+    /**
+     * Flux décompressé du fichier ; un fichier non compressé est retourné tel quel (sans thread dédié).
+     */
+    public static InputStream open(File file) throws IOException {
+        Format format = detect(file);
+        InputStream in = new FileInputStream(file);
+        if (format == Format.NONE) {
+            return in;
+        }
+        return decompress(new BufferedInputStream(in, 1 << 16), format, "decompress-" + file.getName());
+    }
+
+    /**
+     * Même détection sur un flux déjà ouvert (corps d'une requête) : la signature est lue puis rejouée.
+     */
+    public static InputStream wrap(InputStream in, String name) throws IOException {
+        BufferedInputStream buffered = new BufferedInputStream(in, 1 << 16);
+        buffered.mark(4);
+        byte[] magic = new byte[4];
+        int length = buffered.readNBytes(magic, 0, magic.length);
+        buffered.reset();
+        Format format = detect(magic, length);
+        return format == Format.NONE ? buffered : decompress(buffered, format, "decompress-" + name);
+    }
+
+    private static InputStream decompress(InputStream in, Format format, String threadName) throws IOException {
+        InputStream decompressed = format == Format.GZIP
+                ? new GZIPInputStream(in, 1 << 16)
+                : new ZstdInputStream(in);
+        return new ReadAheadInputStream(decompressed, BLOCK_SIZE, MAX_BLOCKS, threadName);
+    }
+}
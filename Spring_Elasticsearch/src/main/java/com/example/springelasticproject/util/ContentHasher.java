@@ -0,0 +1,37 @@
+package com.example.springelasticproject.util;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.MapperFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import org.apache.commons.codec.digest.MurmurHash3;
+
+import java.io.UncheckedIOException;
+
+/**
+ * Empreinte du contenu d'un document : hash 128 bits de sa forme JSON canonique (propriétés et clés
+ * des Map triées), donc indépendante de l'ordre des champs dans le fichier source.
+ * Deux documents de même contenu ont toujours la même empreinte.
+ */
+public final class ContentHasher {
+
+    private static final ObjectMapper CANONICAL = JsonMapper.builder()
+            .enable(MapperFeature.SORT_PROPERTIES_ALPHABETICALLY)
+            .enable(SerializationFeature.ORDER_MAP_ENTRIES_BY_KEYS)
+            .build();
+
+    private ContentHasher() {
+    }
+
+    public static String hash(Object document) {
+        byte[] bytes;
+        try {
+            bytes = CANONICAL.writeValueAsBytes(document);
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException("Empreinte du document impossible", e);
+        }
+        long[] hash = MurmurHash3.hash128x64(bytes, 0, bytes.length, 0);
+        return String.format("%016x%016x", hash[0], hash[1]);
+    }
+}
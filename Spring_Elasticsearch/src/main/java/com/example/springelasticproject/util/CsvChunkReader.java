@@ -0,0 +1,186 @@
+package com.example.springelasticproject.util;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+
+/**
+ * Lit un flux CSV par blocs d'octets contenant uniquement des lignes complètes.
+ * Les blocs peuvent ensuite être parsés en parallèle avec {@link UserCsvTokenizer},
+ * sans créer d'objet par ligne entre le lecteur et les threads de conversion.
+ */
+public final class CsvChunkReader implements Closeable {
+
+    // Bloc de lignes complètes : data[start, end[
+    public static final class Chunk {
+        private final byte[] data;
+        private final int start;
+        private final int end;
+        private final long startOffset;
+        private final long firstLine;
+        private final long endLine;
+
+        Chunk(byte[] data, int start, int end, long startOffset, long firstLine, long endLine) {
+            this.data = data;
+            this.start = start;
+            this.end = end;
+            this.startOffset = startOffset;
+            this.firstLine = firstLine;
+            this.endLine = endLine;
+        }
+
+        // Tokenizer positionné sur le bloc (positions et numéros de ligne absolus)
+        public UserCsvTokenizer tokenizer() {
+            return new UserCsvTokenizer(data, start, end, startOffset - start, firstLine);
+        }
+
+        public long getStartOffset() {
+            return startOffset;
+        }
+
+        public long getEndOffset() {
+            return startOffset + (end - start);
+        }
+
+        public long getFirstLine() {
+            return firstLine;
+        }
+
+        // Première ligne qui suit le bloc
+        public long getEndLine() {
+            return endLine;
+        }
+
+        public int length() {
+            return end - start;
+        }
+    }
+
+    private final InputStream in;
+    private final int chunkSize;
+    private boolean skipHeader;
+    private boolean eof;
+
+    // Octets lus mais pas encore livrés (ligne incomplète à la fin du bloc précédent)
+    private byte[] carry = new byte[0];
+    private int carryLength;
+
+    // Position absolue et numéro de ligne du prochain octet livré
+    private long offset;
+    private long line;
+
+    public CsvChunkReader(InputStream in, int chunkSize, boolean skipHeader) {
+        this(in, chunkSize, skipHeader, 0, 1);
+    }
+
+    /**
+     * Lecteur positionné sur {@code startOffset} / {@code firstLine} (reprise d'un import interrompu).
+     */
+    public CsvChunkReader(InputStream in, int chunkSize, boolean skipHeader, long startOffset, long firstLine) {
+        this.in = in;
+        this.chunkSize = chunkSize;
+        this.skipHeader = skipHeader;
+        this.offset = startOffset;
+        this.line = firstLine;
+    }
+
+    /**
+     * Renvoie le bloc suivant, ou null en fin de flux.
+     */
+    public Chunk next() throws IOException {
+        byte[] data = new byte[Math.max(chunkSize, carryLength * 2)];
+        System.arraycopy(carry, 0, data, 0, carryLength);
+        int length = carryLength;
+        carryLength = 0;
+
+        int start = 0;
+        while (true) {
+            length = read(data, length);
+            if (length == 0) {
+                return null;
+            }
+
+            // Dernière fin de ligne hors guillemets et nombre de lignes avant elle
+            boolean inQuotes = false;
+            int boundary = -1;
+            int firstBoundary = -1;
+            long lines = 0;
+            long linesAtBoundary = 0;
+            long linesAtFirstBoundary = 0;
+            for (int i = start; i < length; i++) {
+                byte b = data[i];
+                if (b == '"') {
+                    inQuotes = !inQuotes;
+                } else if (b == '\n') {
+                    lines++;
+                    if (!inQuotes) {
+                        boundary = i + 1;
+                        linesAtBoundary = lines;
+                        if (firstBoundary < 0) {
+                            firstBoundary = boundary;
+                            linesAtFirstBoundary = lines;
+                        }
+                    }
+                }
+            }
+
+            if (eof) {
+                boundary = length;
+                linesAtBoundary = lines;
+                if (firstBoundary < 0) {
+                    firstBoundary = length;
+                    linesAtFirstBoundary = lines;
+                }
+            }
+
+            if (skipHeader && firstBoundary > 0) {
+                // L'en-tête est consommé sans être livré
+                skipHeader = false;
+                offset += firstBoundary - start;
+                line += linesAtFirstBoundary;
+                linesAtBoundary -= linesAtFirstBoundary;
+                start = firstBoundary;
+            }
+
+            if (boundary > start) {
+                carryLength = length - boundary;
+                if (carry.length < carryLength) {
+                    carry = new byte[Math.max(carryLength, chunkSize / 4)];
+                }
+                System.arraycopy(data, boundary, carry, 0, carryLength);
+
+                Chunk chunk = new Chunk(data, start, boundary, offset, line, line + linesAtBoundary);
+                offset += boundary - start;
+                line += linesAtBoundary;
+                return chunk;
+            }
+
+            if (eof) {
+                return null;
+            }
+            // Aucune ligne complète dans le bloc : on l'agrandit
+            if (length == data.length) {
+                data = Arrays.copyOf(data, data.length * 2);
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+
+    // Remplit le tableau jusqu'au bout ou jusqu'à la fin du flux
+    private int read(byte[] data, int length) throws IOException {
+        while (!eof && length < data.length) {
+            int read = in.read(data, length, data.length - length);
+            if (read < 0) {
+                eof = true;
+            } else {
+                length += read;
+            }
+        }
+        return length;
+    }
+}
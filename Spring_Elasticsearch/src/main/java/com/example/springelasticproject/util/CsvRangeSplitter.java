@@ -0,0 +1,189 @@
+package com.example.springelasticproject.util;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Découpe un fichier CSV en plages d'octets alignées sur les fins de ligne,
+ * pour que plusieurs threads puissent parser le fichier en parallèle.
+ * Les sauts de ligne à l'intérieur d'un champ entre guillemets ne sont jamais utilisés comme coupure.
+ */
+public final class CsvRangeSplitter {
+
+    // Taille des fenêtres mappées en mémoire (un MappedByteBuffer est limité à 2 Go)
+    private static final long WINDOW_SIZE = 64L * 1024 * 1024;
+
+    private CsvRangeSplitter() {
+    }
+
+    // Plage [start, end[ du fichier contenant uniquement des lignes complètes
+    public static final class Range {
+        private final long start;
+        private final long end;
+        private final long firstLine;
+
+        public Range(long start, long end, long firstLine) {
+            this.start = start;
+            this.end = end;
+            this.firstLine = firstLine;
+        }
+
+        public long getStart() {
+            return start;
+        }
+
+        public long getEnd() {
+            return end;
+        }
+
+        // Numéro de la ligne physique qui commence la plage (1 = en-tête)
+        public long getFirstLine() {
+            return firstLine;
+        }
+
+        public long length() {
+            return end - start;
+        }
+
+        @Override
+        public String toString() {
+            return "[" + start + ", " + end + "[";
+        }
+    }
+
+    /**
+     * Découpe le fichier (en-tête exclu) en au plus {@code parts} plages de tailles voisines.
+     * Un seul passage sur le fichier mappé suit l'état des guillemets pour trouver des coupures valides.
+     */
+    public static List<Range> split(Path file, int parts) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            List<Range> ranges = new ArrayList<>();
+
+            long[] headerLines = new long[1];
+            long dataStart = findBoundary(channel, 0, size, new long[0], headerLines)[0];
+            if (dataStart >= size) {
+                return ranges;
+            }
+
+            int count = Math.max(1, parts);
+            long[] targets = new long[count - 1];
+            long step = (size - dataStart) / count;
+            for (int i = 0; i < targets.length; i++) {
+                targets[i] = dataStart + step * (i + 1);
+            }
+
+            long[] lines = new long[targets.length];
+            long[] boundaries = targets.length > 0 ? findBoundary(channel, dataStart, size, targets, lines) : targets;
+            long start = dataStart;
+            long firstLine = 1 + headerLines[0];
+            for (int i = 0; i < boundaries.length; i++) {
+                if (boundaries[i] > start) {
+                    ranges.add(new Range(start, boundaries[i], firstLine));
+                    start = boundaries[i];
+                    firstLine = 1 + headerLines[0] + lines[i];
+                }
+            }
+            if (start < size) {
+                ranges.add(new Range(start, size, firstLine));
+            }
+            return ranges;
+        }
+    }
+
+    /**
+     * Ouvre un flux de lecture sur une plage, mappée en mémoire fenêtre par fenêtre.
+     */
+    public static InputStream openRange(FileChannel channel, Range range) {
+        return new MappedRangeInputStream(channel, range.getStart(), range.getEnd());
+    }
+
+    /*
+     * Parcourt le fichier depuis {@code from} en suivant l'état des guillemets.
+     * Sans cible, renvoie la fin de la première ligne (l'en-tête). Sinon, renvoie pour chaque cible
+     * la position qui suit le premier saut de ligne hors guillemets situé après elle.
+     * {@code lines} reçoit le nombre de lignes physiques parcourues jusqu'à chaque coupure.
+     */
+    private static long[] findBoundary(FileChannel channel, long from, long size, long[] targets,
+                                       long[] lines) throws IOException {
+        boolean headerOnly = targets.length == 0;
+        long[] boundaries = new long[headerOnly ? 1 : targets.length];
+        Arrays.fill(boundaries, size);
+
+        int next = 0;
+        long lineCount = 0;
+        boolean inQuotes = false;
+        long position = from;
+        while (position < size && next < boundaries.length) {
+            long windowSize = Math.min(WINDOW_SIZE, size - position);
+            MappedByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, position, windowSize);
+            for (int i = 0; i < windowSize && next < boundaries.length; i++) {
+                byte b = window.get(i);
+                if (b == '"') {
+                    inQuotes = !inQuotes;
+                } else if (b == '\n') {
+                    lineCount++;
+                    long absolute = position + i;
+                    while (!inQuotes && next < boundaries.length && (headerOnly || absolute >= targets[next])) {
+                        lines[next] = lineCount;
+                        boundaries[next++] = absolute + 1;
+                    }
+                }
+            }
+            position += windowSize;
+        }
+        return boundaries;
+    }
+
+    // Flux sur une plage du fichier, mappée par fenêtres successives
+    private static final class MappedRangeInputStream extends InputStream {
+        private final FileChannel channel;
+        private final long end;
+        private long position;
+        private MappedByteBuffer window;
+
+        private MappedRangeInputStream(FileChannel channel, long start, long end) {
+            this.channel = channel;
+            this.position = start;
+            this.end = end;
+        }
+
+        private boolean ensureWindow() throws IOException {
+            if (window != null && window.hasRemaining()) {
+                return true;
+            }
+            if (position >= end) {
+                return false;
+            }
+            long windowSize = Math.min(WINDOW_SIZE, end - position);
+            window = channel.map(FileChannel.MapMode.READ_ONLY, position, windowSize);
+            position += windowSize;
+            return true;
+        }
+
+        @Override
+        public int read() throws IOException {
+            return ensureWindow() ? window.get() & 0xFF : -1;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            if (length == 0) {
+                return 0;
+            }
+            if (!ensureWindow()) {
+                return -1;
+            }
+            int n = Math.min(length, window.remaining());
+            window.get(buffer, offset, n);
+            return n;
+        }
+    }
+}
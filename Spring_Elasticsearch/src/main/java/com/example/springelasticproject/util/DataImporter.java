@@ -1,351 +1,545 @@
 package com.example.springelasticproject.util;
 
+import co.elastic.clients.elasticsearch.ElasticsearchClient;
+import co.elastic.clients.elasticsearch.core.MgetResponse;
+import co.elastic.clients.elasticsearch.core.mget.MultiGetResponseItem;
+import com.example.springelasticproject.Services.BulkLoadIndexSettings;
+import com.example.springelasticproject.Services.ImportJob;
+import com.example.springelasticproject.Services.ImportJobManager;
+import com.example.springelasticproject.Services.IndexRebuilder;
 import com.example.springelasticproject.Services.RepairShopService;
 import com.example.springelasticproject.model.RepairShop;
-import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import com.fasterxml.jackson.databind.node.ObjectNode;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.CommandLineRunner;
+import org.springframework.data.elasticsearch.core.ElasticsearchOperations;
+import org.springframework.data.elasticsearch.core.mapping.IndexCoordinates;
 import org.springframework.stereotype.Component;
 
 import java.io.BufferedReader;
 import java.io.File;
-import java.io.FileReader;
 import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.ToIntFunction;
 
 @Component
 public class DataImporter implements CommandLineRunner {
 
     private static final Logger logger = LoggerFactory.getLogger(DataImporter.class);
+    // Lignes par bloc en mode de parsing parallèle
+    private static final int PARSE_CHUNK_LINES = 256;
     private final RepairShopService repairShopService;
-    private final ObjectMapper objectMapper;
+    // Lecture des lignes NDJSON en un passage (format snake_case du scraper, voir RepairShopDeserializer)
+    private final ObjectReader shopReader;
+    private final BulkLoadIndexSettings bulkLoadIndexSettings;
+    private final IndexRebuilder indexRebuilder;
+    private final ElasticsearchOperations elasticsearchOperations;
+    private final ImportJobManager importJobManager;
+    private final ElasticsearchClient elasticsearchClient;
+
+    // Mode chargement massif : refresh et réplicas désactivés pendant l'indexation des boutiques
+    @Value("${import.repairshops.bulk-load:false}")
+    private boolean bulkLoad;
+
+    // Taille des lots envoyés pendant la lecture du fichier (nombre de boutiques et volume JSON)
+    @Value("${import.repairshops.batch-size:500}")
+    private int batchSize;
+
+    @Value("${import.repairshops.batch-size-mb:16}")
+    private int batchSizeMb;
+
+    // Threads de parsing des lignes NDJSON (0 : un par cœur ; 1 : lecture et parsing sur le même thread)
+    @Value("${import.repairshops.parse-threads:0}")
+    private int parseThreads;
+
+    // Import delta : les boutiques dont l'empreinte n'a pas changé ne sont pas réindexées
+    @Value("${import.repairshops.delta.enabled:true}")
+    private boolean delta;
+
+    // Import au démarrage : fichier, ou répertoire filtré par le glob ; seulement si l'index est vide
+    @Value("${import.repairshops.startup.enabled:true}")
+    private boolean startupEnabled;
+
+    @Value("${import.repairshops.startup.path:}")
+    private String startupPath;
+
+    @Value("${import.repairshops.startup.glob:*.{ndjson,ndjson.gz,ndjson.zst}}")
+    private String startupGlob;
+
+    @Value("${import.repairshops.startup.only-if-empty:true}")
+    private boolean onlyIfEmpty;
+
+    private volatile ImportJob startupJob;
 
     @Autowired
-    public DataImporter(RepairShopService repairShopService, ObjectMapper objectMapper) {
+    public DataImporter(RepairShopService repairShopService, ObjectMapper objectMapper,
+                        BulkLoadIndexSettings bulkLoadIndexSettings, IndexRebuilder indexRebuilder,
+                        ElasticsearchOperations elasticsearchOperations, ImportJobManager importJobManager,
+                        ElasticsearchClient elasticsearchClient) {
         this.repairShopService = repairShopService;
-        this.objectMapper = objectMapper;
+        this.shopReader = objectMapper.copy()
+                .registerModule(new SimpleModule().addDeserializer(RepairShop.class, new RepairShopDeserializer()))
+                .readerFor(RepairShop.class);
+        this.bulkLoadIndexSettings = bulkLoadIndexSettings;
+        this.indexRebuilder = indexRebuilder;
+        this.elasticsearchOperations = elasticsearchOperations;
+        this.importJobManager = importJobManager;
+        this.elasticsearchClient = elasticsearchClient;
     }
 
+    /**
+     * Exécuté au démarrage de l'application : l'import est soumis au registre des imports et tourne en
+     * arrière-plan, le démarrage n'attend ni Elasticsearch ni la lecture des fichiers. La progression est
+     * consultable via /users/import/jobs.
+     */
     @Override
     public void run(String... args) {
-        // Exécuté au démarrage de l'application
-        if (repairShopService.count() == 0) {
-            logger.info("Aucune boutique trouvée dans l'index. Démarrage de l'importation...");
-            importDataFromNDJson("C:/Users/ayoub/Desktop/3.ndjson");
-        } else {
-            logger.info("Des boutiques existent déjà dans l'index. Import ignoré.");
+        if (!startupEnabled || startupPath.isBlank()) {
+            logger.info("Import des boutiques au démarrage désactivé");
+            return;
         }
+        startupJob = importJobManager.submit("repairshops:" + startupPath, this::importAtStartup);
     }
 
-    public void importDataFromNDJson(String filePath) {
-        List<RepairShop> shops = new ArrayList<>();
+    // Import de démarrage, sur le pool des imports
+    private void importAtStartup(ImportJob job) throws IOException {
+        if (onlyIfEmpty && repairShopService.count() > 0) {
+            logger.info("Des boutiques existent déjà dans l'index. Import ignoré.");
+            return;
+        }
+        List<File> files = startupFiles();
+        if (files.isEmpty()) {
+            logger.warn("Aucun fichier de boutiques à importer dans {} ({})", startupPath, startupGlob);
+            return;
+        }
+        logger.info("Démarrage de l'importation de {} fichier(s) de boutiques...", files.size());
+        for (File file : files) {
+            importDataFromNDJson(file.getPath(), false, job);
+        }
+    }
 
-        try (BufferedReader reader = new BufferedReader(new FileReader(filePath))) {
-            String line;
-            int lineCount = 0;
+    // Le chemin configuré est un fichier, ou un répertoire dont les fichiers correspondant au glob sont lus par nom
+    private List<File> startupFiles() throws IOException {
+        Path path = Path.of(startupPath);
+        if (!Files.isDirectory(path)) {
+            return Files.isRegularFile(path) ? List.of(path.toFile()) : List.of();
+        }
+        List<File> files = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(path, startupGlob)) {
+            for (Path entry : stream) {
+                if (Files.isRegularFile(entry)) {
+                    files.add(entry.toFile());
+                }
+            }
+        }
+        files.sort(Comparator.comparing(File::getName));
+        return files;
+    }
 
-            while ((line = reader.readLine()) != null) {
-                lineCount++;
-                try {
-                    JsonNode jsonNode = objectMapper.readTree(line);
-
-                    // Créer un objet RepairShop et définir les propriétés depuis jsonNode
-                    RepairShop shop = new RepairShop();
-
-                    // Propriétés principales
-                    shop.setPlaceId(getTextValue(jsonNode, "place_id"));
-                    shop.setName(getTextValue(jsonNode, "name"));
-                    shop.setDescription(getTextValue(jsonNode, "description"));
-                    shop.setIsSpendingOnAds(getBooleanValue(jsonNode, "is_spending_on_ads"));
-                    shop.setReviews(getIntValue(jsonNode, "reviews"));
-                    shop.setRating(getFloatValue(jsonNode, "rating"));
-
-                    // Adresse et localisation
-                    shop.setAddress(getTextValue(jsonNode, "address"));
-
-                    if (jsonNode.has("coordinates")) {
-                        JsonNode coordNode = jsonNode.get("coordinates");
-                        if (coordNode != null) {
-                            shop.setLatitude(getDoubleValue(coordNode, "latitude"));
-                            shop.setLongitude(getDoubleValue(coordNode, "longitude"));
-
-                            Map<String, Double> coordinates = new HashMap<>();
-                            coordinates.put("lat", getDoubleValue(coordNode, "latitude"));
-                            coordinates.put("lon", getDoubleValue(coordNode, "longitude"));
-                            shop.setCoordinates(coordinates);
-                        }
-                    }
+    /**
+     * Soumet le rechargement d'un fichier de boutiques au registre des imports : il s'exécute en
+     * arrière-plan et ses erreurs de lecture ou de bascule d'alias terminent le job en échec.
+     */
+    public ImportJob submitReload(File file, boolean rebuild) {
+        return importJobManager.submit("repairshops:" + file.getAbsolutePath(),
+                job -> importDataFromNDJson(file.getPath(), rebuild, job));
+    }
 
-                    if (jsonNode.has("detailed_address")) {
-                        JsonNode addrNode = jsonNode.get("detailed_address");
-                        if (addrNode != null) {
-                            shop.setWard(getTextValue(addrNode, "ward"));
-                            shop.setStreet(getTextValue(addrNode, "street"));
-                            shop.setCity(getTextValue(addrNode, "city"));
-                            shop.setPostalCode(getTextValue(addrNode, "postal_code"));
-                            shop.setState(getTextValue(addrNode, "state"));
-                            shop.setCountryCode(getTextValue(addrNode, "country_code"));
-                        }
-                    }
+    // Job de l'import de démarrage (null s'il est désactivé)
+    public ImportJob getStartupJob() {
+        return startupJob;
+    }
 
-                    // Propriétés de contact et site web
-                    shop.setWebsite(getTextValue(jsonNode, "website"));
-                    shop.setPhone(getTextValue(jsonNode, "phone"));
-                    shop.setCanClaim(getBooleanValue(jsonNode, "can_claim"));
-
-                    // Propriétaire
-                    if (jsonNode.has("owner")) {
-                        JsonNode ownerNode = jsonNode.get("owner");
-                        if (ownerNode != null) {
-                            shop.setOwnerId(getTextValue(ownerNode, "id"));
-                            shop.setOwnerName(getTextValue(ownerNode, "name"));
-                            shop.setOwnerLink(getTextValue(ownerNode, "link"));
-                        }
-                    }
+    public void importDataFromNDJson(String filePath) {
+        importDataFromNDJson(filePath, false, null);
+    }
 
-                    // Images
-                    shop.setFeaturedImage(getTextValue(jsonNode, "featured_image"));
-
-                    // Catégories
-                    shop.setMainCategory(getTextValue(jsonNode, "main_category"));
-                    if (jsonNode.has("categories") && jsonNode.get("categories").isArray()) {
-                        List<String> categories = new ArrayList<>();
-                        for (JsonNode cat : jsonNode.get("categories")) {
-                            categories.add(cat.asText());
-                        }
-                        shop.setCategories(categories);
-                    }
+    /**
+     * Import des boutiques ; avec {@code rebuild}, les boutiques sont chargées dans un nouvel index et
+     * l'alias {@code repairshops} n'y bascule que si le nombre de documents est cohérent.
+     * Avec un {@code job}, la progression y est reportée et l'import suit ses commandes (pause, annulation).
+     */
+    public void importDataFromNDJson(String filePath, boolean rebuild, ImportJob job) {
+        File file = new File(filePath);
+
+        if (rebuild) {
+            try (IndexRebuilder.Rebuild target = indexRebuilder.begin(RepairShop.class)) {
+                IndexCoordinates index = IndexCoordinates.of(target.getIndexName());
+                ShopStream stream = streamShops(file, batch -> {
+                    elasticsearchOperations.save(batch, index);
+                    return batch.size();
+                }, job, true);
+                if (stream.imported == 0) {
+                    // L'index en construction est supprimé à la fermeture, l'ancien reste servi
+                    logger.warn("Aucune boutique n'a été importée depuis le fichier");
+                    return;
+                }
+                target.commit(stream.distinctDocuments());
+                logger.info("{} boutiques importées avec succès dans un nouvel index", stream.imported);
+            } catch (IOException e) {
+                // Remonté à l'appelant : l'ancien index reste servi
+                throw new UncheckedIOException("Rechargement de l'index des boutiques échoué", e);
+            }
+            return;
+        }
 
-                    // Horaires
-                    shop.setWorkdayTiming(getTextValue(jsonNode, "workday_timing"));
-                    shop.setIsTemporarilyClosed(getBooleanValue(jsonNode, "is_temporarily_closed"));
-                    shop.setIsPermanentlyClosed(getBooleanValue(jsonNode, "is_permanently_closed"));
-
-                    if (jsonNode.has("closed_on") && jsonNode.get("closed_on").isArray()) {
-                        List<String> closedOn = new ArrayList<>();
-                        for (JsonNode day : jsonNode.get("closed_on")) {
-                            closedOn.add(day.asText());
-                        }
-                        shop.setClosedOn(closedOn);
-                    }
+        repairShopService.createIndex();
+        String indexName = elasticsearchOperations.getIndexCoordinatesFor(RepairShop.class).getIndexName();
+        // Retourne le nombre de boutiques envoyées : en delta, les boutiques inchangées ne le sont pas
+        ToIntFunction<List<RepairShop>> sink = batch -> {
+            List<RepairShop> changed = delta ? changedOnly(batch, indexName) : batch;
+            if (!changed.isEmpty()) {
+                repairShopService.indexAllShops(changed);
+            }
+            return changed.size();
+        };
+        try {
+            ShopStream stream;
+            if (bulkLoad) {
+                // Les réglages de l'index sont restaurés à la fermeture, même en cas d'échec
+                try (BulkLoadIndexSettings.Lease lease = bulkLoadIndexSettings.acquire(RepairShop.class)) {
+                    stream = streamShops(file, sink, job, false);
+                    lease.markSucceeded();
+                }
+            } else {
+                stream = streamShops(file, sink, job, false);
+            }
+            if (stream.imported > 0) {
+                logger.info("{} boutiques importées avec succès ({} inchangées, non réindexées)",
+                        stream.imported - stream.unchanged, stream.unchanged);
+            } else {
+                logger.warn("Aucune boutique n'a été importée depuis le fichier");
+            }
+        } catch (IOException e) {
+            // Les lots déjà envoyés restent indexés
+            logger.error("Erreur lors de la lecture du fichier {} : {}", filePath, e.getMessage());
+            if (job != null) {
+                throw new UncheckedIOException("Lecture du fichier " + filePath + " interrompue", e);
+            }
+        }
+    }
 
-                    // Autres champs
-                    shop.setLink(getTextValue(jsonNode, "link"));
-                    shop.setStatus(getTextValue(jsonNode, "status"));
-                    shop.setPriceRange(getTextValue(jsonNode, "price_range"));
-                    shop.setPlusCode(getTextValue(jsonNode, "plus_code"));
-                    shop.setTimeZone(getTextValue(jsonNode, "time_zone"));
-                    shop.setCid(getTextValue(jsonNode, "cid"));
-                    shop.setDataId(getTextValue(jsonNode, "data_id"));
-                    shop.setQuery(getTextValue(jsonNode, "query"));
-
-                    // Conversion des objets complexes en Map pour les stocker dans la classe unique
-                    if (jsonNode.has("reviews_per_rating")) {
-                        Map<String, Integer> reviewsPerRating = new HashMap<>();
-                        JsonNode ratingsNode = jsonNode.get("reviews_per_rating");
-                        ratingsNode.fields().forEachRemaining(entry -> {
-                            reviewsPerRating.put(entry.getKey(), entry.getValue().asInt());
-                        });
-                        shop.setReviewsPerRating(reviewsPerRating);
-                    }
+    /**
+     * Import delta : retire du lot les boutiques dont l'empreinte est celle du document déjà indexé
+     * (lecture de la seule empreinte, par identifiant). Les boutiques sans placeId sont toujours envoyées.
+     */
+    private List<RepairShop> changedOnly(List<RepairShop> batch, String indexName) {
+        List<String> ids = batch.stream()
+                .map(RepairShop::getPlaceId)
+                .filter(Objects::nonNull)
+                .distinct()
+                .toList();
+        if (ids.isEmpty()) {
+            return batch;
+        }
 
-                    // Conversion des competitors en liste de Map
-                    if (jsonNode.has("competitors") && jsonNode.get("competitors").isArray()) {
-                        List<Map<String, Object>> competitors = new ArrayList<>();
-                        for (JsonNode comp : jsonNode.get("competitors")) {
-                            Map<String, Object> competitor = new HashMap<>();
-                            competitor.put("name", getTextValue(comp, "name"));
-                            competitor.put("link", getTextValue(comp, "link"));
-                            competitor.put("reviews", getIntValue(comp, "reviews"));
-                            competitor.put("rating", getFloatValue(comp, "rating"));
-                            competitor.put("mainCategory", getTextValue(comp, "main_category"));
-                            competitors.add(competitor);
-                        }
-                        shop.setCompetitors(competitors);
+        Map<String, String> stored = new HashMap<>();
+        try {
+            MgetResponse<ObjectNode> response = elasticsearchClient.mget(m -> m
+                    .index(indexName)
+                    .ids(ids)
+                    .sourceIncludes("contentHash"), ObjectNode.class);
+            for (MultiGetResponseItem<ObjectNode> item : response.docs()) {
+                if (item.isResult() && item.result().found() && item.result().source() != null) {
+                    String hash = item.result().source().path("contentHash").asText(null);
+                    if (hash != null) {
+                        stored.put(item.result().id(), hash);
                     }
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Lecture des empreintes des boutiques impossible", e);
+        }
 
-                    // Conversion des review_keywords en liste de Map
-                    if (jsonNode.has("review_keywords") && jsonNode.get("review_keywords").isArray()) {
-                        List<Map<String, Object>> reviewKeywords = new ArrayList<>();
-                        for (JsonNode kw : jsonNode.get("review_keywords")) {
-                            Map<String, Object> keyword = new HashMap<>();
-                            keyword.put("keyword", getTextValue(kw, "keyword"));
-                            keyword.put("count", getIntValue(kw, "count"));
-                            reviewKeywords.add(keyword);
-                        }
-                        shop.setReviewKeywords(reviewKeywords);
-                    }
+        List<RepairShop> changed = new ArrayList<>(batch.size());
+        for (RepairShop shop : batch) {
+            if (shop.getPlaceId() == null || !shop.getContentHash().equals(stored.get(shop.getPlaceId()))) {
+                changed.add(shop);
+            }
+        }
+        return changed;
+    }
 
-                    // Conversion des about en liste de Map
-                    if (jsonNode.has("about") && jsonNode.get("about").isArray()) {
-                        List<Map<String, Object>> aboutList = new ArrayList<>();
-                        for (JsonNode aboutNode : jsonNode.get("about")) {
-                            Map<String, Object> about = new HashMap<>();
-                            about.put("id", getTextValue(aboutNode, "id"));
-                            about.put("name", getTextValue(aboutNode, "name"));
-
-                            if (aboutNode.has("options") && aboutNode.get("options").isArray()) {
-                                List<Map<String, Object>> options = new ArrayList<>();
-                                for (JsonNode opt : aboutNode.get("options")) {
-                                    Map<String, Object> option = new HashMap<>();
-                                    option.put("name", getTextValue(opt, "name"));
-                                    option.put("enabled", getBooleanValue(opt, "enabled"));
-                                    options.add(option);
-                                }
-                                about.put("options", options);
-                            }
-
-                            aboutList.add(about);
-                        }
-                        shop.setAbout(aboutList);
-                    }
+    /**
+     * Lit le fichier ligne à ligne et envoie les boutiques par lots bornés (nombre de boutiques et taille
+     * des lignes JSON) : seul le lot en cours est gardé en mémoire, quelle que soit la taille du fichier.
+     * Avec plusieurs threads de parsing, les lignes sont lues par blocs parsés en parallèle ; les blocs
+     * sont remis au lot dans l'ordre du fichier et leur nombre en vol est borné.
+     * {@code countDistinct} conserve les placeId lus, pour le contrôle du rechargement complet.
+     */
+    private ShopStream streamShops(File file, ToIntFunction<List<RepairShop>> sink, ImportJob job,
+                                   boolean countDistinct) throws IOException {
+        ShopStream stream = new ShopStream(sink, job, batchSize, batchSizeMb * 1024L * 1024L, countDistinct);
+        int threads = parseThreads > 0 ? parseThreads : Runtime.getRuntime().availableProcessors();
+
+        // Fichier .ndjson, .ndjson.gz ou .ndjson.zst : décompression en flux sur un thread dédié
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+                CompressedInput.open(file), StandardCharsets.UTF_8), 1 << 16)) {
+            if (threads <= 1) {
+                readSequential(reader, stream, job);
+            } else {
+                readParallel(reader, stream, job, threads);
+            }
+        }
+        stream.flush();
+        return stream;
+    }
 
-                    // Conversion des images en liste de Map
-                    if (jsonNode.has("images") && jsonNode.get("images").isArray()) {
-                        List<Map<String, String>> imagesList = new ArrayList<>();
-                        for (JsonNode imgNode : jsonNode.get("images")) {
-                            Map<String, String> image = new HashMap<>();
-                            image.put("about", getTextValue(imgNode, "about"));
-                            image.put("link", getTextValue(imgNode, "link"));
-                            imagesList.add(image);
-                        }
-                        shop.setImages(imagesList);
-                    }
+    private void readSequential(BufferedReader reader, ShopStream stream, ImportJob job) throws IOException {
+        String line;
+        int lineCount = 0;
 
-                    // Conversion des hours en liste de Map
-                    if (jsonNode.has("hours") && jsonNode.get("hours").isArray()) {
-                        List<Map<String, Object>> hoursList = new ArrayList<>();
-                        for (JsonNode hourNode : jsonNode.get("hours")) {
-                            Map<String, Object> hour = new HashMap<>();
-                            hour.put("day", getTextValue(hourNode, "day"));
-
-                            if (hourNode.has("times") && hourNode.get("times").isArray()) {
-                                List<String> times = new ArrayList<>();
-                                for (JsonNode time : hourNode.get("times")) {
-                                    times.add(time.asText());
-                                }
-                                hour.put("times", times);
-                            }
-
-                            hoursList.add(hour);
-                        }
-                        shop.setHours(hoursList);
-                    }
+        while ((line = reader.readLine()) != null) {
+            lineCount++;
+            if (line.isBlank()) {
+                continue;
+            }
+            if (job != null) {
+                awaitRunnable(job);
+                job.rowRead();
+            }
+            RepairShop shop = parseLine(line, lineCount, job);
+            if (shop != null) {
+                stream.add(shop, line.length());
+            }
+        }
+    }
 
-                    // Conversion des featured_reviews en liste de Map
-                    if (jsonNode.has("featured_reviews") && jsonNode.get("featured_reviews").isArray()) {
-                        List<Map<String, Object>> reviewsList = new ArrayList<>();
-                        for (JsonNode reviewNode : jsonNode.get("featured_reviews")) {
-                            Map<String, Object> review = new HashMap<>();
-
-                            // Propriétés de base de la review
-                            review.put("reviewId", getTextValue(reviewNode, "review_id"));
-                            review.put("reviewLink", getTextValue(reviewNode, "review_link"));
-                            review.put("name", getTextValue(reviewNode, "name"));
-                            review.put("reviewerId", getTextValue(reviewNode, "reviewer_id"));
-                            review.put("reviewerProfile", getTextValue(reviewNode, "reviewer_profile"));
-                            review.put("rating", getIntValue(reviewNode, "rating"));
-                            review.put("reviewText", getTextValue(reviewNode, "review_text"));
-                            review.put("publishedAt", getTextValue(reviewNode, "published_at"));
-                            review.put("responseFromOwnerText", getTextValue(reviewNode, "response_from_owner_text"));
-                            review.put("responseFromOwnerAgo", getTextValue(reviewNode, "response_from_owner_ago"));
-                            review.put("isLocalGuide", getBooleanValue(reviewNode, "is_local_guide"));
-                            review.put("reviewTranslatedText", getTextValue(reviewNode, "review_translated_text"));
-                            review.put("responseFromOwnerTranslatedText", getTextValue(reviewNode, "response_from_owner_translated_text"));
-
-                            // Photos
-                            if (reviewNode.has("review_photos") && reviewNode.get("review_photos").isArray()) {
-                                List<Map<String, Object>> photosList = new ArrayList<>();
-                                for (JsonNode photoNode : reviewNode.get("review_photos")) {
-                                    Map<String, Object> photo = new HashMap<>();
-                                    photo.put("id", getTextValue(photoNode, "id"));
-                                    photo.put("url", getTextValue(photoNode, "url"));
-                                    photo.put("caption", getTextValue(photoNode, "caption"));
-                                    photo.put("width", getIntValue(photoNode, "width"));
-                                    photo.put("height", getIntValue(photoNode, "height"));
-                                    photosList.add(photo);
-                                }
-                                review.put("reviewPhotos", photosList);
-                            }
-
-                            reviewsList.add(review);
-                        }
-                        shop.setFeaturedReviews(reviewsList);
-                    }
+    private void readParallel(BufferedReader reader, ShopStream stream, ImportJob job, int threads)
+            throws IOException {
+        ExecutorService pool = Executors.newFixedThreadPool(threads, parseThreadFactory());
+        // Blocs soumis, dans l'ordre du fichier ; au-delà de 2 par thread, la lecture attend le plus ancien
+        Deque<Future<ParsedChunk>> inFlight = new ArrayDeque<>();
+        try {
+            String line;
+            int lineCount = 0;
+            LineChunk chunk = new LineChunk();
 
-                    // Conversion des detailed_reviews
-                    if (jsonNode.has("detailed_reviews") && jsonNode.get("detailed_reviews").isArray()) {
-                        List<Map<String, Object>> detailedReviewsList = new ArrayList<>();
-                        for (JsonNode reviewNode : jsonNode.get("detailed_reviews")) {
-                            // Similaire à featured_reviews, mais à laisser vide pour simplifier
-                            Map<String, Object> review = new HashMap<>();
-                            // (même logique que pour featured_reviews)
-                            detailedReviewsList.add(review);
-                        }
-                        shop.setDetailedReviews(detailedReviewsList);
+            while ((line = reader.readLine()) != null) {
+                lineCount++;
+                if (line.isBlank()) {
+                    continue;
+                }
+                if (job != null) {
+                    awaitRunnable(job);
+                    job.rowRead();
+                }
+                chunk.add(line, lineCount);
+                if (chunk.size() >= PARSE_CHUNK_LINES) {
+                    LineChunk full = chunk;
+                    inFlight.add(pool.submit(() -> parseChunk(full, job)));
+                    chunk = new LineChunk();
+                    if (inFlight.size() >= threads * 2) {
+                        stream.add(awaitChunk(inFlight.poll(), job));
                     }
-
-                    // Ajout à la liste des boutiques
-                    shops.add(shop);
-                    logger.debug("Ligne {} parsée : {}", lineCount, shop.getName());
-
-                } catch (Exception e) {
-                    logger.error("Erreur lors du parsing de la ligne {} : {}", lineCount, e.getMessage());
                 }
             }
+            if (chunk.size() > 0) {
+                LineChunk last = chunk;
+                inFlight.add(pool.submit(() -> parseChunk(last, job)));
+            }
+            while (!inFlight.isEmpty()) {
+                stream.add(awaitChunk(inFlight.poll(), job));
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+    }
 
-            if (!shops.isEmpty()) {
-                repairShopService.createIndex();
-                repairShopService.indexAllShops(shops);
-                logger.info("{} boutiques importées avec succès", shops.size());
-            } else {
-                logger.warn("Aucune boutique n'a été importée depuis le fichier");
+    private ParsedChunk parseChunk(LineChunk chunk, ImportJob job) {
+        ParsedChunk parsed = new ParsedChunk(chunk.size());
+        for (int i = 0; i < chunk.size(); i++) {
+            String line = chunk.lines.get(i);
+            RepairShop shop = parseLine(line, chunk.numbers[i], job);
+            if (shop != null) {
+                parsed.shops.add(shop);
+                parsed.bytes += line.length();
             }
+        }
+        return parsed;
+    }
 
-        } catch (IOException e) {
-            logger.error("Erreur lors de la lecture du fichier {} : {}", filePath, e.getMessage());
+    // Boutique de la ligne, avec son empreinte ; null si la ligne est invalide (erreur journalisée)
+    private RepairShop parseLine(String line, int lineNumber, ImportJob job) {
+        try {
+            RepairShop shop = shopReader.readValue(line);
+            shop.setContentHash(ContentHasher.hash(shop));
+            logger.debug("Ligne {} parsée : {}", lineNumber, shop.getName());
+            return shop;
+        } catch (Exception e) {
+            logger.error("Erreur lors du parsing de la ligne {} : {}", lineNumber, e.getMessage());
+            if (job != null) {
+                job.recordFailed();
+            }
+            return null;
         }
     }
 
-    // Méthodes utilitaires pour extraire les valeurs du JSON
-    private String getTextValue(JsonNode node, String fieldName) {
-        if (node.has(fieldName) && !node.get(fieldName).isNull()) {
-            return node.get(fieldName).asText();
+    private static ParsedChunk awaitChunk(Future<ParsedChunk> future, ImportJob job) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CancellationException("Import " + (job != null ? job.getId() : "") + " interrompu");
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof RuntimeException runtime ? runtime : new IllegalStateException(e.getCause());
         }
-        return null;
     }
 
-    private Integer getIntValue(JsonNode node, String fieldName) {
-        if (node.has(fieldName) && !node.get(fieldName).isNull()) {
-            return node.get(fieldName).asInt();
+    private static ThreadFactory parseThreadFactory() {
+        AtomicInteger count = new AtomicInteger();
+        return r -> {
+            Thread thread = new Thread(r, "ndjson-parse-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    // Pause et annulation du job (l'annulation remonte en CancellationException)
+    private static void awaitRunnable(ImportJob job) {
+        try {
+            job.awaitRunnable();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CancellationException("Import " + job.getId() + " interrompu");
         }
-        return null;
     }
 
-    private Float getFloatValue(JsonNode node, String fieldName) {
-        if (node.has(fieldName) && !node.get(fieldName).isNull()) {
-            return (float) node.get(fieldName).asDouble();
+    // Lignes lues, à parser par un même thread
+    private static final class LineChunk {
+        private final List<String> lines = new ArrayList<>(PARSE_CHUNK_LINES);
+        private final int[] numbers = new int[PARSE_CHUNK_LINES];
+
+        private void add(String line, int number) {
+            numbers[lines.size()] = number;
+            lines.add(line);
+        }
+
+        private int size() {
+            return lines.size();
         }
-        return null;
     }
 
-    private Double getDoubleValue(JsonNode node, String fieldName) {
-        if (node.has(fieldName) && !node.get(fieldName).isNull()) {
-            return node.get(fieldName).asDouble();
+    private static final class ParsedChunk {
+        private final List<RepairShop> shops;
+        private long bytes;
+
+        private ParsedChunk(int capacity) {
+            this.shops = new ArrayList<>(capacity);
         }
-        return null;
     }
 
-    private Boolean getBooleanValue(JsonNode node, String fieldName) {
-        if (node.has(fieldName) && !node.get(fieldName).isNull()) {
-            return node.get(fieldName).asBoolean();
+    /**
+     * Lot en cours et bilan d'une lecture : le lot est envoyé dès qu'il atteint sa taille maximale.
+     * Lors d'un rechargement complet seulement, les identifiants sont conservés pour le contrôle du nombre
+     * de documents ; un import incrémental garde une mémoire bornée par le lot.
+     */
+    private static final class ShopStream {
+        // Envoie le lot et retourne le nombre de boutiques réellement écrites
+        private final ToIntFunction<List<RepairShop>> sink;
+        private final ImportJob job;
+        private final int maxShops;
+        private final long maxBytes;
+        private List<RepairShop> batch;
+        private long batchBytes;
+
+        private long imported;
+        // Boutiques lues mais non envoyées (import delta : empreinte identique au document indexé)
+        private long unchanged;
+        // null hors rechargement complet : aucun identifiant n'est conservé
+        private final Set<String> placeIds;
+        private long withoutId;
+
+        private ShopStream(ToIntFunction<List<RepairShop>> sink, ImportJob job, int maxShops, long maxBytes,
+                           boolean countDistinct) {
+            this.sink = sink;
+            this.job = job;
+            this.maxShops = maxShops;
+            this.maxBytes = maxBytes;
+            this.batch = new ArrayList<>(maxShops);
+            this.placeIds = countDistinct ? new HashSet<>() : null;
+        }
+
+        private void add(RepairShop shop, long bytes) {
+            batch.add(shop);
+            batchBytes += bytes;
+            track(shop);
+            if (batch.size() >= maxShops || batchBytes >= maxBytes) {
+                flush();
+            }
+        }
+
+        // Un bloc parsé en parallèle est ajouté d'un coup : le lot peut dépasser sa taille d'un bloc au plus
+        private void add(ParsedChunk chunk) {
+            batch.addAll(chunk.shops);
+            batchBytes += chunk.bytes;
+            chunk.shops.forEach(this::track);
+            if (batch.size() >= maxShops || batchBytes >= maxBytes) {
+                flush();
+            }
+        }
+
+        private void flush() {
+            if (batch.isEmpty()) {
+                return;
+            }
+            int written = sink.applyAsInt(batch);
+            imported += batch.size();
+            unchanged += batch.size() - written;
+            if (job != null) {
+                job.recordsIndexed(written);
+                job.recordsUnchanged(batch.size() - written);
+            }
+            logger.debug("Lot de {} boutiques indexé ({} lues au total, {} inchangées)", written, imported, unchanged);
+            batch = new ArrayList<>(maxShops);
+            batchBytes = 0;
+        }
+
+        private void track(RepairShop shop) {
+            if (placeIds == null) {
+                return;
+            }
+            if (shop.getPlaceId() == null) {
+                withoutId++;
+            } else {
+                placeIds.add(shop.getPlaceId());
+            }
+        }
+
+        // Documents attendus : un par placeId distinct, un par boutique sans placeId (identifiant généré)
+        private long distinctDocuments() {
+            if (placeIds == null) {
+                throw new IllegalStateException("Identifiants non conservés hors rechargement complet");
+            }
+            return placeIds.size() + withoutId;
         }
-        return null;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,52 @@
+package com.example.springelasticproject.util;
+
+import java.util.Arrays;
+
+/**
+ * Fenêtre glissante des dernières latences mesurées (en millisecondes), pour calculer des percentiles
+ * sans conserver tout l'historique.
+ */
+public final class LatencyWindow {
+
+    private final long[] samples;
+    private int next;
+    private int size;
+    private long count;
+
+    public LatencyWindow(int capacity) {
+        this.samples = new long[capacity];
+    }
+
+    public synchronized void record(long millis) {
+        samples[next] = millis;
+        next = (next + 1) % samples.length;
+        size = Math.min(size + 1, samples.length);
+        count++;
+    }
+
+    // Nombre total de mesures depuis la création
+    public synchronized long count() {
+        return count;
+    }
+
+    /**
+     * Percentiles demandés (entre 0 et 100) sur la fenêtre courante ; 0 si aucune mesure.
+     */
+    public long[] percentiles(double... percents) {
+        long[] sorted;
+        synchronized (this) {
+            sorted = Arrays.copyOf(samples, size);
+        }
+        Arrays.sort(sorted);
+
+        long[] values = new long[percents.length];
+        if (sorted.length == 0) {
+            return values;
+        }
+        for (int i = 0; i < percents.length; i++) {
+            int rank = (int) Math.ceil(percents[i] / 100.0 * sorted.length) - 1;
+            values[i] = sorted[Math.max(0, Math.min(rank, sorted.length - 1))];
+        }
+        return values;
+    }
+}
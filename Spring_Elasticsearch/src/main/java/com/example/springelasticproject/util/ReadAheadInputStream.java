@@ -0,0 +1,120 @@
+package com.example.springelasticproject.util;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Lit un flux sur un thread dédié et met à disposition ses blocs via une file bornée : la lecture
+ * (ou la décompression) de la source se fait pendant que l'appelant parse les blocs précédents.
+ */
+public final class ReadAheadInputStream extends InputStream {
+
+    // Marqueur de fin de flux (ou d'erreur de lecture)
+    private static final byte[] END = new byte[0];
+
+    private final InputStream source;
+    private final BlockingQueue<byte[]> blocks;
+    private final Thread reader;
+    private volatile Throwable failure;
+    private volatile boolean closed;
+
+    private byte[] current;
+    private int position;
+
+    public ReadAheadInputStream(InputStream source, int blockSize, int maxBlocks, String threadName) {
+        this.source = source;
+        this.blocks = new ArrayBlockingQueue<>(maxBlocks);
+        this.reader = new Thread(() -> readAhead(blockSize), threadName);
+        this.reader.setDaemon(true);
+        this.reader.start();
+    }
+
+    private void readAhead(int blockSize) {
+        try {
+            while (!closed) {
+                byte[] block = new byte[blockSize];
+                int filled = 0;
+                int n;
+                while (filled < blockSize && (n = source.read(block, filled, blockSize - filled)) > 0) {
+                    filled += n;
+                }
+                if (filled == 0) {
+                    break;
+                }
+                enqueue(filled < blockSize ? Arrays.copyOf(block, filled) : block);
+            }
+        } catch (Throwable e) {
+            failure = e;
+        } finally {
+            try {
+                source.close();
+            } catch (IOException ignored) {
+                // fermeture de la source après lecture complète ou abandon : rien à signaler
+            }
+            try {
+                enqueue(END);
+            } catch (InterruptedException ignored) {
+                // flux fermé par le lecteur
+            }
+        }
+    }
+
+    // Attente bornée pour s'arrêter si le flux est fermé sans être lu jusqu'au bout
+    private void enqueue(byte[] block) throws InterruptedException {
+        while (!closed && !blocks.offer(block, 100, TimeUnit.MILLISECONDS)) {
+            // file pleine : le parsing est plus lent que la lecture
+        }
+    }
+
+    @Override
+    public int read() throws IOException {
+        byte[] one = new byte[1];
+        int n = read(one, 0, 1);
+        return n < 0 ? -1 : one[0] & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        if (current == null || position >= current.length) {
+            if (current == END) {
+                return -1;
+            }
+            try {
+                current = blocks.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Lecture interrompue");
+            }
+            position = 0;
+            if (current == END) {
+                Throwable error = failure;
+                if (error != null) {
+                    throw error instanceof IOException ? (IOException) error : new IOException(error);
+                }
+                return -1;
+            }
+        }
+        int n = Math.min(len, current.length - position);
+        System.arraycopy(current, position, b, off, n);
+        position += n;
+        return n;
+    }
+
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        reader.interrupt();
+        blocks.clear();
+    }
+}
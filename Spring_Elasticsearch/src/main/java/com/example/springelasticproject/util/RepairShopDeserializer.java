@@ -0,0 +1,384 @@
+package com.example.springelasticproject.util;
+
+import com.example.springelasticproject.model.RepairShop;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.deser.std.StdDeserializer;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Lecture d'une ligne NDJSON de boutique (format du scraper, en snake_case) directement en {@link RepairShop},
+ * en un seul passage sur les jetons du parseur : pas d'arbre {@code JsonNode} intermédiaire.
+ * Les objets imbriqués (concurrents, avis, horaires...) deviennent les mêmes Map que l'ancien mapping manuel :
+ * clés en camelCase, toutes présentes (null si absentes du JSON). Les champs inconnus sont ignorés.
+ * <p>
+ * Réservé à l'import : il n'est pas enregistré sur l'ObjectMapper de l'application, dont l'API REST
+ * lit les boutiques dans leur format camelCase.
+ */
+public class RepairShopDeserializer extends StdDeserializer<RepairShop> {
+
+    private enum Kind { TEXT, INT, FLOAT, BOOLEAN }
+
+    // Champ d'un objet imbriqué : clé dans la Map produite et type de valeur
+    private static final class Attr {
+        private final String key;
+        private final Kind kind;
+
+        private Attr(String key, Kind kind) {
+            this.key = key;
+            this.kind = kind;
+        }
+    }
+
+    // Lecture d'un champ imbriqué particulier (liste dans un objet) ; false si le champ n'est pas géré
+    @FunctionalInterface
+    private interface NestedReader {
+        boolean read(String field, JsonParser p, Map<String, Object> target) throws IOException;
+    }
+
+    private static final NestedReader NONE = (field, p, target) -> false;
+
+    private static final Map<String, Attr> COMPETITOR = Map.of(
+            "name", new Attr("name", Kind.TEXT),
+            "link", new Attr("link", Kind.TEXT),
+            "reviews", new Attr("reviews", Kind.INT),
+            "rating", new Attr("rating", Kind.FLOAT),
+            "main_category", new Attr("mainCategory", Kind.TEXT));
+
+    private static final Map<String, Attr> REVIEW_KEYWORD = Map.of(
+            "keyword", new Attr("keyword", Kind.TEXT),
+            "count", new Attr("count", Kind.INT));
+
+    private static final Map<String, Attr> ABOUT = Map.of(
+            "id", new Attr("id", Kind.TEXT),
+            "name", new Attr("name", Kind.TEXT));
+
+    private static final Map<String, Attr> ABOUT_OPTION = Map.of(
+            "name", new Attr("name", Kind.TEXT),
+            "enabled", new Attr("enabled", Kind.BOOLEAN));
+
+    private static final Map<String, Attr> IMAGE = Map.of(
+            "about", new Attr("about", Kind.TEXT),
+            "link", new Attr("link", Kind.TEXT));
+
+    private static final Map<String, Attr> HOUR = Map.of(
+            "day", new Attr("day", Kind.TEXT));
+
+    private static final Map<String, Attr> REVIEW = Map.ofEntries(
+            Map.entry("review_id", new Attr("reviewId", Kind.TEXT)),
+            Map.entry("review_link", new Attr("reviewLink", Kind.TEXT)),
+            Map.entry("name", new Attr("name", Kind.TEXT)),
+            Map.entry("reviewer_id", new Attr("reviewerId", Kind.TEXT)),
+            Map.entry("reviewer_profile", new Attr("reviewerProfile", Kind.TEXT)),
+            Map.entry("rating", new Attr("rating", Kind.INT)),
+            Map.entry("review_text", new Attr("reviewText", Kind.TEXT)),
+            Map.entry("published_at", new Attr("publishedAt", Kind.TEXT)),
+            Map.entry("response_from_owner_text", new Attr("responseFromOwnerText", Kind.TEXT)),
+            Map.entry("response_from_owner_ago", new Attr("responseFromOwnerAgo", Kind.TEXT)),
+            Map.entry("is_local_guide", new Attr("isLocalGuide", Kind.BOOLEAN)),
+            Map.entry("review_translated_text", new Attr("reviewTranslatedText", Kind.TEXT)),
+            Map.entry("response_from_owner_translated_text", new Attr("responseFromOwnerTranslatedText", Kind.TEXT)));
+
+    private static final Map<String, Attr> REVIEW_PHOTO = Map.of(
+            "id", new Attr("id", Kind.TEXT),
+            "url", new Attr("url", Kind.TEXT),
+            "caption", new Attr("caption", Kind.TEXT),
+            "width", new Attr("width", Kind.INT),
+            "height", new Attr("height", Kind.INT));
+
+    public RepairShopDeserializer() {
+        super(RepairShop.class);
+    }
+
+    @Override
+    public RepairShop deserialize(JsonParser p, DeserializationContext ctxt) throws IOException {
+        if (!p.isExpectedStartObjectToken()) {
+            return (RepairShop) ctxt.handleUnexpectedToken(RepairShop.class, p);
+        }
+        RepairShop shop = new RepairShop();
+
+        for (String field = p.nextFieldName(); field != null; field = p.nextFieldName()) {
+            p.nextToken();
+            switch (field) {
+                // Propriétés principales
+                case "place_id" -> shop.setPlaceId(text(p));
+                case "name" -> shop.setName(text(p));
+                case "description" -> shop.setDescription(text(p));
+                case "is_spending_on_ads" -> shop.setIsSpendingOnAds(bool(p));
+                case "reviews" -> shop.setReviews(integer(p));
+                case "rating" -> shop.setRating(floating(p));
+
+                // Adresse et localisation
+                case "address" -> shop.setAddress(text(p));
+                case "coordinates" -> readCoordinates(p, shop);
+                case "detailed_address" -> readDetailedAddress(p, shop);
+
+                // Contact, propriétaire, images, catégories
+                case "website" -> shop.setWebsite(text(p));
+                case "phone" -> shop.setPhone(text(p));
+                case "can_claim" -> shop.setCanClaim(bool(p));
+                case "owner" -> readOwner(p, shop);
+                case "featured_image" -> shop.setFeaturedImage(text(p));
+                case "main_category" -> shop.setMainCategory(text(p));
+                case "categories" -> shop.setCategories(textList(p));
+
+                // Horaires
+                case "workday_timing" -> shop.setWorkdayTiming(text(p));
+                case "is_temporarily_closed" -> shop.setIsTemporarilyClosed(bool(p));
+                case "is_permanently_closed" -> shop.setIsPermanentlyClosed(bool(p));
+                case "closed_on" -> shop.setClosedOn(textList(p));
+
+                // Autres champs
+                case "link" -> shop.setLink(text(p));
+                case "status" -> shop.setStatus(text(p));
+                case "price_range" -> shop.setPriceRange(text(p));
+                case "plus_code" -> shop.setPlusCode(text(p));
+                case "time_zone" -> shop.setTimeZone(text(p));
+                case "cid" -> shop.setCid(text(p));
+                case "data_id" -> shop.setDataId(text(p));
+                case "query" -> shop.setQuery(text(p));
+
+                // Objets complexes
+                case "reviews_per_rating" -> shop.setReviewsPerRating(readReviewsPerRating(p));
+                case "competitors" -> shop.setCompetitors(objectList(p, COMPETITOR, NONE));
+                case "review_keywords" -> shop.setReviewKeywords(objectList(p, REVIEW_KEYWORD, NONE));
+                case "about" -> shop.setAbout(objectList(p, ABOUT, (name, parser, about) -> {
+                    if (!name.equals("options")) {
+                        return false;
+                    }
+                    List<Map<String, Object>> options = objectList(parser, ABOUT_OPTION, NONE);
+                    if (options != null) {
+                        about.put("options", options);
+                    }
+                    return true;
+                }));
+                case "images" -> shop.setImages(stringMaps(objectList(p, IMAGE, NONE)));
+                case "hours" -> shop.setHours(objectList(p, HOUR, (name, parser, hour) -> {
+                    if (!name.equals("times")) {
+                        return false;
+                    }
+                    List<String> times = textList(parser);
+                    if (times != null) {
+                        hour.put("times", times);
+                    }
+                    return true;
+                }));
+                case "featured_reviews" -> shop.setFeaturedReviews(objectList(p, REVIEW, (name, parser, review) -> {
+                    if (!name.equals("review_photos")) {
+                        return false;
+                    }
+                    List<Map<String, Object>> photos = objectList(parser, REVIEW_PHOTO, NONE);
+                    if (photos != null) {
+                        review.put("reviewPhotos", photos);
+                    }
+                    return true;
+                }));
+                // Non détaillés : une Map vide par avis
+                case "detailed_reviews" -> shop.setDetailedReviews(objectList(p, Map.of(), (name, parser, review) -> {
+                    parser.skipChildren();
+                    return true;
+                }));
+                default -> p.skipChildren();
+            }
+        }
+        return shop;
+    }
+
+    private static void readCoordinates(JsonParser p, RepairShop shop) throws IOException {
+        if (p.currentToken() != JsonToken.START_OBJECT) {
+            p.skipChildren();
+            return;
+        }
+        Double latitude = null;
+        Double longitude = null;
+        for (String field = p.nextFieldName(); field != null; field = p.nextFieldName()) {
+            p.nextToken();
+            switch (field) {
+                case "latitude" -> latitude = decimal(p);
+                case "longitude" -> longitude = decimal(p);
+                default -> p.skipChildren();
+            }
+        }
+        shop.setLatitude(latitude);
+        shop.setLongitude(longitude);
+
+        Map<String, Double> coordinates = new HashMap<>();
+        coordinates.put("lat", latitude);
+        coordinates.put("lon", longitude);
+        shop.setCoordinates(coordinates);
+    }
+
+    private static void readDetailedAddress(JsonParser p, RepairShop shop) throws IOException {
+        if (p.currentToken() != JsonToken.START_OBJECT) {
+            p.skipChildren();
+            return;
+        }
+        for (String field = p.nextFieldName(); field != null; field = p.nextFieldName()) {
+            p.nextToken();
+            switch (field) {
+                case "ward" -> shop.setWard(text(p));
+                case "street" -> shop.setStreet(text(p));
+                case "city" -> shop.setCity(text(p));
+                case "postal_code" -> shop.setPostalCode(text(p));
+                case "state" -> shop.setState(text(p));
+                case "country_code" -> shop.setCountryCode(text(p));
+                default -> p.skipChildren();
+            }
+        }
+    }
+
+    private static void readOwner(JsonParser p, RepairShop shop) throws IOException {
+        if (p.currentToken() != JsonToken.START_OBJECT) {
+            p.skipChildren();
+            return;
+        }
+        for (String field = p.nextFieldName(); field != null; field = p.nextFieldName()) {
+            p.nextToken();
+            switch (field) {
+                case "id" -> shop.setOwnerId(text(p));
+                case "name" -> shop.setOwnerName(text(p));
+                case "link" -> shop.setOwnerLink(text(p));
+                default -> p.skipChildren();
+            }
+        }
+    }
+
+    private static Map<String, Integer> readReviewsPerRating(JsonParser p) throws IOException {
+        Map<String, Integer> reviewsPerRating = new HashMap<>();
+        if (p.currentToken() != JsonToken.START_OBJECT) {
+            p.skipChildren();
+            return reviewsPerRating;
+        }
+        for (String field = p.nextFieldName(); field != null; field = p.nextFieldName()) {
+            p.nextToken();
+            Integer count = integer(p);
+            reviewsPerRating.put(field, count != null ? count : 0);
+        }
+        return reviewsPerRating;
+    }
+
+    /**
+     * Tableau d'objets vers une liste de Map : chaque Map contient toutes les clés de {@code shape}
+     * (null par défaut). Retourne null si la valeur n'est pas un tableau.
+     */
+    private static List<Map<String, Object>> objectList(JsonParser p, Map<String, Attr> shape, NestedReader nested)
+            throws IOException {
+        if (p.currentToken() != JsonToken.START_ARRAY) {
+            p.skipChildren();
+            return null;
+        }
+        List<Map<String, Object>> list = new ArrayList<>();
+        while (p.nextToken() != JsonToken.END_ARRAY) {
+            Map<String, Object> target = new HashMap<>();
+            for (Attr attr : shape.values()) {
+                target.put(attr.key, null);
+            }
+            if (p.currentToken() != JsonToken.START_OBJECT) {
+                p.skipChildren();
+                list.add(target);
+                continue;
+            }
+            for (String field = p.nextFieldName(); field != null; field = p.nextFieldName()) {
+                p.nextToken();
+                Attr attr = shape.get(field);
+                if (attr != null) {
+                    target.put(attr.key, scalar(p, attr.kind));
+                } else if (!nested.read(field, p, target)) {
+                    p.skipChildren();
+                }
+            }
+            list.add(target);
+        }
+        return list;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<Map<String, String>> stringMaps(List<Map<String, Object>> maps) {
+        // Les valeurs sont toutes des textes (voir IMAGE)
+        return (List<Map<String, String>>) (List<?>) maps;
+    }
+
+    // Tableau de valeurs vers une liste de textes ; null si la valeur n'est pas un tableau
+    private static List<String> textList(JsonParser p) throws IOException {
+        if (p.currentToken() != JsonToken.START_ARRAY) {
+            p.skipChildren();
+            return null;
+        }
+        List<String> list = new ArrayList<>();
+        while (p.nextToken() != JsonToken.END_ARRAY) {
+            String value = text(p);
+            list.add(value != null ? value : "null");
+        }
+        return list;
+    }
+
+    private static Object scalar(JsonParser p, Kind kind) throws IOException {
+        return switch (kind) {
+            case TEXT -> text(p);
+            case INT -> integer(p);
+            case FLOAT -> floating(p);
+            case BOOLEAN -> bool(p);
+        };
+    }
+
+    // Conversions alignées sur JsonNode.asText/asInt/asDouble/asBoolean ; null pour une valeur JSON null
+
+    private static String text(JsonParser p) throws IOException {
+        JsonToken token = p.currentToken();
+        if (token == JsonToken.VALUE_NULL) {
+            return null;
+        }
+        if (token.isStructStart()) {
+            p.skipChildren();
+            return "";
+        }
+        return p.getText();
+    }
+
+    private static Integer integer(JsonParser p) throws IOException {
+        JsonToken token = p.currentToken();
+        if (token == JsonToken.VALUE_NULL) {
+            return null;
+        }
+        if (token.isStructStart()) {
+            p.skipChildren();
+            return 0;
+        }
+        return p.getValueAsInt();
+    }
+
+    private static Double decimal(JsonParser p) throws IOException {
+        JsonToken token = p.currentToken();
+        if (token == JsonToken.VALUE_NULL) {
+            return null;
+        }
+        if (token.isStructStart()) {
+            p.skipChildren();
+            return 0.0;
+        }
+        return p.getValueAsDouble();
+    }
+
+    private static Float floating(JsonParser p) throws IOException {
+        Double value = decimal(p);
+        return value != null ? value.floatValue() : null;
+    }
+
+    private static Boolean bool(JsonParser p) throws IOException {
+        JsonToken token = p.currentToken();
+        if (token == JsonToken.VALUE_NULL) {
+            return null;
+        }
+        if (token.isStructStart()) {
+            p.skipChildren();
+            return false;
+        }
+        return p.getValueAsBoolean();
+    }
+}
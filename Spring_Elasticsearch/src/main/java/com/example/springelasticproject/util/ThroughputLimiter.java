@@ -0,0 +1,56 @@
+package com.example.springelasticproject.util;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Limite de débit partagée (documents/s et octets/s), en seau à jetons : une seconde de crédit au plus
+ * peut s'accumuler, au-delà les appelants attendent leur tour. Une limite à 0 est désactivée.
+ */
+public final class ThroughputLimiter {
+
+    private static final long BURST_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private final double docsPerSecond;
+    private final double bytesPerSecond;
+
+    // Instant à partir duquel le débit consommé redevient disponible, pour chaque limite
+    private long docsAvailableAt = System.nanoTime();
+    private long bytesAvailableAt = System.nanoTime();
+
+    public ThroughputLimiter(double docsPerSecond, double bytesPerSecond) {
+        this.docsPerSecond = docsPerSecond;
+        this.bytesPerSecond = bytesPerSecond;
+    }
+
+    public boolean isEnabled() {
+        return docsPerSecond > 0 || bytesPerSecond > 0;
+    }
+
+    /**
+     * Réserve le débit de {@code docs} documents et {@code bytes} octets, et attend si la réservation
+     * dépasse le crédit disponible. L'attente se fait hors verrou : les autres imports réservent à la suite.
+     */
+    public void acquire(long docs, long bytes) throws InterruptedException {
+        if (!isEnabled()) {
+            return;
+        }
+        long wait;
+        synchronized (this) {
+            long now = System.nanoTime();
+            long waitDocs = 0;
+            long waitBytes = 0;
+            if (docsPerSecond > 0) {
+                docsAvailableAt = Math.max(docsAvailableAt, now - BURST_NANOS) + (long) (docs * 1e9 / docsPerSecond);
+                waitDocs = docsAvailableAt - now;
+            }
+            if (bytesPerSecond > 0) {
+                bytesAvailableAt = Math.max(bytesAvailableAt, now - BURST_NANOS) + (long) (bytes * 1e9 / bytesPerSecond);
+                waitBytes = bytesAvailableAt - now;
+            }
+            wait = Math.max(waitDocs, waitBytes);
+        }
+        if (wait > 0) {
+            TimeUnit.NANOSECONDS.sleep(wait);
+        }
+    }
+}
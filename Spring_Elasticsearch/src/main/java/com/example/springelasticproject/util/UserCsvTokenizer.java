@@ -0,0 +1,289 @@
+package com.example.springelasticproject.util;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Tokenizer CSV (RFC 4180, UTF-8) sans allocation par ligne.
+ * Les octets sont lus dans un tampon réutilisé ; chaque appel à {@link #next()} ne mémorise que
+ * les bornes des champs de l'enregistrement courant. Les chaînes ne sont créées qu'à la lecture
+ * d'un champ, déjà débarrassées des espaces (équivalent de StringUtils.trimToNull).
+ * L'instance sert de vue sur la ligne courante : elle n'est valable que jusqu'au prochain {@link #next()}.
+ */
+public final class UserCsvTokenizer {
+
+    private final InputStream in;
+    private byte[] buffer;
+    private int limit;
+    private boolean eof;
+
+    // Position absolue (dans le fichier) de buffer[0]
+    private long bufferOffset;
+    // Numéro de la prochaine ligne physique (1 = en-tête)
+    private long line;
+
+    // Enregistrement courant
+    private int position;
+    private int recordStart;
+    private int recordEnd;
+    private long recordLine;
+    private int scan;
+    private int fieldStart;
+    private int fieldCount;
+    private int[] fieldStarts = new int[16];
+    private int[] fieldEnds = new int[16];
+    private boolean[] fieldQuoted = new boolean[16];
+
+    // Tampon de travail pour les champs entre guillemets
+    private byte[] scratch = new byte[256];
+
+    /**
+     * Lecture depuis un flux, à partir de la position {@code baseOffset} et de la ligne {@code firstLine}.
+     */
+    public UserCsvTokenizer(InputStream in, int bufferSize, long baseOffset, long firstLine) {
+        this.in = in;
+        this.buffer = new byte[bufferSize];
+        this.bufferOffset = baseOffset;
+        this.line = firstLine;
+    }
+
+    /**
+     * Lecture directe d'un tableau déjà chargé (bloc de lignes complètes), sans copie.
+     * {@code baseOffset} est la position absolue de {@code data[0]}.
+     */
+    public UserCsvTokenizer(byte[] data, int from, int to, long baseOffset, long firstLine) {
+        this.in = null;
+        this.buffer = data;
+        this.position = from;
+        this.limit = to;
+        this.eof = true;
+        this.bufferOffset = baseOffset;
+        this.line = firstLine;
+    }
+
+    /**
+     * Passe à l'enregistrement suivant. Renvoie false en fin de données.
+     */
+    public boolean next() throws IOException {
+        recordStart = position;
+        if (position >= limit && !fill()) {
+            return false;
+        }
+
+        recordLine = line;
+        fieldCount = 0;
+        scan = recordStart;
+        fieldStart = recordStart;
+        boolean inQuotes = false;
+        boolean quoted = false;
+
+        while (true) {
+            if (scan >= limit && !fill()) {
+                // Dernière ligne sans saut de ligne final
+                addField(fieldStart, scan, quoted);
+                recordEnd = scan;
+                position = scan;
+                return true;
+            }
+
+            byte b = buffer[scan];
+            if (b == '"') {
+                // Un guillemet doublé ("") bascule deux fois : l'état reste correct
+                inQuotes = !inQuotes;
+                quoted = true;
+            } else if (b == '\n') {
+                line++;
+                if (!inQuotes) {
+                    int end = scan > fieldStart && buffer[scan - 1] == '\r' ? scan - 1 : scan;
+                    addField(fieldStart, end, quoted);
+                    scan++;
+                    recordEnd = scan;
+                    position = scan;
+                    return true;
+                }
+            } else if (b == ',' && !inQuotes) {
+                addField(fieldStart, scan, quoted);
+                fieldStart = scan + 1;
+                quoted = false;
+            }
+            scan++;
+        }
+    }
+
+    public int fieldCount() {
+        return fieldCount;
+    }
+
+    /**
+     * Valeur du champ, sans espaces autour ; null si le champ est vide ou absent.
+     */
+    public String field(int index) {
+        if (index >= fieldCount) {
+            return null;
+        }
+        int start = fieldStarts[index];
+        int end = fieldEnds[index];
+        byte[] source = buffer;
+
+        if (fieldQuoted[index]) {
+            end = unquote(start, end);
+            start = 0;
+            source = scratch;
+        }
+
+        while (start < end && (source[start] & 0xFF) <= ' ') {
+            start++;
+        }
+        while (end > start && (source[end - 1] & 0xFF) <= ' ') {
+            end--;
+        }
+        return start == end ? null : new String(source, start, end - start, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Valeur numérique du champ, lue directement dans le tampon.
+     *
+     * @throws NumberFormatException si le champ est vide ou n'est pas un entier
+     */
+    public long longField(int index) {
+        if (index >= fieldCount || fieldQuoted[index]) {
+            String value = field(index);
+            if (value == null) {
+                throw new NumberFormatException("Champ vide");
+            }
+            return Long.parseLong(value);
+        }
+
+        int start = fieldStarts[index];
+        int end = fieldEnds[index];
+        while (start < end && (buffer[start] & 0xFF) <= ' ') {
+            start++;
+        }
+        while (end > start && (buffer[end - 1] & 0xFF) <= ' ') {
+            end--;
+        }
+
+        boolean negative = start < end && buffer[start] == '-';
+        int digitsStart = negative || (start < end && buffer[start] == '+') ? start + 1 : start;
+        // Au-delà de 18 chiffres, le dépassement est géré par Long.parseLong
+        if (digitsStart == end || end - digitsStart > 18) {
+            return Long.parseLong(new String(buffer, start, end - start, StandardCharsets.UTF_8));
+        }
+
+        long value = 0;
+        for (int i = digitsStart; i < end; i++) {
+            int digit = buffer[i] - '0';
+            if (digit < 0 || digit > 9) {
+                throw new NumberFormatException("Entier invalide: " + new String(buffer, start, end - start, StandardCharsets.UTF_8));
+            }
+            value = value * 10 + digit;
+        }
+        return negative ? -value : value;
+    }
+
+    // Ligne physique où commence l'enregistrement courant
+    public long recordLine() {
+        return recordLine;
+    }
+
+    // Position absolue du premier octet de l'enregistrement courant
+    public long recordStartOffset() {
+        return bufferOffset + recordStart;
+    }
+
+    // Position absolue qui suit l'enregistrement courant (saut de ligne inclus)
+    public long recordEndOffset() {
+        return bufferOffset + recordEnd;
+    }
+
+    // Texte brut de l'enregistrement courant (pour les logs et les rejets)
+    public String rawRecord() {
+        int end = recordEnd;
+        while (end > recordStart && (buffer[end - 1] == '\n' || buffer[end - 1] == '\r')) {
+            end--;
+        }
+        return new String(buffer, recordStart, end - recordStart, StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public String toString() {
+        return rawRecord();
+    }
+
+    private void addField(int start, int end, boolean quoted) {
+        if (fieldCount == fieldStarts.length) {
+            fieldStarts = Arrays.copyOf(fieldStarts, fieldCount * 2);
+            fieldEnds = Arrays.copyOf(fieldEnds, fieldCount * 2);
+            fieldQuoted = Arrays.copyOf(fieldQuoted, fieldCount * 2);
+        }
+        fieldStarts[fieldCount] = start;
+        fieldEnds[fieldCount] = end;
+        fieldQuoted[fieldCount] = quoted;
+        fieldCount++;
+    }
+
+    // Copie le champ dans le tampon de travail en retirant les guillemets ("" devient ")
+    private int unquote(int start, int end) {
+        if (scratch.length < end - start) {
+            scratch = new byte[Math.max(end - start, scratch.length * 2)];
+        }
+        int length = 0;
+        boolean inQuotes = false;
+        for (int i = start; i < end; i++) {
+            byte b = buffer[i];
+            if (b == '"') {
+                if (inQuotes && i + 1 < end && buffer[i + 1] == '"') {
+                    scratch[length++] = '"';
+                    i++;
+                } else {
+                    inQuotes = !inQuotes;
+                }
+            } else {
+                scratch[length++] = b;
+            }
+        }
+        return length;
+    }
+
+    /*
+     * Recharge le tampon en conservant l'enregistrement en cours (déplacé en tête de tampon).
+     * Le tampon est agrandi si un seul enregistrement le remplit entièrement.
+     */
+    private boolean fill() throws IOException {
+        if (in == null || eof) {
+            return false;
+        }
+
+        if (recordStart > 0) {
+            int shift = recordStart;
+            System.arraycopy(buffer, shift, buffer, 0, limit - shift);
+            for (int i = 0; i < fieldCount; i++) {
+                fieldStarts[i] -= shift;
+                fieldEnds[i] -= shift;
+            }
+            bufferOffset += shift;
+            limit -= shift;
+            position -= shift;
+            recordStart = 0;
+            scan -= shift;
+            fieldStart -= shift;
+        }
+        if (limit == buffer.length) {
+            buffer = Arrays.copyOf(buffer, buffer.length * 2);
+        }
+
+        int read;
+        do {
+            read = in.read(buffer, limit, buffer.length - limit);
+        } while (read == 0);
+
+        if (read < 0) {
+            eof = true;
+            return false;
+        }
+        limit += read;
+        return true;
+    }
+}
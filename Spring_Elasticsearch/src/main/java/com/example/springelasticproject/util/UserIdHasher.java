@@ -0,0 +1,25 @@
+package com.example.springelasticproject.util;
+
+import org.apache.commons.codec.digest.MurmurHash3;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Identifiant stable d'un utilisateur importé, calculé à partir de userId et phoneNumber.
+ * Le même enregistrement produit toujours le même identifiant : un ré-import écrase le document
+ * existant au lieu de créer un doublon.
+ * <p>
+ * L'identifiant occupe les 64 bits (collisions négligeables même à 100 M de lignes) : il dépasse donc la
+ * précision d'un nombre JavaScript et est renvoyé au front sous forme de chaîne (voir WebConfig).
+ */
+public final class UserIdHasher {
+
+    private UserIdHasher() {
+    }
+
+    public static long hash(Long userId, String phoneNumber) {
+        String key = (userId != null ? userId.toString() : "") + '|' + (phoneNumber != null ? phoneNumber : "");
+        byte[] bytes = key.getBytes(StandardCharsets.UTF_8);
+        return MurmurHash3.hash128x64(bytes, 0, bytes.length, 0)[0];
+    }
+}
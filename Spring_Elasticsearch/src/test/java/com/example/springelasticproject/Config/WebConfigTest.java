@@ -0,0 +1,28 @@
+package com.example.springelasticproject.Config;
+
+import com.example.springelasticproject.model.User;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class WebConfigTest {
+
+    @Test
+    void userIdIsSentAsAStringAndReadBack() throws Exception {
+        Jackson2ObjectMapperBuilder builder = new Jackson2ObjectMapperBuilder();
+        new WebConfig().userIdAsString().customize(builder);
+        ObjectMapper mapper = builder.build();
+
+        User user = new User();
+        user.setIdS(-6917529027641081857L);
+        user.setUserId(100012345L);
+        String json = mapper.writeValueAsString(user);
+
+        assertTrue(json.contains("\"idS\":\"-6917529027641081857\""), json);
+        assertTrue(json.contains("\"userId\":100012345"), json);
+        assertEquals(-6917529027641081857L, mapper.readValue(json, User.class).getIdS());
+    }
+}
@@ -0,0 +1,96 @@
+package com.example.springelasticproject.Services;
+
+import co.elastic.clients.elasticsearch.ElasticsearchClient;
+import co.elastic.clients.elasticsearch._types.Time;
+import co.elastic.clients.elasticsearch.indices.ElasticsearchIndicesClient;
+import co.elastic.clients.elasticsearch.indices.GetIndicesSettingsResponse;
+import co.elastic.clients.elasticsearch.indices.IndexSettings;
+import co.elastic.clients.elasticsearch.indices.IndexState;
+import co.elastic.clients.json.jackson.JacksonJsonpMapper;
+import jakarta.json.stream.JsonGenerator;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.elasticsearch.core.ElasticsearchOperations;
+import org.springframework.data.elasticsearch.core.mapping.IndexCoordinates;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class BulkLoadIndexSettingsTest {
+
+    private final ElasticsearchClient client = mock(ElasticsearchClient.class);
+    private final ElasticsearchIndicesClient indices = mock(ElasticsearchIndicesClient.class);
+    private final ElasticsearchOperations operations = mock(ElasticsearchOperations.class);
+    private BulkLoadIndexSettings bulkLoad;
+
+    @BeforeEach
+    void setUp() {
+        when(client.indices()).thenReturn(indices);
+        when(operations.getIndexCoordinatesFor(any())).thenReturn(IndexCoordinates.of("users"));
+        bulkLoad = new BulkLoadIndexSettings(client, operations);
+    }
+
+    @Test
+    void onlyExplicitSettingsAreKept() {
+        IndexState state = IndexState.of(s -> s.settings(IndexSettings.of(i -> i
+                .index(IndexSettings.of(x -> x.numberOfReplicas("2"))))));
+
+        BulkLoadIndexSettings.Holder holder = BulkLoadIndexSettings.explicitSettings(state);
+        assertNull(holder.refreshInterval);
+        assertEquals("2", holder.numberOfReplicas);
+    }
+
+    @Test
+    void defaultSettingsAreRestoredAsNull() {
+        String json = toJson(BulkLoadIndexSettings.restoredSettings(new BulkLoadIndexSettings.Holder(null, "2")));
+
+        assertTrue(json.contains("\"index.refresh_interval\":null"), json);
+        assertTrue(json.contains("\"index.number_of_replicas\":\"2\""), json);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void failedRestoreKeepsTheOriginalSettings() throws IOException {
+        when(indices.getSettings(any(Function.class))).thenReturn(GetIndicesSettingsResponse.of(r -> r
+                .result("users", IndexState.of(s -> s.settings(IndexSettings.of(i -> i
+                        .refreshInterval(Time.of(t -> t.time("30s")))))))));
+        // Mode chargement accepté, puis les 3 tentatives de restauration échouent
+        when(indices.putSettings(any(Function.class)))
+                .thenReturn(null)
+                .thenThrow(new IOException("cluster indisponible"))
+                .thenThrow(new IOException("cluster indisponible"))
+                .thenThrow(new IOException("cluster indisponible"))
+                .thenReturn(null);
+
+        bulkLoad.acquire(Object.class).close();
+        verify(indices, times(4)).putSettings(any(Function.class));
+
+        // Le chargement suivant ne relit pas les réglages (l'index est encore à -1) et retente la restauration
+        bulkLoad.acquire(Object.class).close();
+        verify(indices, times(1)).getSettings(any(Function.class));
+        verify(indices, times(6)).putSettings(any(Function.class));
+
+        // Restauration réussie : les réglages sont relus au chargement suivant
+        bulkLoad.acquire(Object.class).close();
+        verify(indices, times(2)).getSettings(any(Function.class));
+    }
+
+    private static String toJson(IndexSettings settings) {
+        StringWriter out = new StringWriter();
+        JacksonJsonpMapper mapper = new JacksonJsonpMapper();
+        try (JsonGenerator generator = mapper.jsonProvider().createGenerator(out)) {
+            settings.serialize(generator, mapper);
+        }
+        return out.toString();
+    }
+}
@@ -0,0 +1,96 @@
+package com.example.springelasticproject.Services;
+
+import co.elastic.clients.elasticsearch.ElasticsearchClient;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+
+class ExportJobManagerTest {
+
+    @TempDir
+    Path dir;
+
+    private final ExportScheduler scheduler = new ExportScheduler(1, 10, 0);
+    private final ExportJobManager manager = new ExportJobManager(mock(ExportService.class), scheduler,
+            mock(ElasticsearchClient.class));
+
+    @AfterEach
+    void shutdown() {
+        manager.shutdown();
+    }
+
+    @Test
+    void soleRequesterCanCancel() {
+        newJob("running");
+        ExportJob job = newJob("queued");
+
+        assertTrue(job.cancel());
+        assertTrue(job.isCancelled());
+        // L'export en file la quitte aussitôt
+        assertEquals(-1, job.getTicket().position());
+    }
+
+    @Test
+    void sharedExportCannotBeCancelledByOneRequester() {
+        ExportJob job = newJob("a");
+        assertTrue(job.reuse());
+
+        assertFalse(job.cancel());
+        assertFalse(job.isCancelled());
+        assertEquals(2, job.snapshot().get("requests"));
+    }
+
+    @Test
+    void cancelledExportIsNotReused() {
+        ExportJob job = newJob("a");
+        job.cancel();
+
+        assertFalse(job.reuse());
+    }
+
+    @Test
+    void expiredExportsArePurgedWithoutNewRequests() throws Exception {
+        Path file = Files.writeString(dir.resolve("export.csv"), "id\n");
+        ExportJob expired = newJob("expired");
+        expired.started();
+        expired.completed(file, Files.size(file), "", 1);
+        ExportJob running = newJob("running");
+        registry().put(expired.getId(), expired);
+        registry().put(running.getId(), running);
+
+        ReflectionTestUtils.setField(manager, "retention", Duration.ZERO);
+        ReflectionTestUtils.setField(manager, "purgeInterval", Duration.ofMillis(20));
+        Thread.sleep(5);
+        manager.schedulePurge();
+
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (manager.find(expired.getId()).isPresent() && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertFalse(manager.find(expired.getId()).isPresent());
+        assertFalse(Files.exists(file));
+        // Un export en cours n'est jamais purgé
+        assertTrue(manager.find(running.getId()).isPresent());
+    }
+
+    private ExportJob newJob(String id) {
+        return new ExportJob(id, "key-" + id, 1, false, scheduler.enqueue());
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<String, ExportJob> registry() {
+        return (Map<String, ExportJob>) ReflectionTestUtils.getField(manager, "jobs");
+    }
+}
@@ -0,0 +1,128 @@
+package com.example.springelasticproject.Services;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ExportSchedulerTest {
+
+    @Test
+    void ticketsAreGrantedInArrivalOrder() throws Exception {
+        ExportScheduler scheduler = new ExportScheduler(1, 10, 0);
+        ExportScheduler.Ticket first = scheduler.enqueue();
+        ExportScheduler.Ticket second = scheduler.enqueue();
+        ExportScheduler.Ticket third = scheduler.enqueue();
+
+        assertEquals(0, first.position());
+        assertEquals(1, second.position());
+        assertEquals(2, third.position());
+
+        first.await();
+        first.release();
+        assertEquals(0, second.position());
+        assertEquals(1, third.position());
+    }
+
+    @Test
+    void fullQueueIsRefused() {
+        ExportScheduler scheduler = new ExportScheduler(1, 2, 0);
+        scheduler.enqueue();
+        scheduler.enqueue();
+        scheduler.enqueue();
+
+        assertThrows(ExportScheduler.QueueFullException.class, scheduler::enqueue);
+        assertEquals(2, scheduler.stats().get("queued"));
+    }
+
+    @Test
+    void cancelledTicketLeavesTheQueue() throws Exception {
+        ExportScheduler scheduler = new ExportScheduler(1, 10, 0);
+        ExportScheduler.Ticket running = scheduler.enqueue();
+        ExportScheduler.Ticket cancelled = scheduler.enqueue();
+        ExportScheduler.Ticket next = scheduler.enqueue();
+
+        cancelled.cancel();
+        assertEquals(-1, cancelled.position());
+        assertEquals(1, next.position());
+        assertThrows(CancellationException.class, cancelled::await);
+
+        running.release();
+        assertEquals(0, next.position());
+        // Libérer un ticket annulé ne rend pas de place
+        cancelled.release();
+        assertEquals(1, scheduler.stats().get("running"));
+    }
+
+    @Test
+    void concurrentAdmissionNeverExceedsTheLimits() throws Exception {
+        ExportScheduler scheduler = new ExportScheduler(2, 5, 0);
+        ExecutorService pool = Executors.newFixedThreadPool(16);
+        AtomicInteger refused = new AtomicInteger();
+        AtomicInteger active = new AtomicInteger();
+        AtomicInteger maxActive = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> exports = new ArrayList<>();
+        try {
+            for (int i = 0; i < 40; i++) {
+                exports.add(pool.submit(() -> {
+                    start.await();
+                    ExportScheduler.Ticket ticket;
+                    try {
+                        ticket = scheduler.enqueue();
+                    } catch (ExportScheduler.QueueFullException e) {
+                        refused.incrementAndGet();
+                        return null;
+                    }
+                    try {
+                        ticket.await();
+                        maxActive.accumulateAndGet(active.incrementAndGet(), Math::max);
+                        Thread.sleep(5);
+                        active.decrementAndGet();
+                    } finally {
+                        ticket.release();
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> export : exports) {
+                export.get(10, TimeUnit.SECONDS);
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+
+        assertTrue(maxActive.get() <= 2, "exports simultanés : " + maxActive.get());
+        assertTrue(refused.get() > 0);
+        assertEquals(0, scheduler.stats().get("running"));
+        assertEquals(0, scheduler.stats().get("queued"));
+    }
+
+    @Test
+    void throttleHoldsTheConfiguredRate() throws Exception {
+        ExportScheduler scheduler = new ExportScheduler(1, 0, 10_000);
+        ExportScheduler.Ticket ticket = scheduler.enqueue();
+        ticket.await();
+
+        long start = System.nanoTime();
+        for (int docs = 500; docs <= 3_000; docs += 500) {
+            ticket.throttle(docs);
+        }
+        long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        // 3 000 documents à 10 000 docs/s : au moins 300 ms
+        assertTrue(elapsedMs >= 290, "durée : " + elapsedMs + " ms");
+        ticket.release();
+    }
+}
@@ -0,0 +1,136 @@
+package com.example.springelasticproject.Services;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BrokenBarrierException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ExportServiceSlicesTest {
+
+    private static final int SLICES = 4;
+
+    private final ExecutorService pool = Executors.newFixedThreadPool(SLICES);
+
+    @AfterEach
+    void shutdown() {
+        pool.shutdownNow();
+    }
+
+    @Test
+    void allSlicesAreDrained() throws Exception {
+        long exported = ExportService.drainSlices(pool, SLICES, (slice, sink) -> {
+            for (int i = 0; i < 10; i++) {
+                sink.accept(List.of(new String[]{"s" + slice, "p" + i}, new String[]{"s" + slice, "q" + i}));
+            }
+            return 20;
+        }, rows -> { });
+
+        assertEquals(SLICES * 20, exported);
+        assertPoolIsFree();
+    }
+
+    @Test
+    void clientDisconnectReleasesSliceThreads() throws Exception {
+        AtomicInteger pages = new AtomicInteger();
+
+        // Tranches sans fin : elles remplissent la file puis restent bloquées dans put
+        assertThrows(ExportService.ExportWriteException.class, () ->
+                ExportService.drainSlices(pool, SLICES, ExportServiceSlicesTest::endless, rows -> {
+                    if (pages.incrementAndGet() == 5) {
+                        throw new ExportService.ExportWriteException(new IOException("Broken pipe"));
+                    }
+                }));
+
+        assertPoolIsFree();
+        // Un export suivant sur le même pool aboutit
+        assertEquals(SLICES * 20, ExportService.drainSlices(pool, SLICES, (slice, sink) -> {
+            for (int i = 0; i < 20; i++) {
+                sink.accept(List.<String[]>of(new String[]{"x"}));
+            }
+            return 20;
+        }, rows -> { }));
+    }
+
+    @Test
+    void failedSliceStopsTheExport() throws Exception {
+        IOException cause = new IOException("search_phase_execution_exception");
+        IOException failure = assertThrows(IOException.class, () ->
+                ExportService.drainSlices(pool, SLICES, (slice, sink) -> {
+                    if (slice == 2) {
+                        throw cause;
+                    }
+                    return endless(slice, sink);
+                }, rows -> { }));
+
+        assertEquals(cause, failure.getCause());
+        assertPoolIsFree();
+    }
+
+    @Test
+    void concurrentExportsRunAllTheirSlicesAtOnce() throws Exception {
+        int running = 2;
+        ExecutorService shared = Executors.newFixedThreadPool(ExportService.slicePoolSize(SLICES, running));
+        ExecutorService callers = Executors.newFixedThreadPool(running);
+        // Chaque tranche attend que toutes les tranches des deux exports aient démarré
+        CyclicBarrier allStarted = new CyclicBarrier(SLICES * running);
+        try {
+            List<Future<Long>> exports = new ArrayList<>();
+            for (int i = 0; i < running; i++) {
+                exports.add(callers.submit(() -> ExportService.drainSlices(shared, SLICES, (slice, sink) -> {
+                    try {
+                        allStarted.await(5, TimeUnit.SECONDS);
+                    } catch (BrokenBarrierException | TimeoutException e) {
+                        throw new IOException("tranche restée en file derrière l'autre export", e);
+                    }
+                    sink.accept(List.<String[]>of(new String[]{"s" + slice}));
+                    return 1;
+                }, rows -> { })));
+            }
+            for (Future<Long> export : exports) {
+                assertEquals(SLICES, export.get(10, TimeUnit.SECONDS));
+            }
+        } finally {
+            callers.shutdownNow();
+            shared.shutdownNow();
+        }
+    }
+
+    private static long endless(int slice, ExportService.PageHandler sink) throws IOException, InterruptedException {
+        while (true) {
+            sink.accept(List.<String[]>of(new String[]{"s" + slice}));
+        }
+    }
+
+    // Chaque thread du pool doit pouvoir prendre une nouvelle tâche
+    private void assertPoolIsFree() throws InterruptedException {
+        CountDownLatch started = new CountDownLatch(SLICES);
+        CountDownLatch release = new CountDownLatch(1);
+        for (int i = 0; i < SLICES; i++) {
+            pool.submit(() -> {
+                started.countDown();
+                release.await();
+                return null;
+            });
+        }
+        try {
+            assertTrue(started.await(5, TimeUnit.SECONDS), "threads de tranches encore bloqués");
+        } finally {
+            release.countDown();
+        }
+    }
+}
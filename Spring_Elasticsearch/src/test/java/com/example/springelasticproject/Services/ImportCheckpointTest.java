@@ -0,0 +1,148 @@
+package com.example.springelasticproject.Services;
+
+import com.example.springelasticproject.util.CsvChunkReader;
+import com.example.springelasticproject.util.UserCsvTokenizer;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ImportCheckpointTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void positionOnlyAdvancesOverContiguousSegments() throws IOException {
+        File csv = csv(30);
+        List<CsvChunkReader.Chunk> chunks = chunks(csv, 0, 1);
+        assertTrue(chunks.size() >= 3);
+
+        ImportCheckpoint checkpoint = ImportCheckpoint.start(csv);
+        List<ImportCheckpoint.Segment> segments = new ArrayList<>();
+        for (CsvChunkReader.Chunk chunk : chunks) {
+            ImportCheckpoint.Segment segment = checkpoint.register(chunk);
+            segment.submitted();
+            segment.seal();
+            segments.add(segment);
+        }
+
+        // Les segments 2 et 3 sont acquittés avant le premier : rien n'est validé
+        segments.get(2).acknowledged();
+        segments.get(1).acknowledged();
+        assertEquals(0, checkpoint.getCommittedOffset());
+        assertFalse(Files.exists(ImportCheckpoint.pathFor(csv)));
+
+        segments.get(0).acknowledged();
+        assertEquals(chunks.get(2).getEndOffset(), checkpoint.getCommittedOffset());
+        assertEquals(chunks.get(2).getEndLine(), checkpoint.getCommittedLine());
+    }
+
+    @Test
+    void resumeReadsExactlyTheUncommittedRows() throws IOException {
+        File csv = csv(30);
+        List<CsvChunkReader.Chunk> chunks = chunks(csv, 0, 1);
+
+        ImportCheckpoint checkpoint = ImportCheckpoint.start(csv);
+        for (int i = 0; i < chunks.size(); i++) {
+            ImportCheckpoint.Segment segment = checkpoint.register(chunks.get(i));
+            segment.submitted();
+            segment.seal();
+            // Arrêt brutal : seul le premier segment est acquitté
+            if (i == 0) {
+                segment.acknowledged();
+            }
+        }
+
+        ImportCheckpoint loaded = ImportCheckpoint.load(csv);
+        assertFalse(loaded.isCompleted());
+        assertEquals(chunks.get(0).getEndOffset(), loaded.getCommittedOffset());
+
+        List<String> resumed = new ArrayList<>();
+        for (CsvChunkReader.Chunk chunk : chunks(csv, loaded.getCommittedOffset(), loaded.getCommittedLine())) {
+            resumed.addAll(records(chunk));
+        }
+        List<String> all = Files.readAllLines(csv.toPath(), StandardCharsets.UTF_8);
+        assertEquals(all.subList(all.size() - resumed.size(), all.size()), resumed);
+        assertEquals("row" + (int) (loaded.getCommittedLine() - 1) + ",a,b", resumed.get(0));
+    }
+
+    @Test
+    void changedFileIsNotResumed() throws IOException {
+        File csv = csv(10);
+        ImportCheckpoint.start(csv).markCompleted();
+        assertTrue(ImportCheckpoint.load(csv).isCompleted());
+
+        Files.writeString(csv.toPath(), "row99,x,y\n", StandardCharsets.UTF_8, StandardOpenOption.APPEND);
+        assertThrows(IllegalStateException.class, () -> ImportCheckpoint.load(csv));
+    }
+
+    @Test
+    void rejectedRowsAreOnDiskBeforeTheCheckpointMoves() throws IOException {
+        File csv = csv(10);
+        CsvChunkReader.Chunk chunk = chunks(csv, 0, 1).get(0);
+
+        try (DeadLetterWriter deadLetters = DeadLetterWriter.forFile(csv, false)) {
+            ImportCheckpoint checkpoint = ImportCheckpoint.start(csv);
+            checkpoint.syncWith(deadLetters);
+
+            ImportCheckpoint.Segment segment = checkpoint.register(chunk);
+            segment.submitted();
+            segment.seal();
+            deadLetters.reject(2, "mapper_parsing_exception", "row1,a,b");
+            segment.acknowledged();
+
+            // Writer encore ouvert : le rejet doit déjà être lisible sur disque
+            assertEquals(chunk.getEndOffset(), ImportCheckpoint.load(csv).getCommittedOffset());
+            String rejected = Files.readString(DeadLetterWriter.pathFor(csv), StandardCharsets.UTF_8);
+            assertTrue(rejected.contains("mapper_parsing_exception"), rejected);
+        }
+    }
+
+    private File csv(int rows) throws IOException {
+        StringBuilder content = new StringBuilder("id,first,second\n");
+        for (int i = 1; i <= rows; i++) {
+            content.append("row").append(i).append(",a,b\n");
+        }
+        Path file = dir.resolve("users.csv");
+        Files.writeString(file, content, StandardCharsets.UTF_8);
+        return file.toFile();
+    }
+
+    // Blocs de 40 octets à partir d'une position (comme une reprise)
+    private static List<CsvChunkReader.Chunk> chunks(File csv, long offset, long line) throws IOException {
+        List<CsvChunkReader.Chunk> chunks = new ArrayList<>();
+        InputStream in = Files.newInputStream(csv.toPath());
+        in.skipNBytes(offset);
+        try (CsvChunkReader reader = new CsvChunkReader(in, 40, offset == 0, offset, line)) {
+            CsvChunkReader.Chunk chunk;
+            while ((chunk = reader.next()) != null) {
+                chunks.add(chunk);
+            }
+        }
+        return chunks;
+    }
+
+    // Enregistrements bruts du bloc
+    private static List<String> records(CsvChunkReader.Chunk chunk) throws IOException {
+        List<String> records = new ArrayList<>();
+        UserCsvTokenizer tokenizer = chunk.tokenizer();
+        while (tokenizer.next()) {
+            records.add(tokenizer.rawRecord());
+        }
+        return records;
+    }
+}
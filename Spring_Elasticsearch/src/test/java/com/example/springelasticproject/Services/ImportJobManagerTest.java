@@ -0,0 +1,90 @@
+package com.example.springelasticproject.Services;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+
+class ImportJobManagerTest {
+
+    private final ImportJobManager manager = new ImportJobManager(mock(UserService.class), 1);
+
+    @AfterEach
+    void shutdown() {
+        manager.shutdown();
+    }
+
+    @Test
+    void streamingImportIsRefusedWhenAllSlotsAreTaken() throws Exception {
+        CountDownLatch running = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ImportJob background = manager.submit("ndjson", job -> {
+            running.countDown();
+            release.await();
+        });
+        assertTrue(running.await(5, TimeUnit.SECONDS));
+
+        AtomicBoolean ran = new AtomicBoolean();
+        assertTrue(manager.runInline("upload", job -> {
+            ran.set(true);
+            return new UserService.ImportResult();
+        }).isEmpty());
+        assertFalse(ran.get());
+
+        release.countDown();
+        awaitFinished(background);
+        Optional<ImportJob> inline = manager.runInline("upload", job -> {
+            UserService.ImportResult result = new UserService.ImportResult();
+            job.finished(result);
+            return result;
+        });
+        assertTrue(inline.isPresent());
+        assertTrue(inline.get().isFinished());
+    }
+
+    @Test
+    void queuedImportWaitsForTheStreamingImport() throws Exception {
+        CountDownLatch streaming = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch backgroundStarted = new CountDownLatch(1);
+
+        Thread request = new Thread(() -> manager.runInline("upload", job -> {
+            streaming.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            UserService.ImportResult result = new UserService.ImportResult();
+            job.finished(result);
+            return result;
+        }));
+        request.start();
+        assertTrue(streaming.await(5, TimeUnit.SECONDS));
+
+        ImportJob background = manager.submit("ndjson", job -> backgroundStarted.countDown());
+        // La seule place est prise par l'import en streaming
+        assertFalse(backgroundStarted.await(200, TimeUnit.MILLISECONDS));
+
+        release.countDown();
+        assertTrue(backgroundStarted.await(5, TimeUnit.SECONDS));
+        awaitFinished(background);
+        request.join(5000);
+    }
+
+    private static void awaitFinished(ImportJob job) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!job.isFinished() && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(ImportJob.Status.COMPLETED, job.getStatus());
+    }
+}
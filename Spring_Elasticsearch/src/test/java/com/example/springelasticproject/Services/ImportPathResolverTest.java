@@ -0,0 +1,77 @@
+package com.example.springelasticproject.Services;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ImportPathResolverTest {
+
+    @TempDir
+    Path dir;
+
+    private Path root;
+    private Path deadLetters;
+    private ImportPathResolver resolver;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        root = Files.createDirectories(dir.resolve("imports"));
+        deadLetters = Files.createDirectories(dir.resolve("rejected"));
+        resolver = new ImportPathResolver(root.toString(), deadLetters.toString());
+    }
+
+    @Test
+    void pathsInsideTheRootAreAccepted() throws IOException {
+        Path csv = Files.writeString(Files.createDirectories(root.resolve("shards")).resolve("part-1.csv"), "id\n");
+
+        assertEquals(csv.toRealPath(), resolver.resolve("shards/part-1.csv").toPath());
+        assertEquals(csv.toRealPath(), resolver.resolve(csv.toString()).toPath());
+    }
+
+    @Test
+    void pathsLeavingTheRootAreRefused() throws IOException {
+        Path secret = Files.writeString(dir.resolve("secret.csv"), "id\n");
+
+        assertThrows(ImportPathResolver.ForbiddenPathException.class, () -> resolver.resolve("../secret.csv"));
+        assertThrows(ImportPathResolver.ForbiddenPathException.class, () -> resolver.resolve(secret.toString()));
+        assertThrows(ImportPathResolver.ForbiddenPathException.class, () -> resolver.resolve("/etc/passwd"));
+    }
+
+    @Test
+    void symlinksLeavingTheRootAreRefused() throws IOException {
+        Path secret = Files.writeString(dir.resolve("secret.csv"), "id\n");
+        try {
+            Files.createSymbolicLink(root.resolve("link.csv"), secret);
+        } catch (UnsupportedOperationException | IOException e) {
+            return;
+        }
+
+        assertThrows(ImportPathResolver.ForbiddenPathException.class, () -> resolver.resolve("link.csv"));
+    }
+
+    @Test
+    void deadLettersAreReplayedFromTheRootOrTheDeadLetterDirectory() throws IOException {
+        Path besideCsv = Files.writeString(root.resolve("users.csv.rejected.ndjson"), "{}\n");
+        Path streamed = Files.writeString(deadLetters.resolve("job-1.rejected.ndjson"), "{}\n");
+
+        assertEquals(besideCsv.toRealPath(), resolver.resolveDeadLetters("users.csv.rejected.ndjson").toPath());
+        assertEquals(streamed.toRealPath(), resolver.resolveDeadLetters(streamed.toString()).toPath());
+        assertThrows(ImportPathResolver.ForbiddenPathException.class,
+                () -> resolver.resolveDeadLetters(root.resolve("users.csv").toString()));
+        assertThrows(ImportPathResolver.ForbiddenPathException.class,
+                () -> resolver.resolveDeadLetters(dir.resolve("other.rejected.ndjson").toString()));
+    }
+
+    @Test
+    void uploadsAreStoredUnderTheRoot() throws IOException {
+        assertTrue(resolver.newUploadFile().toPath().startsWith(root.resolve("uploads")));
+    }
+}
@@ -0,0 +1,123 @@
+package com.example.springelasticproject.util;
+
+import co.elastic.clients.elasticsearch._types.ElasticsearchException;
+import co.elastic.clients.elasticsearch._types.ErrorResponse;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AdaptiveBatchControllerTest {
+
+    private static final long TARGET_MS = 500;
+
+    private final AdaptiveBatchController controller =
+            new AdaptiveBatchController(1_000, 100, 2_000, 1, 4, TARGET_MS, 100, 5_000);
+
+    @Test
+    void fastResponsesGrowBatchAndConcurrency() {
+        for (int i = 0; i < 5; i++) {
+            controller.onSuccess(50);
+        }
+        // +10 % de la taille initiale par réponse rapide, une requête simultanée de plus toutes les 5
+        assertEquals(1_500, controller.getBatchLimit());
+        assertEquals(2, controller.getConcurrency());
+
+        for (int i = 0; i < 100; i++) {
+            controller.onSuccess(50);
+        }
+        assertEquals(2_000, controller.getBatchLimit());
+        assertEquals(4, controller.getConcurrency());
+    }
+
+    @Test
+    void slowResponsesShrinkTheBatch() {
+        controller.onSuccess(TARGET_MS + 1);
+        assertEquals(800, controller.getBatchLimit());
+
+        for (int i = 0; i < 50; i++) {
+            controller.onSuccess(TARGET_MS * 3);
+        }
+        assertEquals(100, controller.getBatchLimit());
+        assertEquals(1, controller.getConcurrency());
+    }
+
+    @Test
+    void rejectionHalvesBatchAndConcurrency() {
+        for (int i = 0; i < 15; i++) {
+            controller.onSuccess(50);
+        }
+        assertEquals(4, controller.getConcurrency());
+
+        controller.onRejected();
+        assertEquals(1_000, controller.getBatchLimit());
+        assertEquals(2, controller.getConcurrency());
+        controller.onRejected();
+        controller.onRejected();
+        assertEquals(1, controller.getConcurrency());
+    }
+
+    @Test
+    void acquireWaitsForAFreeSlot() throws Exception {
+        controller.acquire();
+        assertEquals(1, controller.getInFlight());
+
+        CountDownLatch acquired = new CountDownLatch(1);
+        Thread second = new Thread(() -> {
+            try {
+                controller.acquire();
+                acquired.countDown();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        second.start();
+        assertFalse(acquired.await(100, TimeUnit.MILLISECONDS));
+
+        controller.finished();
+        assertTrue(acquired.await(5, TimeUnit.SECONDS));
+        second.join();
+        assertEquals(1, controller.getInFlight());
+    }
+
+    @Test
+    void fixedControllerNeverAdapts() {
+        AdaptiveBatchController fixed = AdaptiveBatchController.fixed(1_000, 3, 100, 5_000);
+        for (int i = 0; i < 20; i++) {
+            fixed.onSuccess(10);
+        }
+        fixed.onSuccess(60_000);
+        assertEquals(1_000, fixed.getBatchLimit());
+        assertEquals(3, fixed.getConcurrency());
+    }
+
+    @Test
+    void backoffIsExponentialCappedAndJittered() {
+        for (int attempt = 1; attempt <= 10; attempt++) {
+            long ceiling = Math.min(5_000, 100L << (attempt - 1));
+            for (int i = 0; i < 50; i++) {
+                long delay = controller.backoffMillis(attempt);
+                assertTrue(delay >= ceiling / 2 && delay <= ceiling, "tentative " + attempt + " : " + delay);
+            }
+        }
+    }
+
+    @Test
+    void rejectionsAreRecognised() {
+        assertTrue(AdaptiveBatchController.isRejection(429, null));
+        assertTrue(AdaptiveBatchController.isRejection(200, "es_rejected_execution_exception"));
+        assertTrue(AdaptiveBatchController.isRejection(503, "circuit_breaking_exception"));
+        assertFalse(AdaptiveBatchController.isRejection(400, "mapper_parsing_exception"));
+
+        ElasticsearchException tooMany = new ElasticsearchException("bulk", ErrorResponse.of(e -> e
+                .status(429)
+                .error(c -> c.type("es_rejected_execution_exception").reason("queue full"))));
+        assertTrue(AdaptiveBatchController.isRejection(new IOException("bulk", tooMany)));
+        assertFalse(AdaptiveBatchController.isRejection(new IOException("Connection reset")));
+    }
+}
@@ -0,0 +1,88 @@
+package com.example.springelasticproject.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BloomFilterTest {
+
+    private static final int KEYS = 100_000;
+
+    @Test
+    void addedKeysAreAlwaysReportedAsPresent() {
+        BloomFilter filter = new BloomFilter(KEYS, 0.01);
+        for (long key = 0; key < KEYS; key++) {
+            filter.put(key * 7919);
+        }
+        // Aucun faux négatif
+        for (long key = 0; key < KEYS; key++) {
+            assertTrue(filter.put(key * 7919), "clé " + key);
+        }
+    }
+
+    @Test
+    void falsePositiveRateStaysNearTheTarget() {
+        BloomFilter filter = new BloomFilter(KEYS, 0.01);
+        // Identifiants séquentiels : le cas des imports, que le mélange des bits doit répartir
+        for (long key = 1; key <= KEYS; key++) {
+            filter.put(key);
+        }
+
+        // put ajoute aussi les clés sondées : 10 000 sondes seulement, pour rester proche du remplissage prévu
+        int probes = KEYS / 10;
+        int falsePositives = 0;
+        for (long key = KEYS + 1; key <= KEYS + probes; key++) {
+            if (filter.put(key)) {
+                falsePositives++;
+            }
+        }
+        double rate = (double) falsePositives / probes;
+        assertTrue(rate < 0.02, "taux de faux positifs : " + rate);
+        assertTrue(filter.expectedFalsePositiveRate() < 0.05, "taux attendu : " + filter.expectedFalsePositiveRate());
+    }
+
+    @Test
+    void concurrentPutsLoseNoKey() throws InterruptedException {
+        BloomFilter filter = new BloomFilter(KEYS, 0.001);
+        AtomicInteger firstSeen = new AtomicInteger();
+        List<Thread> threads = new ArrayList<>();
+        // Quatre threads alimentent le filtre en parallèle, chacun avec ses propres clés
+        for (int t = 0; t < 4; t++) {
+            long offset = t * 1_000_000L;
+            Thread thread = new Thread(() -> {
+                for (long key = offset; key < offset + 20_000; key++) {
+                    if (!filter.put(key)) {
+                        firstSeen.incrementAndGet();
+                    }
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        // Quelques faux positifs au plus, et aucun bit perdu par les CAS concurrents
+        assertTrue(firstSeen.get() >= 79_800, "clés nouvelles : " + firstSeen.get());
+        assertEquals(firstSeen.get(), filter.getInsertions());
+        for (int t = 0; t < 4; t++) {
+            for (long key = t * 1_000_000L; key < t * 1_000_000L + 20_000; key++) {
+                assertTrue(filter.put(key), "clé " + key);
+            }
+        }
+    }
+
+    @Test
+    void sizeFollowsTheStandardFormula() {
+        // m = -n ln(p) / (ln 2)^2 : environ 9,6 bits par clé pour 1 %
+        BloomFilter filter = new BloomFilter(1_000_000, 0.01);
+        long expectedBytes = (long) Math.ceil(-1_000_000 * Math.log(0.01) / (Math.log(2) * Math.log(2))) / 8;
+        assertTrue(Math.abs(filter.getSizeBytes() - expectedBytes) <= 8, "taille : " + filter.getSizeBytes());
+    }
+}
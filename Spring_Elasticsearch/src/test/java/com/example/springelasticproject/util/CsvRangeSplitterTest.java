@@ -0,0 +1,140 @@
+package com.example.springelasticproject.util;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CsvRangeSplitterTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void rangesCoverTheFileWithoutTheHeader() throws IOException {
+        Path csv = write("id,name\n1,a\n2,b\n3,c\n4,d\n5,e\n6,f\n");
+
+        List<CsvRangeSplitter.Range> ranges = CsvRangeSplitter.split(csv, 3);
+        assertEquals(3, ranges.size());
+        assertEquals("id,name\n".length(), ranges.get(0).getStart());
+        assertEquals(Files.size(csv), ranges.get(ranges.size() - 1).getEnd());
+        for (int i = 1; i < ranges.size(); i++) {
+            assertEquals(ranges.get(i - 1).getEnd(), ranges.get(i).getStart());
+        }
+        assertEquals(2, ranges.get(0).getFirstLine());
+    }
+
+    @Test
+    void boundariesNeverFallInsideAQuotedField() throws IOException {
+        // Champs de plusieurs lignes, avec des lignes qui ressemblent à des enregistrements
+        StringBuilder content = new StringBuilder("id,bio\n");
+        for (int i = 0; i < 50; i++) {
+            content.append(i).append(",\"ligne 1\n").append(i).append(",faux\n\"\"cité\"\" fin\"\n");
+        }
+        Path csv = write(content.toString());
+
+        for (int parts = 1; parts <= 16; parts++) {
+            List<String[]> rows = readRanges(csv, parts);
+            assertEquals(50, rows.size(), parts + " plages");
+            for (int i = 0; i < rows.size(); i++) {
+                assertEquals(String.valueOf(i), rows.get(i)[0]);
+                assertEquals("ligne 1\n" + i + ",faux\n\"cité\" fin", rows.get(i)[1]);
+            }
+        }
+    }
+
+    @Test
+    void firstLineOfEachRangeIsThePhysicalLine() throws IOException {
+        Path csv = write(UserCsvTokenizerTest.randomCsv(new Random(3), 300));
+        List<String> lines = Files.readAllLines(csv, StandardCharsets.UTF_8);
+
+        try (FileChannel channel = FileChannel.open(csv, StandardOpenOption.READ)) {
+            for (CsvRangeSplitter.Range range : CsvRangeSplitter.split(csv, 7)) {
+                UserCsvTokenizer tokenizer = new UserCsvTokenizer(CsvRangeSplitter.openRange(channel, range),
+                        4096, range.getStart(), range.getFirstLine());
+                assertTrue(tokenizer.next());
+                assertEquals(range.getFirstLine(), tokenizer.recordLine());
+                // La plage commence au début d'une ligne physique du fichier
+                String firstLine = lines.get((int) range.getFirstLine() - 1);
+                assertTrue(tokenizer.rawRecord().startsWith(firstLine), tokenizer.rawRecord());
+            }
+        }
+    }
+
+    @Test
+    void rangesMatchASequentialRead() throws IOException {
+        String content = UserCsvTokenizerTest.randomCsv(new Random(11), 2_000);
+        Path csv = write(content);
+        List<String[]> expected = readAll(Files.newInputStream(csv));
+        expected.remove(0);
+
+        for (int parts : new int[]{2, 5, 32}) {
+            List<String[]> actual = readRanges(csv, parts);
+            assertEquals(expected.size(), actual.size());
+            for (int i = 0; i < expected.size(); i++) {
+                assertEquals(Arrays.asList(expected.get(i)), Arrays.asList(actual.get(i)));
+            }
+        }
+    }
+
+    @Test
+    void headerOnlyFileHasNoRange() throws IOException {
+        assertTrue(CsvRangeSplitter.split(write("id,name\n"), 4).isEmpty());
+    }
+
+    @Test
+    void mappedStreamReadsExactlyTheRange() throws IOException {
+        Path csv = write("id\n1\n22\n333\n");
+        CsvRangeSplitter.Range range = new CsvRangeSplitter.Range(5, 8, 3);
+        try (FileChannel channel = FileChannel.open(csv, StandardOpenOption.READ);
+             InputStream in = CsvRangeSplitter.openRange(channel, range)) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            in.transferTo(out);
+            assertEquals("22\n", out.toString(StandardCharsets.UTF_8));
+        }
+    }
+
+    private Path write(String content) throws IOException {
+        return Files.writeString(dir.resolve("users.csv"), content, StandardCharsets.UTF_8);
+    }
+
+    // Enregistrements de toutes les plages, dans l'ordre du fichier
+    private static List<String[]> readRanges(Path csv, int parts) throws IOException {
+        List<String[]> rows = new ArrayList<>();
+        try (FileChannel channel = FileChannel.open(csv, StandardOpenOption.READ)) {
+            for (CsvRangeSplitter.Range range : CsvRangeSplitter.split(csv, parts)) {
+                rows.addAll(readAll(CsvRangeSplitter.openRange(channel, range)));
+            }
+        }
+        return rows;
+    }
+
+    private static List<String[]> readAll(InputStream in) throws IOException {
+        List<String[]> rows = new ArrayList<>();
+        try (in) {
+            UserCsvTokenizer tokenizer = new UserCsvTokenizer(in, 4096, 0, 1);
+            while (tokenizer.next()) {
+                String[] row = new String[tokenizer.fieldCount()];
+                for (int i = 0; i < row.length; i++) {
+                    row[i] = tokenizer.field(i);
+                }
+                rows.add(row);
+            }
+        }
+        return rows;
+    }
+}
@@ -0,0 +1,112 @@
+package com.example.springelasticproject.util;
+
+import com.example.springelasticproject.model.RepairShop;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Lecture d'une ligne NDJSON de boutique : RepairShopDeserializer contre l'ancien mapping manuel
+ * (readTree puis copie champ par champ, voir RepairShopDeserializerTest#legacyMapping).
+ * Mesure également les allocations avec {@code -prof gc}.
+ * <p>
+ * Lancement après {@code mvn test-compile} : méthode {@code main} depuis l'IDE, ou
+ * {@code java -cp <classpath de test> org.openjdk.jmh.Main RepairShopDeserializerBenchmark -prof gc}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RepairShopDeserializerBenchmark {
+
+    // Taille de la ligne générée : concurrents et avis mis en avant (deux photos chacun)
+    @Param({"10"})
+    public int competitors;
+
+    @Param({"40"})
+    public int featuredReviews;
+
+    private final ObjectMapper mapper = new ObjectMapper();
+    private ObjectReader shopReader;
+    private String line;
+
+    @Setup
+    public void generate() {
+        shopReader = new ObjectMapper()
+                .registerModule(new SimpleModule().addDeserializer(RepairShop.class, new RepairShopDeserializer()))
+                .readerFor(RepairShop.class);
+
+        StringBuilder builder = new StringBuilder("{\"place_id\":\"ChIJ0123456789\",\"name\":\"Répar'Tout\",")
+                .append("\"description\":\"Réparation de téléphones et tablettes\",\"is_spending_on_ads\":false,")
+                .append("\"reviews\":128,\"rating\":4.6,\"address\":\"12 rue de Paris, 75001 Paris\",")
+                .append("\"coordinates\":{\"latitude\":48.8566,\"longitude\":2.3522},")
+                .append("\"detailed_address\":{\"ward\":\"1er\",\"street\":\"12 rue de Paris\",\"city\":\"Paris\",")
+                .append("\"postal_code\":\"75001\",\"state\":\"Île-de-France\",\"country_code\":\"FR\"},")
+                .append("\"website\":\"https://repartout.fr\",\"phone\":\"+33 1 23 45 67 89\",\"can_claim\":true,")
+                .append("\"owner\":{\"id\":\"42\",\"name\":\"Jean\",\"link\":\"https://example.com/owner/42\"},")
+                .append("\"main_category\":\"Réparation\",\"categories\":[\"Réparation\",\"Téléphonie\",\"Informatique\"],")
+                .append("\"workday_timing\":\"9:00–19:00\",\"closed_on\":[\"Dimanche\"],")
+                .append("\"reviews_per_rating\":{\"1\":2,\"2\":4,\"3\":10,\"4\":30,\"5\":82},")
+                .append("\"hours\":[");
+        String[] days = {"Lundi", "Mardi", "Mercredi", "Jeudi", "Vendredi", "Samedi", "Dimanche"};
+        for (int i = 0; i < days.length; i++) {
+            builder.append(i > 0 ? "," : "").append("{\"day\":\"").append(days[i])
+                    .append("\",\"times\":[\"9:00–12:00\",\"14:00–19:00\"]}");
+        }
+        builder.append("],\"competitors\":[");
+        for (int i = 0; i < competitors; i++) {
+            builder.append(i > 0 ? "," : "").append("{\"name\":\"Concurrent ").append(i)
+                    .append("\",\"link\":\"https://maps.example.com/c").append(i)
+                    .append("\",\"reviews\":").append(10 + i).append(",\"rating\":4.").append(i % 10)
+                    .append(",\"main_category\":\"Réparation\"}");
+        }
+        builder.append("],\"featured_reviews\":[");
+        for (int i = 0; i < featuredReviews; i++) {
+            builder.append(i > 0 ? "," : "").append("{\"review_id\":\"r").append(i)
+                    .append("\",\"review_link\":\"https://maps.example.com/r").append(i)
+                    .append("\",\"name\":\"Client ").append(i).append("\",\"reviewer_id\":\"u").append(i)
+                    .append("\",\"rating\":").append(1 + i % 5)
+                    .append(",\"review_text\":\"Accueil rapide, réparation soignée, prix correct.\"")
+                    .append(",\"published_at\":\"il y a 2 mois\",\"is_local_guide\":").append(i % 3 == 0)
+                    .append(",\"review_photos\":[{\"id\":\"p").append(i).append("a\",\"url\":\"https://example.com/p")
+                    .append(i).append("a.jpg\",\"width\":800,\"height\":600},{\"id\":\"p").append(i)
+                    .append("b\",\"url\":\"https://example.com/p").append(i).append("b.jpg\",\"width\":800,\"height\":600}]}");
+        }
+        line = builder.append("]}").toString();
+    }
+
+    @Benchmark
+    public RepairShop deserializer() throws IOException {
+        return shopReader.readValue(line);
+    }
+
+    @Benchmark
+    public RepairShop readTree() throws IOException {
+        return RepairShopDeserializerTest.legacyMapping(mapper.readTree(line));
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(RepairShopDeserializerBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
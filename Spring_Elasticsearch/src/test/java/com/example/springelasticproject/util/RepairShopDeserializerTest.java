@@ -0,0 +1,306 @@
+package com.example.springelasticproject.util;
+
+import com.example.springelasticproject.model.RepairShop;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class RepairShopDeserializerTest {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final ObjectMapper READER = new ObjectMapper()
+            .registerModule(new SimpleModule().addDeserializer(RepairShop.class, new RepairShopDeserializer()));
+
+    private static final String FULL_LINE = """
+            {"place_id":"ChIJ123","name":"Répar'Tout","description":"Réparation \\"express\\"",
+             "is_spending_on_ads":true,"reviews":128,"rating":4.6,"address":"12 rue de Paris, 75001 Paris",
+             "coordinates":{"latitude":48.8566,"longitude":2.3522,"altitude":35},
+             "detailed_address":{"ward":"1er","street":"12 rue de Paris","city":"Paris","postal_code":"75001",
+                                 "state":"Île-de-France","country_code":"FR","extra":{"a":1}},
+             "website":"https://repartout.fr","phone":"+33 1 23 45 67 89","can_claim":false,
+             "owner":{"id":"42","name":"Jean","link":"https://example.com/owner/42"},
+             "featured_image":"https://example.com/img.jpg","main_category":"Réparation de téléphones",
+             "categories":["Réparation","Téléphonie",null,7],
+             "workday_timing":"9:00–19:00","is_temporarily_closed":false,"is_permanently_closed":null,
+             "closed_on":["Dimanche"],"link":"https://maps.example.com/ChIJ123","status":"OPERATIONAL",
+             "price_range":"€€","plus_code":"8FW4V942+","time_zone":"Europe/Paris","cid":"987654321",
+             "data_id":"0x1:0x2","query":"réparation paris",
+             "reviews_per_rating":{"1":2,"2":null,"3":10,"4":30,"5":84},
+             "competitors":[{"name":"FixIt","link":"https://fixit.fr","reviews":"57","rating":4.1,
+                             "main_category":"Réparation","unknown":[1,2]},
+                            {"name":"Sans note"},"pas un objet"],
+             "review_keywords":[{"keyword":"rapide","count":12},{"keyword":"prix"}],
+             "about":[{"id":"services","name":"Services","options":[{"name":"Sur place","enabled":true},
+                                                                     {"name":"Livraison","enabled":"false"}]},
+                      {"id":"accessibilite","name":"Accessibilité"}],
+             "images":[{"about":"Vitrine","link":"https://example.com/1.jpg"},{"link":"https://example.com/2.jpg"}],
+             "hours":[{"day":"Lundi","times":["9:00–12:00","14:00–19:00"]},{"day":"Dimanche","times":"Fermé"}],
+             "featured_reviews":[{"review_id":"r1","review_link":"https://example.com/r1","name":"Alice",
+                                  "reviewer_id":"u1","reviewer_profile":"https://example.com/u1","rating":5,
+                                  "review_text":"Très bien\\nmerci","published_at":"il y a 2 mois",
+                                  "response_from_owner_text":null,"is_local_guide":true,
+                                  "review_photos":[{"id":"p1","url":"https://example.com/p1.jpg",
+                                                    "caption":null,"width":800,"height":600}]},
+                                 {"review_id":"r2","rating":"3","is_local_guide":false}],
+             "detailed_reviews":[{"review_id":"d1","review_photos":[{"id":"p2"}]},{}],
+             "nouveau_champ":{"nested":[true,false]}}
+            """.replace("\n", "");
+
+    @Test
+    void fullLineMatchesTheManualMapping() throws IOException {
+        assertSameShop(FULL_LINE);
+    }
+
+    @Test
+    void missingAndMistypedFieldsMatchTheManualMapping() throws IOException {
+        assertSameShop("{\"place_id\":\"p1\"}");
+        assertSameShop("{\"place_id\":null,\"reviews\":\"12\",\"rating\":\"4.5\",\"can_claim\":\"true\","
+                + "\"name\":{\"fr\":\"objet\"},\"categories\":\"pas un tableau\",\"competitors\":{},"
+                + "\"hours\":null,\"owner\":\"texte\",\"detailed_address\":[1,2],\"reviews_per_rating\":[]}");
+        assertSameShop("{\"about\":[],\"images\":[],\"featured_reviews\":[{\"review_photos\":[]}],"
+                + "\"coordinates\":{\"latitude\":\"48.1\"}}");
+    }
+
+    @Test
+    void nullCoordinatesNoLongerProduceAnEmptyGeoPoint() throws IOException {
+        RepairShop shop = READER.readValue("{\"place_id\":\"p1\",\"coordinates\":null}", RepairShop.class);
+
+        // Seule différence voulue avec l'ancien mapping : pas de point {lat: null, lon: null}
+        assertNull(shop.getCoordinates());
+        assertNull(shop.getLatitude());
+    }
+
+    private static void assertSameShop(String line) throws IOException {
+        JsonNode expected = MAPPER.valueToTree(legacyMapping(MAPPER.readTree(line)));
+        JsonNode actual = MAPPER.valueToTree(READER.readValue(line, RepairShop.class));
+        assertEquals(expected, actual, line);
+    }
+
+    // Ancien mapping manuel de DataImporter (arbre JsonNode), conservé comme référence (voir aussi le benchmark)
+    static RepairShop legacyMapping(JsonNode jsonNode) {
+        RepairShop shop = new RepairShop();
+
+        shop.setPlaceId(getTextValue(jsonNode, "place_id"));
+        shop.setName(getTextValue(jsonNode, "name"));
+        shop.setDescription(getTextValue(jsonNode, "description"));
+        shop.setIsSpendingOnAds(getBooleanValue(jsonNode, "is_spending_on_ads"));
+        shop.setReviews(getIntValue(jsonNode, "reviews"));
+        shop.setRating(getFloatValue(jsonNode, "rating"));
+        shop.setAddress(getTextValue(jsonNode, "address"));
+
+        // Seul écart avec l'original : "coordinates": null est ignoré (voir le test dédié)
+        if (jsonNode.has("coordinates") && !jsonNode.get("coordinates").isNull()) {
+            JsonNode coordNode = jsonNode.get("coordinates");
+            shop.setLatitude(getDoubleValue(coordNode, "latitude"));
+            shop.setLongitude(getDoubleValue(coordNode, "longitude"));
+            Map<String, Double> coordinates = new HashMap<>();
+            coordinates.put("lat", getDoubleValue(coordNode, "latitude"));
+            coordinates.put("lon", getDoubleValue(coordNode, "longitude"));
+            shop.setCoordinates(coordinates);
+        }
+
+        if (jsonNode.has("detailed_address")) {
+            JsonNode addrNode = jsonNode.get("detailed_address");
+            shop.setWard(getTextValue(addrNode, "ward"));
+            shop.setStreet(getTextValue(addrNode, "street"));
+            shop.setCity(getTextValue(addrNode, "city"));
+            shop.setPostalCode(getTextValue(addrNode, "postal_code"));
+            shop.setState(getTextValue(addrNode, "state"));
+            shop.setCountryCode(getTextValue(addrNode, "country_code"));
+        }
+
+        shop.setWebsite(getTextValue(jsonNode, "website"));
+        shop.setPhone(getTextValue(jsonNode, "phone"));
+        shop.setCanClaim(getBooleanValue(jsonNode, "can_claim"));
+
+        if (jsonNode.has("owner")) {
+            JsonNode ownerNode = jsonNode.get("owner");
+            shop.setOwnerId(getTextValue(ownerNode, "id"));
+            shop.setOwnerName(getTextValue(ownerNode, "name"));
+            shop.setOwnerLink(getTextValue(ownerNode, "link"));
+        }
+
+        shop.setFeaturedImage(getTextValue(jsonNode, "featured_image"));
+        shop.setMainCategory(getTextValue(jsonNode, "main_category"));
+        if (jsonNode.has("categories") && jsonNode.get("categories").isArray()) {
+            shop.setCategories(texts(jsonNode.get("categories")));
+        }
+
+        shop.setWorkdayTiming(getTextValue(jsonNode, "workday_timing"));
+        shop.setIsTemporarilyClosed(getBooleanValue(jsonNode, "is_temporarily_closed"));
+        shop.setIsPermanentlyClosed(getBooleanValue(jsonNode, "is_permanently_closed"));
+        if (jsonNode.has("closed_on") && jsonNode.get("closed_on").isArray()) {
+            shop.setClosedOn(texts(jsonNode.get("closed_on")));
+        }
+
+        shop.setLink(getTextValue(jsonNode, "link"));
+        shop.setStatus(getTextValue(jsonNode, "status"));
+        shop.setPriceRange(getTextValue(jsonNode, "price_range"));
+        shop.setPlusCode(getTextValue(jsonNode, "plus_code"));
+        shop.setTimeZone(getTextValue(jsonNode, "time_zone"));
+        shop.setCid(getTextValue(jsonNode, "cid"));
+        shop.setDataId(getTextValue(jsonNode, "data_id"));
+        shop.setQuery(getTextValue(jsonNode, "query"));
+
+        if (jsonNode.has("reviews_per_rating")) {
+            Map<String, Integer> reviewsPerRating = new HashMap<>();
+            jsonNode.get("reviews_per_rating").fields()
+                    .forEachRemaining(entry -> reviewsPerRating.put(entry.getKey(), entry.getValue().asInt()));
+            shop.setReviewsPerRating(reviewsPerRating);
+        }
+
+        if (jsonNode.has("competitors") && jsonNode.get("competitors").isArray()) {
+            List<Map<String, Object>> competitors = new ArrayList<>();
+            for (JsonNode comp : jsonNode.get("competitors")) {
+                Map<String, Object> competitor = new HashMap<>();
+                competitor.put("name", getTextValue(comp, "name"));
+                competitor.put("link", getTextValue(comp, "link"));
+                competitor.put("reviews", getIntValue(comp, "reviews"));
+                competitor.put("rating", getFloatValue(comp, "rating"));
+                competitor.put("mainCategory", getTextValue(comp, "main_category"));
+                competitors.add(competitor);
+            }
+            shop.setCompetitors(competitors);
+        }
+
+        if (jsonNode.has("review_keywords") && jsonNode.get("review_keywords").isArray()) {
+            List<Map<String, Object>> reviewKeywords = new ArrayList<>();
+            for (JsonNode kw : jsonNode.get("review_keywords")) {
+                Map<String, Object> keyword = new HashMap<>();
+                keyword.put("keyword", getTextValue(kw, "keyword"));
+                keyword.put("count", getIntValue(kw, "count"));
+                reviewKeywords.add(keyword);
+            }
+            shop.setReviewKeywords(reviewKeywords);
+        }
+
+        if (jsonNode.has("about") && jsonNode.get("about").isArray()) {
+            List<Map<String, Object>> aboutList = new ArrayList<>();
+            for (JsonNode aboutNode : jsonNode.get("about")) {
+                Map<String, Object> about = new HashMap<>();
+                about.put("id", getTextValue(aboutNode, "id"));
+                about.put("name", getTextValue(aboutNode, "name"));
+                if (aboutNode.has("options") && aboutNode.get("options").isArray()) {
+                    List<Map<String, Object>> options = new ArrayList<>();
+                    for (JsonNode opt : aboutNode.get("options")) {
+                        Map<String, Object> option = new HashMap<>();
+                        option.put("name", getTextValue(opt, "name"));
+                        option.put("enabled", getBooleanValue(opt, "enabled"));
+                        options.add(option);
+                    }
+                    about.put("options", options);
+                }
+                aboutList.add(about);
+            }
+            shop.setAbout(aboutList);
+        }
+
+        if (jsonNode.has("images") && jsonNode.get("images").isArray()) {
+            List<Map<String, String>> imagesList = new ArrayList<>();
+            for (JsonNode imgNode : jsonNode.get("images")) {
+                Map<String, String> image = new HashMap<>();
+                image.put("about", getTextValue(imgNode, "about"));
+                image.put("link", getTextValue(imgNode, "link"));
+                imagesList.add(image);
+            }
+            shop.setImages(imagesList);
+        }
+
+        if (jsonNode.has("hours") && jsonNode.get("hours").isArray()) {
+            List<Map<String, Object>> hoursList = new ArrayList<>();
+            for (JsonNode hourNode : jsonNode.get("hours")) {
+                Map<String, Object> hour = new HashMap<>();
+                hour.put("day", getTextValue(hourNode, "day"));
+                if (hourNode.has("times") && hourNode.get("times").isArray()) {
+                    hour.put("times", texts(hourNode.get("times")));
+                }
+                hoursList.add(hour);
+            }
+            shop.setHours(hoursList);
+        }
+
+        if (jsonNode.has("featured_reviews") && jsonNode.get("featured_reviews").isArray()) {
+            List<Map<String, Object>> reviewsList = new ArrayList<>();
+            for (JsonNode reviewNode : jsonNode.get("featured_reviews")) {
+                Map<String, Object> review = new HashMap<>();
+                review.put("reviewId", getTextValue(reviewNode, "review_id"));
+                review.put("reviewLink", getTextValue(reviewNode, "review_link"));
+                review.put("name", getTextValue(reviewNode, "name"));
+                review.put("reviewerId", getTextValue(reviewNode, "reviewer_id"));
+                review.put("reviewerProfile", getTextValue(reviewNode, "reviewer_profile"));
+                review.put("rating", getIntValue(reviewNode, "rating"));
+                review.put("reviewText", getTextValue(reviewNode, "review_text"));
+                review.put("publishedAt", getTextValue(reviewNode, "published_at"));
+                review.put("responseFromOwnerText", getTextValue(reviewNode, "response_from_owner_text"));
+                review.put("responseFromOwnerAgo", getTextValue(reviewNode, "response_from_owner_ago"));
+                review.put("isLocalGuide", getBooleanValue(reviewNode, "is_local_guide"));
+                review.put("reviewTranslatedText", getTextValue(reviewNode, "review_translated_text"));
+                review.put("responseFromOwnerTranslatedText",
+                        getTextValue(reviewNode, "response_from_owner_translated_text"));
+                if (reviewNode.has("review_photos") && reviewNode.get("review_photos").isArray()) {
+                    List<Map<String, Object>> photosList = new ArrayList<>();
+                    for (JsonNode photoNode : reviewNode.get("review_photos")) {
+                        Map<String, Object> photo = new HashMap<>();
+                        photo.put("id", getTextValue(photoNode, "id"));
+                        photo.put("url", getTextValue(photoNode, "url"));
+                        photo.put("caption", getTextValue(photoNode, "caption"));
+                        photo.put("width", getIntValue(photoNode, "width"));
+                        photo.put("height", getIntValue(photoNode, "height"));
+                        photosList.add(photo);
+                    }
+                    review.put("reviewPhotos", photosList);
+                }
+                reviewsList.add(review);
+            }
+            shop.setFeaturedReviews(reviewsList);
+        }
+
+        if (jsonNode.has("detailed_reviews") && jsonNode.get("detailed_reviews").isArray()) {
+            List<Map<String, Object>> detailedReviewsList = new ArrayList<>();
+            for (JsonNode ignored : jsonNode.get("detailed_reviews")) {
+                detailedReviewsList.add(new HashMap<>());
+            }
+            shop.setDetailedReviews(detailedReviewsList);
+        }
+
+        return shop;
+    }
+
+    private static List<String> texts(JsonNode array) {
+        List<String> values = new ArrayList<>();
+        for (JsonNode value : array) {
+            values.add(value.asText());
+        }
+        return values;
+    }
+
+    private static String getTextValue(JsonNode node, String fieldName) {
+        return node.has(fieldName) && !node.get(fieldName).isNull() ? node.get(fieldName).asText() : null;
+    }
+
+    private static Integer getIntValue(JsonNode node, String fieldName) {
+        return node.has(fieldName) && !node.get(fieldName).isNull() ? node.get(fieldName).asInt() : null;
+    }
+
+    private static Float getFloatValue(JsonNode node, String fieldName) {
+        return node.has(fieldName) && !node.get(fieldName).isNull() ? (float) node.get(fieldName).asDouble() : null;
+    }
+
+    private static Double getDoubleValue(JsonNode node, String fieldName) {
+        return node.has(fieldName) && !node.get(fieldName).isNull() ? node.get(fieldName).asDouble() : null;
+    }
+
+    private static Boolean getBooleanValue(JsonNode node, String fieldName) {
+        return node.has(fieldName) && !node.get(fieldName).isNull() ? node.get(fieldName).asBoolean() : null;
+    }
+}
@@ -0,0 +1,92 @@
+package com.example.springelasticproject.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ThroughputLimiterTest {
+
+    @Test
+    void disabledLimiterNeverWaits() throws Exception {
+        ThroughputLimiter limiter = new ThroughputLimiter(0, 0);
+        assertFalse(limiter.isEnabled());
+
+        long elapsedMs = timeMillis(() -> limiter.acquire(1_000_000, 1L << 30));
+        assertTrue(elapsedMs < 50, "durée : " + elapsedMs + " ms");
+    }
+
+    @Test
+    void docsRateIsHeld() throws Exception {
+        ThroughputLimiter limiter = new ThroughputLimiter(10_000, 0);
+
+        long elapsedMs = timeMillis(() -> {
+            for (int i = 0; i < 6; i++) {
+                limiter.acquire(500, 0);
+            }
+        });
+        // 3 000 documents à 10 000 docs/s : au moins 300 ms
+        assertTrue(elapsedMs >= 290, "durée : " + elapsedMs + " ms");
+    }
+
+    @Test
+    void idleTimeBuildsUpAtMostOneSecondOfCredit() throws Exception {
+        ThroughputLimiter limiter = new ThroughputLimiter(10_000, 0);
+        Thread.sleep(1_500);
+
+        // 1,5 s d'inactivité : 10 000 documents passent sans attendre, pas 15 000
+        long burstMs = timeMillis(() -> limiter.acquire(10_000, 0));
+        assertTrue(burstMs < 100, "rafale : " + burstMs + " ms");
+        long elapsedMs = timeMillis(() -> limiter.acquire(3_000, 0));
+        assertTrue(elapsedMs >= 250, "durée : " + elapsedMs + " ms");
+    }
+
+    @Test
+    void slowestLimitWins() throws Exception {
+        ThroughputLimiter limiter = new ThroughputLimiter(1_000_000, 100_000);
+
+        long elapsedMs = timeMillis(() -> limiter.acquire(10, 30_000));
+        assertTrue(elapsedMs >= 290, "durée : " + elapsedMs + " ms");
+    }
+
+    @Test
+    void concurrentCallersShareTheRate() throws Exception {
+        ThroughputLimiter limiter = new ThroughputLimiter(10_000, 0);
+
+        List<Thread> threads = new ArrayList<>();
+        long start = System.nanoTime();
+        for (int t = 0; t < 4; t++) {
+            Thread thread = new Thread(() -> {
+                try {
+                    for (int i = 0; i < 3; i++) {
+                        limiter.acquire(250, 0);
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        // 4 × 750 documents à 10 000 docs/s, quel que soit le nombre d'appelants : au moins 300 ms
+        assertTrue(elapsedMs >= 290, "durée : " + elapsedMs + " ms");
+    }
+
+    private interface Action {
+        void run() throws InterruptedException;
+    }
+
+    private static long timeMillis(Action action) throws InterruptedException {
+        long start = System.nanoTime();
+        action.run();
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+    }
+}
@@ -0,0 +1,112 @@
+package com.example.springelasticproject.util;
+
+import com.opencsv.CSVReader;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parsing d'un CSV d'utilisateurs : UserCsvTokenizer contre le CSVReader d'OpenCSV (ancien chemin d'import,
+ * suivi de StringUtils.trimToNull sur chaque champ). Mesure également les allocations avec {@code -prof gc}.
+ * <p>
+ * Lancement après {@code mvn test-compile} : méthode {@code main} depuis l'IDE, ou
+ * {@code java -cp <classpath de test> org.openjdk.jmh.Main UserCsvTokenizerBenchmark -prof gc}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class UserCsvTokenizerBenchmark {
+
+    // Nombre de lignes du fichier généré
+    @Param({"100000"})
+    public int rows;
+
+    private byte[] csv;
+
+    @Setup
+    public void generate() {
+        Random random = new Random(1);
+        StringBuilder builder = new StringBuilder(
+                "userId,idS,firstName,lastName,email,phone,city,country,address,bio,createdAt,updatedAt,department,region\n");
+        for (int i = 0; i < rows; i++) {
+            builder.append(1_000_000_000L + i).append(',')
+                    .append(Long.toHexString(random.nextLong())).append(',')
+                    .append("Jean").append(',')
+                    .append(random.nextInt(10) == 0 ? "\"Dupont, dit \"\"JD\"\"\"" : "Dupont").append(',')
+                    .append("jean.dupont").append(i).append("@example.com").append(',')
+                    .append("+33 6 12 34 56 ").append(i % 100).append(',')
+                    .append("Paris").append(',')
+                    .append("France").append(',')
+                    .append(random.nextInt(20) == 0 ? "\"12 rue de la Paix\nBâtiment B\"" : "12 rue de la Paix").append(',')
+                    .append(" ").append(',')
+                    .append("2023-01-01T00:00:00Z").append(',')
+                    .append("2023-06-01T00:00:00Z").append(',')
+                    .append("Ventes").append(',')
+                    .append("Île-de-France").append('\n');
+        }
+        csv = builder.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public long tokenizer(Blackhole blackhole) throws IOException {
+        UserCsvTokenizer tokenizer = new UserCsvTokenizer(new ByteArrayInputStream(csv), 1 << 20, 0, 1);
+        tokenizer.next();
+        long count = 0;
+        while (tokenizer.next()) {
+            blackhole.consume(tokenizer.longField(0));
+            for (int i = 1; i < tokenizer.fieldCount(); i++) {
+                blackhole.consume(tokenizer.field(i));
+            }
+            count++;
+        }
+        return count;
+    }
+
+    @Benchmark
+    public long openCsv(Blackhole blackhole) throws Exception {
+        long count = 0;
+        try (CSVReader reader = new CSVReader(new BufferedReader(
+                new InputStreamReader(new ByteArrayInputStream(csv), StandardCharsets.UTF_8), 1 << 20))) {
+            reader.readNext();
+            String[] row;
+            while ((row = reader.readNext()) != null) {
+                blackhole.consume(Long.parseLong(row[0].trim()));
+                for (int i = 1; i < row.length; i++) {
+                    String value = row[i].trim();
+                    blackhole.consume(value.isEmpty() ? null : value);
+                }
+                count++;
+            }
+        }
+        return count;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(UserCsvTokenizerBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
@@ -0,0 +1,209 @@
+package com.example.springelasticproject.util;
+
+import com.opencsv.CSVReader;
+import com.opencsv.CSVReaderBuilder;
+import com.opencsv.RFC4180ParserBuilder;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class UserCsvTokenizerTest {
+
+    @Test
+    void quotedFieldsAndEscapedQuotes() throws Exception {
+        String csv = "id,name,bio\n"
+                + "1,\"Dupont, Jean\",\"il a dit \"\"bonjour\"\"\"\n"
+                + "2,\"\"\"\",\"\"\n";
+
+        assertParity(csv);
+        List<String[]> rows = tokenize(csv, 8);
+        assertEquals(Arrays.asList("Dupont, Jean", "il a dit \"bonjour\""), Arrays.asList(rows.get(1)).subList(1, 3));
+        assertEquals("\"", rows.get(2)[1]);
+        assertNull(rows.get(2)[2]);
+    }
+
+    @Test
+    void embeddedNewlinesStayInTheField() throws Exception {
+        String csv = "id,address\n"
+                + "1,\"12 rue de la Paix\nParis\"\n"
+                + "2,\"ligne 1\r\nligne 2\"\n";
+
+        assertParity(csv);
+        List<String[]> rows = tokenize(csv, 4);
+        assertEquals(3, rows.size());
+        assertEquals("12 rue de la Paix\nParis", rows.get(1)[1]);
+        // Le contenu du champ est conservé tel quel, CRLF compris
+        assertEquals("ligne 1\r\nligne 2", rows.get(2)[1]);
+    }
+
+    @Test
+    void crlfAndMissingTrailingNewline() throws Exception {
+        String csv = "id,name\r\n1,Jean\r\n2,\"Marie\"\r\n3,Paul";
+
+        assertParity(csv);
+        List<String[]> rows = tokenize(csv, 8);
+        assertEquals(Arrays.asList("3", "Paul"), Arrays.asList(rows.get(3)));
+        assertEquals("Jean", rows.get(1)[1]);
+    }
+
+    @Test
+    void lineNumbersAndOffsetsFollowPhysicalLines() throws Exception {
+        String csv = "id,bio\n1,\"a\nb\"\n2,c\n";
+        UserCsvTokenizer tokenizer = tokenizer(csv, 4);
+
+        tokenizer.next();
+        tokenizer.next();
+        assertEquals(2, tokenizer.recordLine());
+        assertEquals(7, tokenizer.recordStartOffset());
+        tokenizer.next();
+        assertEquals(4, tokenizer.recordLine());
+        assertEquals("2,c", tokenizer.rawRecord());
+        assertEquals(csv.length(), tokenizer.recordEndOffset());
+    }
+
+    @Test
+    void longFieldsAreReadFromTheBuffer() throws Exception {
+        UserCsvTokenizer tokenizer = tokenizer(" 42 ,-7,\"123\",9223372036854775807,x,\n", 64);
+        tokenizer.next();
+
+        assertEquals(42, tokenizer.longField(0));
+        assertEquals(-7, tokenizer.longField(1));
+        assertEquals(123, tokenizer.longField(2));
+        assertEquals(Long.MAX_VALUE, tokenizer.longField(3));
+        assertThrows(NumberFormatException.class, () -> tokenizer.longField(4));
+        assertThrows(NumberFormatException.class, () -> tokenizer.longField(5));
+    }
+
+    @Test
+    void randomizedInputMatchesOpenCsv() throws Exception {
+        Random random = new Random(42);
+        for (int run = 0; run < 50; run++) {
+            assertParity(randomCsv(random, 200));
+        }
+    }
+
+    @Test
+    void chunksNeverSplitAQuotedField() throws Exception {
+        String csv = randomCsv(new Random(7), 500);
+        byte[] bytes = csv.getBytes(StandardCharsets.UTF_8);
+        List<String[]> expected = tokenize(csv, 1024);
+        expected.remove(0);
+
+        for (int chunkSize : new int[]{16, 64, 1000}) {
+            List<String[]> actual = new ArrayList<>();
+            long expectedLine = 2;
+            long expectedOffset = "id,name,city,bio\n".length();
+            try (CsvChunkReader reader = new CsvChunkReader(new ByteArrayInputStream(bytes), chunkSize, true)) {
+                CsvChunkReader.Chunk chunk;
+                while ((chunk = reader.next()) != null) {
+                    // Les blocs se suivent sans trou ni recouvrement
+                    assertEquals(expectedOffset, chunk.getStartOffset());
+                    assertEquals(expectedLine, chunk.getFirstLine());
+                    expectedOffset = chunk.getEndOffset();
+                    expectedLine = chunk.getEndLine();
+                    actual.addAll(read(chunk.tokenizer()));
+                }
+            }
+            assertEquals(bytes.length, expectedOffset);
+            assertRows(expected, actual);
+        }
+    }
+
+    // Même découpage et mêmes valeurs (trimToNull) que le parseur RFC 4180 d'OpenCSV
+    private static void assertParity(String csv) throws Exception {
+        List<String[]> expected = new ArrayList<>();
+        try (CSVReader reader = new CSVReaderBuilder(new StringReader(csv))
+                .withCSVParser(new RFC4180ParserBuilder().build())
+                .build()) {
+            String[] row;
+            while ((row = reader.readNext()) != null) {
+                String[] trimmed = new String[row.length];
+                for (int i = 0; i < row.length; i++) {
+                    String value = row[i].trim();
+                    trimmed[i] = value.isEmpty() ? null : value;
+                }
+                expected.add(trimmed);
+            }
+        }
+
+        // Petit tampon : les enregistrements chevauchent les rechargements
+        assertRows(expected, crlfAsLf(tokenize(csv, 4)));
+        assertRows(expected, crlfAsLf(tokenize(csv, 8192)));
+    }
+
+    // OpenCSV relit le fichier ligne par ligne : un CRLF à l'intérieur d'un champ y devient LF
+    private static List<String[]> crlfAsLf(List<String[]> rows) {
+        for (String[] row : rows) {
+            for (int i = 0; i < row.length; i++) {
+                if (row[i] != null) {
+                    row[i] = row[i].replace("\r\n", "\n");
+                }
+            }
+        }
+        return rows;
+    }
+
+    private static void assertRows(List<String[]> expected, List<String[]> actual) {
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(Arrays.asList(expected.get(i)), Arrays.asList(actual.get(i)), "enregistrement " + i);
+        }
+    }
+
+    private static List<String[]> tokenize(String csv, int bufferSize) throws IOException {
+        return read(tokenizer(csv, bufferSize));
+    }
+
+    private static UserCsvTokenizer tokenizer(String csv, int bufferSize) {
+        return new UserCsvTokenizer(new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8)), bufferSize, 0, 1);
+    }
+
+    private static List<String[]> read(UserCsvTokenizer tokenizer) throws IOException {
+        List<String[]> rows = new ArrayList<>();
+        while (tokenizer.next()) {
+            String[] row = new String[tokenizer.fieldCount()];
+            for (int i = 0; i < row.length; i++) {
+                row[i] = tokenizer.field(i);
+            }
+            rows.add(row);
+        }
+        return rows;
+    }
+
+    // CSV aléatoire : guillemets, guillemets doublés, virgules et sauts de ligne dans les champs
+    static String randomCsv(Random random, int rows) {
+        String[] values = {"", " ", "Jean", " Dupont ", "a,b", "dit \"oui\"", "ligne\nsuivante", "ligne\r\nsuivante",
+                "\"", "12345678901", "é", "Saint-Étienne"};
+        StringBuilder csv = new StringBuilder("id,name,city,bio\n");
+        for (int row = 0; row < rows; row++) {
+            for (int column = 0; column < 4; column++) {
+                if (column > 0) {
+                    csv.append(',');
+                }
+                String value = values[random.nextInt(values.length)];
+                boolean mustQuote = value.indexOf(',') >= 0 || value.indexOf('"') >= 0 || value.indexOf('\n') >= 0;
+                if (mustQuote || random.nextInt(4) == 0) {
+                    csv.append('"').append(value.replace("\"", "\"\"")).append('"');
+                } else {
+                    csv.append(value);
+                }
+            }
+            // Le dernier enregistrement n'a pas toujours de saut de ligne final
+            if (row < rows - 1 || random.nextBoolean()) {
+                csv.append(random.nextBoolean() ? "\n" : "\r\n");
+            }
+        }
+        return csv.toString();
+    }
+}
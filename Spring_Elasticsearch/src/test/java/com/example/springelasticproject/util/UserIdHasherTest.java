@@ -0,0 +1,43 @@
+package com.example.springelasticproject.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class UserIdHasherTest {
+
+    @Test
+    void sameRecordGivesSameId() {
+        assertEquals(UserIdHasher.hash(100012345L, "+33612345678"), UserIdHasher.hash(100012345L, "+33612345678"));
+        assertEquals(UserIdHasher.hash(null, null), UserIdHasher.hash(null, null));
+    }
+
+    @Test
+    void userIdAndPhoneAreBothPartOfTheKey() {
+        long id = UserIdHasher.hash(100012345L, "+33612345678");
+        assertNotEquals(id, UserIdHasher.hash(100012346L, "+33612345678"));
+        assertNotEquals(id, UserIdHasher.hash(100012345L, "+33612345679"));
+        assertNotEquals(UserIdHasher.hash(1L, "2"), UserIdHasher.hash(12L, ""));
+    }
+
+    @Test
+    void idsUseTheFull64Bits() {
+        Set<Long> ids = new HashSet<>();
+        boolean aboveJsPrecision = false;
+        boolean negative = false;
+        for (long userId = 0; userId < 100_000; userId++) {
+            long id = UserIdHasher.hash(userId, "0600000000");
+            ids.add(id);
+            aboveJsPrecision |= Math.abs(id) > (1L << 53);
+            negative |= id < 0;
+        }
+        assertEquals(100_000, ids.size());
+        assertTrue(aboveJsPrecision);
+        assertTrue(negative);
+    }
+}